@@ -0,0 +1,183 @@
+package com.google.step.youtube;
+
+import com.google.common.collect.ImmutableList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Descriptions the benchmarks parse. Every corpus is built from a fixed seed, so runs before
+ * and after a parser change see the same input.
+ */
+enum DescriptionCorpus {
+
+    // single sponsor lines, as in most of the unit tests
+    SHORT {
+        @Override
+        List<String> descriptions(Random random) {
+            ImmutableList.Builder<String> descriptions = ImmutableList.builder();
+            for (int i = 0; i < 100; i++) {
+                descriptions.add(pick(random, SPONSOR_LINES));
+            }
+            return descriptions.build();
+        }
+    },
+    // a few kilobytes each: an intro, timestamps, a sponsor block and social links
+    LONG {
+        @Override
+        List<String> descriptions(Random random) {
+            ImmutableList.Builder<String> descriptions = ImmutableList.builder();
+            for (int i = 0; i < 20; i++) {
+                StringBuilder description = new StringBuilder();
+                for (int j = 0; j < 8; j++) {
+                    description.append(pick(random, FILLER_LINES)).append(' ');
+                }
+                description.append("\n\nTIMESTAMPS\n");
+                for (int minute = 0; minute < 30; minute += 1 + random.nextInt(4)) {
+                    description.append(String.format("%d:%02d %s\n", minute, random.nextInt(60),
+                            pick(random, FILLER_LINES)));
+                }
+                description.append("\nTHANK YOU TO OUR SPONSORS\n");
+                for (int j = 0; j < 4; j++) {
+                    description.append(pick(random, SPONSOR_LINES)).append('\n');
+                }
+                description.append('\n');
+                for (String social : SOCIAL_LINES) {
+                    description.append(social).append('\n');
+                }
+                descriptions.add(description.toString());
+            }
+            return descriptions.build();
+        }
+    },
+    // links on every line, most near a price or a percentage
+    LINK_DENSE {
+        @Override
+        List<String> descriptions(Random random) {
+            ImmutableList.Builder<String> descriptions = ImmutableList.builder();
+            for (int i = 0; i < 20; i++) {
+                StringBuilder description = new StringBuilder();
+                for (int j = 0; j < 60; j++) {
+                    String link = "https://amzn.to/" + Integer.toString(random.nextInt(1 << 30), 36);
+                    switch (random.nextInt(4)) {
+                        case 0:
+                            description.append("Camera ($").append(random.nextInt(2000)).append("): ").append(link);
+                            break;
+                        case 1:
+                            description.append(link).append(" save ").append(random.nextInt(90)).append("% today");
+                            break;
+                        case 2:
+                            description.append("Mic at ").append(link).append(", stand at ").append(link);
+                            break;
+                        default:
+                            description.append("Lens: ").append(link);
+                    }
+                    description.append('\n');
+                }
+                descriptions.add(description.toString());
+            }
+            return descriptions.build();
+        }
+    },
+    // long lines which make the backtracking patterns work hard
+    ADVERSARIAL {
+        @Override
+        List<String> descriptions(Random random) {
+            return ImmutableList.of(
+                    repeat("code ", 2000),
+                    "code \"" + repeat("no closing quote ", 600),
+                    repeat("code \"unclosed ", 1000),
+                    repeat("$1 https://a.co/x ", 600),
+                    repeat("https://a.co/" + repeat("x", 80) + " ", 100) + "99%",
+                    repeat("to at code ", 1000),
+                    repeat("5% ", 2000) + "https://a.co/x" + repeat(" $5", 2000));
+        }
+    },
+    // descriptions from DescriptionParserTest and YouTubeClientMocks
+    FIXTURES {
+        @Override
+        List<String> descriptions(Random random) {
+            return ImmutableList.<String>builder()
+                    .add(YouTubeClientMocks.PROMOCODE_DESCRIPTION, YouTubeClientMocks.KEYWORD_DESCRIPTION,
+                            YouTubeClientMocks.DESCRIPTION)
+                    .add("Check out our UPDATED version which has all the NEW ELEMENTS here:  "
+                            + "https://youtu.be/rz4Dd1I_fX0"
+                            + "\nThe TEETH Song (Memorize Every Tooth): https://youtu.be/PI3hne8C8rU"
+                            + "\nDownload on ITUNES: http://bit.ly/12AeW99 ")
+                    .add("ty for 10 years of pewdiepie youtube uploads brvus\n"
+                            + "Go to https://NordVPN.com/pewdiepie and get 70 percent off\n")
+                    .add("Also my code \"COOLIRPA\"\nUse my code \"COOLIRPA\".\n")
+                    .add("Mercari (Buy or sell almost anything on Mercari on the App store). This episode "
+                            + "originally recorded June 8, 2020, and is sponsored by Stamps.com (Go to "
+                            + "http://stamps.com, click on the microphone at the top of the homepage, and "
+                            + "type in ROOSTER to claim your special offer).")
+                    .add("code ABC code DEF codecode GHI code: \"a\" code \"b code \"c\"")
+                    .add("Get 10% off (save up to $44!) your own authentic Japanese snack box from "
+                            + "Bokksu using my link: https://bit.ly/3fYbkZ5 and code FUNGBROS-10")
+                    .add("Use cOdE LINUS and get 25% off GlassWire at https://lmg.gg/glasswire")
+                    .add("Use code LINUS and get 25% off GlassWire https://lmg.gg/glasswire at")
+                    .add("Save (https://bit.ly/nativecoolirpa) 40%")
+                    .add("use: https://bit.ly/nativecoolirpa for $5 off or go to: https://lmg.gg/glasswire for 20% off")
+                    .addAll(SPONSOR_LINES)
+                    .build();
+        }
+    },
+    // SyntheticDescriptions from 100 characters to 4 megabytes, half of them under 20 kilobytes
+    SYNTHETIC {
+        @Override
+        List<String> descriptions(Random random) {
+            return new SyntheticDescriptions(random.nextLong()).corpus(40, SyntheticDescriptions.MIN_LENGTH,
+                    4 << 20);
+        }
+    };
+
+    private static final long SEED = 42;
+
+    // company named in some of SPONSOR_LINES, for parseByCompany
+    static final String COMPANY = "NordVPN";
+
+    private static final List<String> SPONSOR_LINES = ImmutableList.of(
+            "Use code FUNGBROS10. ",
+            "Click here and use my code \"COOLIRPA\".",
+            "Go to https://NordVPN.com/pewdiepie and use code PEWDIEPIE ",
+            "use https://lmg.gg/glasswire to get 25% off",
+            "Get 10% off your own authentic Japanese snack box from Bokksu using my link: https://bit.ly/3fYbkZ5",
+            "Get 20% OFF + Free International Shipping instantly at http://Manscaped.com/phil",
+            "Head to https://www.squarespace.com/boulderin to save 10% off your first purchase of a website",
+            "Get 70% off NordVPN at https://nordvpn.com/lmg with code LMG",
+            "Save 33% on your first Native Deodorant Pack - normally $36, you'll get it for $24! "
+                    + "Click here https://bit.ly/nativecoolirpa and use my code COOLIRPA");
+
+    private static final List<String> FILLER_LINES = ImmutableList.of(
+            "Today we are building the smallest gaming PC we have ever made.",
+            "We tried every flavor of instant ramen so you don't have to.",
+            "Thanks to everyone who came out to the meetup last weekend!",
+            "This is part two of the series, watch part one first.",
+            "Music by Epidemic Sound, used with permission.",
+            "Filmed in Tokyo and Osaka over two weeks in the spring.",
+            "Let us know in the comments what we should review next time.");
+
+    private static final List<String> SOCIAL_LINES = ImmutableList.of(
+            "Twitter: https://twitter.com/promotube",
+            "Instagram: https://instagram.com/promotube",
+            "Merch: https://promotube.store",
+            "Discord: https://discord.gg/promotube");
+
+    /** @return the descriptions of this corpus, the same for every call. */
+    List<String> descriptions() {
+        return descriptions(new Random(SEED));
+    }
+
+    abstract List<String> descriptions(Random random);
+
+    private static String pick(Random random, List<String> strings) {
+        return strings.get(random.nextInt(strings.size()));
+    }
+
+    private static String repeat(String string, int times) {
+        StringBuilder repeated = new StringBuilder(string.length() * times);
+        for (int i = 0; i < times; i++) {
+            repeated.append(string);
+        }
+        return repeated.toString();
+    }
+}
@@ -0,0 +1,123 @@
+package com.google.step.youtube;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Throughput of DescriptionParser over each DescriptionCorpus. One operation parses every
+ * description of the corpus once. The cached benchmarks show what repeated requests see, the
+ * uncached ones what a description seen for the first time costs.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DescriptionParserBenchmark {
+
+    @Param({"SHORT", "LONG", "LINK_DENSE", "ADVERSARIAL", "FIXTURES", "SYNTHETIC"})
+    public String corpus;
+
+    private List<String> descriptions;
+    // spans of the matches of every pattern in each description, for the snippet benchmark
+    private List<List<List<MatchSpan>>> spans;
+    private List<DescriptionIndex> indexes;
+
+    @Setup
+    public void setUp() {
+        descriptions = DescriptionCorpus.valueOf(corpus).descriptions();
+        spans = new ArrayList<>();
+        indexes = new ArrayList<>();
+        for (String description : descriptions) {
+            spans.add(DescriptionParser.findAllSpans(description, 0, description.length(), 0));
+            indexes.add(DescriptionIndex.of(description));
+        }
+        DescriptionParser.clearCache();
+    }
+
+    @Benchmark
+    public void parse(Blackhole blackhole) {
+        for (String description : descriptions) {
+            blackhole.consume(DescriptionParser.parse(description));
+        }
+    }
+
+    /* parses without the result cache and the line memo */
+    @Benchmark
+    public void parseUncached(Blackhole blackhole) {
+        for (String description : descriptions) {
+            blackhole.consume(DescriptionParser.parseFrom(description, 0));
+        }
+    }
+
+    @Benchmark
+    public void parseByCompany(Blackhole blackhole) {
+        for (String description : descriptions) {
+            blackhole.consume(DescriptionParser.parseByCompany(DescriptionCorpus.COMPANY, description));
+        }
+    }
+
+    /* parses without the result cache, though lines still go through the line memo */
+    @Benchmark
+    public void parseByCompanyUncached(Blackhole blackhole) {
+        for (String description : descriptions) {
+            blackhole.consume(DescriptionParser.parseByCompanyUncached(DescriptionCorpus.COMPANY, description));
+        }
+    }
+
+    /*
+     * parseByCompany as it was before lines were handled as index ranges: splits the
+     * description, lowercases every line and parses those with the company uncached. Its
+     * gc.alloc.rate.norm is the baseline for that of parseByCompanyUncached.
+     */
+    @Benchmark
+    public void parseByCompanySplittingLines(Blackhole blackhole) {
+        for (String description : descriptions) {
+            List<OfferSnippet> offers = new ArrayList<>();
+            for (String snippet : description.split("\n")) {
+                if (snippet.toLowerCase().indexOf(DescriptionCorpus.COMPANY.toLowerCase()) != -1) {
+                    offers.addAll(DescriptionParser.parseFrom(snippet, 0));
+                }
+            }
+            blackhole.consume(offers);
+        }
+    }
+
+    /* finds the matches of all patterns at once, as parse does, without building snippets */
+    @Benchmark
+    public void findAllSpans(Blackhole blackhole) {
+        for (String description : descriptions) {
+            blackhole.consume(DescriptionParser.findAllSpans(description, 0, description.length(), 0));
+        }
+    }
+
+    /* builds the snippet of every match found in the corpus, reading its text */
+    @Benchmark
+    public void snippets(Blackhole blackhole) {
+        for (int i = 0; i < descriptions.size(); i++) {
+            DescriptionIndex index = indexes.get(i);
+            for (List<MatchSpan> patternSpans : spans.get(i)) {
+                for (MatchSpan span : patternSpans) {
+                    OfferSnippet offer = DescriptionParser.createOfferSnippet(span.getStart(), span.getEnd(),
+                            index, 0, index.getDescription().length());
+                    blackhole.consume(offer.getPromoCode());
+                    blackhole.consume(offer.getSnippet());
+                }
+            }
+        }
+    }
+}
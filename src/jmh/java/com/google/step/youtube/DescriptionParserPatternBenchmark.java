@@ -0,0 +1,52 @@
+package com.google.step.youtube;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Throughput of each of DescriptionParser.Patterns matched alone over each DescriptionCorpus.
+ * One operation matches every description of the corpus once.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DescriptionParserPatternBenchmark {
+
+    @Param({"SHORT", "LONG", "LINK_DENSE", "ADVERSARIAL", "FIXTURES", "SYNTHETIC"})
+    public String corpus;
+
+    @Param({"CODE_NO_QUOTES", "CODE_WITH_QUOTES", "TO_AT_LINKS", "SYMBOL_NEAR_LINK"})
+    public String pattern;
+
+    private List<String> descriptions;
+    private Pattern regex;
+
+    @Setup
+    public void setUp() {
+        descriptions = DescriptionCorpus.valueOf(corpus).descriptions();
+        regex = DescriptionParser.Patterns.valueOf(pattern).getPattern();
+    }
+
+    @Benchmark
+    public void findMatches(Blackhole blackhole) {
+        for (String description : descriptions) {
+            blackhole.consume(DescriptionParser.findMatches(regex, description));
+        }
+    }
+}
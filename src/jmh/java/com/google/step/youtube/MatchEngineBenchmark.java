@@ -0,0 +1,53 @@
+package com.google.step.youtube;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Throughput of the built-in rules on each ExtractionRules.Engine over each DescriptionCorpus.
+ * One operation finds the matches of all rules in every description of the corpus once, without
+ * a match budget, so the engines are compared on typical as well as adversarial input.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MatchEngineBenchmark {
+
+    @Param({"SHORT", "LONG", "LINK_DENSE", "ADVERSARIAL", "FIXTURES", "SYNTHETIC"})
+    public String corpus;
+
+    @Param({"JDK", "LINEAR"})
+    public String engine;
+
+    private List<String> descriptions;
+    private ExtractionRules rules;
+
+    @Setup
+    public void setUp() {
+        descriptions = DescriptionCorpus.valueOf(corpus).descriptions();
+        rules = ExtractionRules.defaults(ExtractionRules.Engine.valueOf(engine));
+    }
+
+    @Benchmark
+    public void findAllSpans(Blackhole blackhole) {
+        for (String description : descriptions) {
+            blackhole.consume(rules.findAllSpans(description, 0, description.length(), 0,
+                    MatchBudget.UNLIMITED.start()));
+        }
+    }
+}
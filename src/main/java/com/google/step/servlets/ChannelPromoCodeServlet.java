@@ -1,10 +1,11 @@
 package com.google.step.servlets;
 
+import com.google.step.youtube.YouTubeClientFactory;
 import com.google.step.youtube.YouTubeInfoScraper;
 import com.google.step.youtube.PromoCode;
+import com.google.step.youtube.RequestStages;
 import com.google.appengine.repackaged.com.google.common.collect.ImmutableList;
 import com.google.common.annotations.VisibleForTesting;
-import com.google.gson.Gson;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
@@ -17,21 +18,37 @@ import java.util.Optional;
 public class ChannelPromoCodeServlet extends HttpServlet {
 
     private YouTubeInfoScraper infoScraper;
+    private final SlowRequestLog slowRequestLog;
 
     @VisibleForTesting
     final String REQUEST_PARAMETER = "formInput";
 
+    /** Scrapes with the client of clientFactory, such as one with its own pool of connections. */
+    public ChannelPromoCodeServlet(YouTubeClientFactory clientFactory) {
+        this(new YouTubeInfoScraper(clientFactory.getClient()));
+    }
+
     public ChannelPromoCodeServlet(YouTubeInfoScraper infoScraper) {
+        this(infoScraper, SlowRequestLog.getShared());
+    }
+
+    @VisibleForTesting
+    ChannelPromoCodeServlet(YouTubeInfoScraper infoScraper, SlowRequestLog slowRequestLog) {
         this.infoScraper = infoScraper;
+        this.slowRequestLog = slowRequestLog;
     }
 
     public ChannelPromoCodeServlet() {
+        this.slowRequestLog = SlowRequestLog.getShared();
         init();
     }
 
+    /** Uses the shared scraper, on the shared YouTubeClientFactory, unless given a scraper. */
     @Override
     public void init() {
-        infoScraper = new YouTubeInfoScraper();
+        if (infoScraper == null) {
+            infoScraper = YouTubeInfoScraper.getShared();
+        }
     }
 
     /**
@@ -39,32 +56,46 @@ public class ChannelPromoCodeServlet extends HttpServlet {
      * the userInput. If the userInput is real and there are codes the json will
      * return a list of promoCodes. If the userInput is not proper then the json
      * will return an empty list. In a case where an exception is thrown the json
-     * will return an empty list.
+     * will return an empty list. Requests slower than the threshold of the slow request
+     * log are recorded in it.
      */
     @Override
     public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        long start = System.nanoTime();
+        RequestStages stages = RequestStages.begin();
         String userInput = request.getParameter(REQUEST_PARAMETER);
         response.setContentType("application/json");
 
+        List<PromoCode> promoCodes = ImmutableList.of();
+        IOException error = null;
+        int responseLength = 0;
         try {
-            Optional<String> playlistId;
-            if (userInput.startsWith("https://www.youtube.com/channel/")) {
-                playlistId = infoScraper.scrapeChannelUploadPlaylist(userInput.split("/")[4]);
-            } else if (userInput.startsWith("https://www.youtube.com/user/")) {
-                playlistId = infoScraper.scrapeUserUploadPlaylist(userInput.split("/")[4]);
-            } else {
-                response.getWriter().println(new Gson().toJson(ImmutableList.of()));
-                return;
+            try {
+                promoCodes = scrapePromoCodes(userInput);
+            } catch (IOException exception) {
+                error = exception;
             }
+            responseLength = JsonResponses.write(response, promoCodes);
+        } finally {
+            stages.end();
+            slowRequestLog.record("channel", userInput, System.nanoTime() - start, stages, responseLength, error);
+        }
+    }
 
-            if (!playlistId.isPresent()) {
-                response.getWriter().println(new Gson().toJson(ImmutableList.of()));
-                return;
-            }
-            Optional<List<PromoCode>> promoCodeList = infoScraper.scrapePromoCodesFromPlaylist(playlistId.get());
-            response.getWriter().println(new Gson().toJson(promoCodeList.orElse(ImmutableList.of())));
-        } catch (IOException exception) {
-            response.getWriter().println(new Gson().toJson(ImmutableList.of()));
+    /* Returns the promo codes of the channel at the url userInput, or none if it isn't one. */
+    private List<PromoCode> scrapePromoCodes(String userInput) throws IOException {
+        Optional<String> playlistId;
+        if (userInput.startsWith("https://www.youtube.com/channel/")) {
+            playlistId = infoScraper.scrapeChannelUploadPlaylist(userInput.split("/")[4]);
+        } else if (userInput.startsWith("https://www.youtube.com/user/")) {
+            playlistId = infoScraper.scrapeUserUploadPlaylist(userInput.split("/")[4]);
+        } else {
+            return ImmutableList.of();
+        }
+
+        if (!playlistId.isPresent()) {
+            return ImmutableList.of();
         }
+        return infoScraper.scrapePromoCodesFromPlaylist(playlistId.get()).orElse(ImmutableList.of());
     }
 }
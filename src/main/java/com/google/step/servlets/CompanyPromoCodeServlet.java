@@ -11,47 +11,84 @@ import javax.servlet.http.HttpServletResponse;
 
 import com.google.appengine.repackaged.com.google.common.collect.ImmutableList;
 import com.google.common.annotations.VisibleForTesting;
-import com.google.gson.Gson;
 import com.google.step.youtube.PromoCode;
+import com.google.step.youtube.RequestStages;
+import com.google.step.youtube.YouTubeClientFactory;
 import com.google.step.youtube.YouTubeInfoScraper;
 
 @WebServlet("/company/promo-codes")
 public class CompanyPromoCodeServlet extends HttpServlet {
 
     private YouTubeInfoScraper infoScraper;
+    private final SlowRequestLog slowRequestLog;
 
     @VisibleForTesting
     final String REQUEST_PARAMETER = "formInput";
 
+    /** Scrapes with the client of clientFactory, such as one with its own pool of connections. */
+    public CompanyPromoCodeServlet(YouTubeClientFactory clientFactory) {
+        this(new YouTubeInfoScraper(clientFactory.getClient()));
+    }
+
     public CompanyPromoCodeServlet(YouTubeInfoScraper infoScraper) {
+        this(infoScraper, SlowRequestLog.getShared());
+    }
+
+    @VisibleForTesting
+    CompanyPromoCodeServlet(YouTubeInfoScraper infoScraper, SlowRequestLog slowRequestLog) {
         this.infoScraper = infoScraper;
+        this.slowRequestLog = slowRequestLog;
     }
 
     public CompanyPromoCodeServlet() {
+        this.slowRequestLog = SlowRequestLog.getShared();
         init();
     }
 
+    /** Uses the shared scraper, on the shared YouTubeClientFactory, unless given a scraper. */
     @Override
     public void init() {
-        infoScraper = new YouTubeInfoScraper();
+        if (infoScraper == null) {
+            infoScraper = YouTubeInfoScraper.getShared();
+        }
     }
 
+    /**
+     * Takes in formInput as a parameter and returns the promoCodes found in the videos
+     * searched for with it as json. If nothing is found or an exception is thrown the json
+     * will return an empty list. Requests slower than the threshold of the slow request log
+     * are recorded in it.
+     */
     @Override
     public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        long start = System.nanoTime();
+        RequestStages stages = RequestStages.begin();
         String userInput = request.getParameter(REQUEST_PARAMETER);
         response.setContentType("application/json");
 
+        List<PromoCode> promoCodes = ImmutableList.of();
+        IOException error = null;
+        int responseLength = 0;
         try {
-            Optional<List<String>> videoIds = infoScraper.scrapeVideoIdsFromSearch(userInput);
-            if (!videoIds.isPresent()) {
-                response.getWriter().println(new Gson().toJson(ImmutableList.of()));
-                return;
+            try {
+                promoCodes = scrapePromoCodes(userInput);
+            } catch (IOException exception) {
+                error = exception;
             }
-            Optional<List<PromoCode>> promoCodeList = infoScraper.scrapePromoCodesFromVideos(userInput, videoIds.get());
-            response.getWriter().println(new Gson().toJson(promoCodeList.orElse(ImmutableList.of())));
-        } catch (IOException exception) {
-            response.getWriter().println(new Gson().toJson(ImmutableList.of()));
+            responseLength = JsonResponses.write(response, promoCodes);
+        } finally {
+            stages.end();
+            slowRequestLog.record("company", userInput, System.nanoTime() - start, stages, responseLength, error);
+        }
+    }
+
+    /* Returns the promo codes for the company userInput in the videos searched for with it. */
+    private List<PromoCode> scrapePromoCodes(String userInput) throws IOException {
+        Optional<List<String>> videoIds = infoScraper.scrapeVideoIdsFromSearch(userInput);
+        if (!videoIds.isPresent()) {
+            return ImmutableList.of();
         }
+        return infoScraper.scrapePromoCodesFromVideos(userInput, videoIds.get()).orElse(ImmutableList.of());
     }
 
 }
@@ -0,0 +1,49 @@
+package com.google.step.servlets;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.step.youtube.DescriptionParser;
+import com.google.step.youtube.ExtractionRules;
+import java.io.IOException;
+import java.util.logging.Logger;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Shows and reloads the extraction rules DescriptionParser parses with. A GET returns the
+ * names of the rules, their engine and the matches each found, as JSON. A POST loads the rules
+ * again from the file of the promotube.extractionRules system property, or the bundled rules,
+ * so edited rules are used without a redeploy; if they can't be loaded, the rules in use are
+ * kept and the error is returned. Only admins of the project may request it.
+ */
+@WebServlet("/admin/extraction-rules")
+public class ExtractionRulesServlet extends HttpServlet {
+
+    private static final Logger logger = Logger.getLogger(ExtractionRulesServlet.class.getName());
+
+    @Override
+    public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        writeRules(response, DescriptionParser.getRules());
+    }
+
+    @Override
+    public void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        ExtractionRules loaded;
+        try {
+            loaded = DescriptionParser.reloadRules();
+        } catch (IOException | IllegalArgumentException e) {
+            logger.warning("Kept the extraction rules in use, as reloading them failed: " + e);
+            response.sendError(e instanceof IOException ? HttpServletResponse.SC_INTERNAL_SERVER_ERROR
+                    : HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        }
+        writeRules(response, loaded);
+    }
+
+    private static void writeRules(HttpServletResponse response, ExtractionRules rules) throws IOException {
+        response.setContentType("application/json");
+        JsonResponses.write(response, ImmutableMap.of("rules", rules.getRuleNames(), "engine", rules.getEngine(),
+                "matchCounts", DescriptionParser.getRuleMatchCounts()));
+    }
+}
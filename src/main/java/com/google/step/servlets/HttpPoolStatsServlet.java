@@ -0,0 +1,32 @@
+package com.google.step.servlets;
+
+import com.google.step.youtube.YouTubeClientFactory;
+import java.io.IOException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Returns the number of leased, idle and pending connections of the shared YouTubeClientFactory
+ * pool, and its maximum, as JSON. Only admins of the project may request it.
+ */
+@WebServlet("/admin/http-pool")
+public class HttpPoolStatsServlet extends HttpServlet {
+
+    private final YouTubeClientFactory clientFactory;
+
+    public HttpPoolStatsServlet(YouTubeClientFactory clientFactory) {
+        this.clientFactory = clientFactory;
+    }
+
+    public HttpPoolStatsServlet() {
+        this(YouTubeClientFactory.getShared());
+    }
+
+    @Override
+    public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setContentType("application/json");
+        JsonResponses.write(response, clientFactory.getPoolStats());
+    }
+}
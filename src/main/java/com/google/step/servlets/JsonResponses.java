@@ -0,0 +1,54 @@
+package com.google.step.servlets;
+
+import com.google.gson.Gson;
+import com.google.step.youtube.JfrSupport;
+import com.google.step.youtube.RequestStages;
+import java.io.IOException;
+import java.util.Collection;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Writes the JSON responses of the servlets. The servlets share one Gson, which is thread-safe
+ * and caches the type adapter of every class it serializes, so PromoCode is only inspected
+ * once, by warmup if that comes first.
+ */
+final class JsonResponses {
+
+    static final Gson GSON = new Gson();
+
+    private JsonResponses() {}
+
+    /*
+     * Writes value as a line of JSON, recording it as the "serialize" stage of the request and
+     * as a JsonSerializationEvent if JFR is available. Returns the length of the JSON.
+     */
+    static int write(HttpServletResponse response, Object value) throws IOException {
+        long start = System.nanoTime();
+        String json = JfrSupport.isAvailable() ? writeRecorded(response, value) : writeJson(response, value);
+        RequestStages.record("serialize", System.nanoTime() - start, itemCount(value));
+        return json.length();
+    }
+
+    private static String writeJson(HttpServletResponse response, Object value) throws IOException {
+        String json = GSON.toJson(value);
+        response.getWriter().println(json);
+        return json;
+    }
+
+    private static String writeRecorded(HttpServletResponse response, Object value) throws IOException {
+        JsonSerializationEvent event = new JsonSerializationEvent();
+        event.begin();
+        String json = writeJson(response, value);
+        event.end();
+        if (event.shouldCommit()) {
+            event.items = itemCount(value);
+            event.length = json.length();
+            event.commit();
+        }
+        return json;
+    }
+
+    private static int itemCount(Object value) {
+        return value instanceof Collection ? ((Collection<?>) value).size() : -1;
+    }
+}
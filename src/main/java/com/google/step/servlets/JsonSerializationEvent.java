@@ -0,0 +1,27 @@
+package com.google.step.servlets;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event for a servlet serializing its response to JSON and writing it. Its stack trace
+ * tells which servlet wrote it. Only created if JfrSupport.isAvailable().
+ */
+@Name("com.google.step.servlets.JsonSerialization")
+@Label("JSON Serialization")
+@Category({"PromoTube", "Serialize"})
+@Description("A servlet writing its response as JSON")
+@Enabled(false)
+final class JsonSerializationEvent extends jdk.jfr.Event {
+
+    @Label("Items")
+    @Description("Number of elements of the value serialized, or -1 if it isn't a collection")
+    int items;
+
+    @Label("Length")
+    @Description("Number of characters of JSON written")
+    int length;
+}
@@ -0,0 +1,151 @@
+package com.google.step.servlets;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.auto.value.AutoValue;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.step.youtube.RequestStages;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Log of the requests the servlets were slow to answer, with their input and where the time
+ * went. Requests taking at least the threshold are logged and kept, up to MAX_PER_MINUTE a
+ * minute so a slow backend under load doesn't flood the log, and only the last CAPACITY are
+ * kept in memory.
+ *
+ * The threshold of the shared log is read from the promotube.slowRequestMillis system
+ * property, DEFAULT_THRESHOLD_MILLIS if unset.
+ */
+public final class SlowRequestLog {
+
+    private static final Logger logger = Logger.getLogger(SlowRequestLog.class.getName());
+
+    public static final long DEFAULT_THRESHOLD_MILLIS = 2000;
+    public static final int CAPACITY = 50;
+    public static final int MAX_PER_MINUTE = 10;
+    // longer inputs are cut, so an entry's size is bounded
+    @VisibleForTesting
+    static final int MAX_INPUT_LENGTH = 200;
+
+    private static final SlowRequestLog SHARED = new SlowRequestLog(
+            Long.getLong("promotube.slowRequestMillis", DEFAULT_THRESHOLD_MILLIS), TimeUnit.MILLISECONDS,
+            Ticker.systemTicker());
+
+    private final Ticker ticker;
+    private volatile long thresholdNanos;
+    // entries oldest first
+    private final Deque<SlowRequest> entries = new ArrayDeque<>(CAPACITY);
+    // start of the current minute of the rate limit, and the entries kept in it
+    private long windowStart;
+    private int windowEntries;
+    private long droppedCount;
+
+    @VisibleForTesting
+    SlowRequestLog(long threshold, TimeUnit unit, Ticker ticker) {
+        this.ticker = ticker;
+        this.windowStart = ticker.read();
+        setThreshold(threshold, unit);
+    }
+
+    /** @return The log the servlets share. */
+    public static SlowRequestLog getShared() {
+        return SHARED;
+    }
+
+    /** Sets how long a request must take to be logged. */
+    public void setThreshold(long threshold, TimeUnit unit) {
+        checkArgument(threshold >= 0, "threshold must not be negative but was %s", threshold);
+        thresholdNanos = unit.toNanos(threshold);
+    }
+
+    /** @return The last CAPACITY slow requests kept, oldest first. */
+    public synchronized List<SlowRequest> getEntries() {
+        return ImmutableList.copyOf(entries);
+    }
+
+    /** @return The number of slow requests left out by the rate limit. */
+    public synchronized long getDroppedCount() {
+        return droppedCount;
+    }
+
+    /**
+     * Records a request which took nanos, if at least the threshold.
+     *
+     * @param servlet that served the request.
+     * @param input given in the request.
+     * @param nanos Time the request took.
+     * @param stages of the request.
+     * @param responseLength Number of characters of the response.
+     * @param error The exception answered with an empty response, or null if none.
+     */
+    void record(String servlet, String input, long nanos, RequestStages stages, int responseLength,
+            Exception error) {
+        if (nanos < thresholdNanos) {
+            return;
+        }
+        String cutInput = input == null ? "" : input.length() <= MAX_INPUT_LENGTH ? input
+                : input.substring(0, MAX_INPUT_LENGTH) + "...";
+        SlowRequest entry = SlowRequest.create(servlet, cutInput, nanos, stages.getNanos(), stages.getItems(),
+                responseLength, error == null ? "" : error.toString());
+        if (!tryAdd(entry)) {
+            return;
+        }
+        logger.warning(entry.toString());
+    }
+
+    private synchronized boolean tryAdd(SlowRequest entry) {
+        long now = ticker.read();
+        if (now - windowStart >= TimeUnit.MINUTES.toNanos(1)) {
+            windowStart = now;
+            windowEntries = 0;
+        }
+        if (windowEntries >= MAX_PER_MINUTE) {
+            droppedCount++;
+            return false;
+        }
+        windowEntries++;
+        if (entries.size() == CAPACITY) {
+            entries.removeFirst();
+        }
+        entries.addLast(entry);
+        return true;
+    }
+
+    /** Value type for a slow request. */
+    @AutoValue
+    public abstract static class SlowRequest {
+
+        static SlowRequest create(String servlet, String input, long nanos, Map<String, Long> stageNanos,
+                Map<String, Integer> stageItems, int responseLength, String error) {
+            return new AutoValue_SlowRequestLog_SlowRequest(servlet, input, nanos, ImmutableMap.copyOf(stageNanos),
+                    ImmutableMap.copyOf(stageItems), responseLength, error);
+        }
+
+        public abstract String getServlet();
+
+        /** @return The input of the request, cut to MAX_INPUT_LENGTH characters. */
+        public abstract String getInput();
+
+        public abstract long getNanos();
+
+        /** @return The time taken by each stage, such as "channels.list" or "parse". */
+        public abstract ImmutableMap<String, Long> getStageNanos();
+
+        /** @return The number of items handled by each stage. */
+        public abstract ImmutableMap<String, Integer> getStageItems();
+
+        /** @return The number of characters of the response. */
+        public abstract int getResponseLength();
+
+        /** @return The exception the request failed with, or "" if none. */
+        public abstract String getError();
+    }
+}
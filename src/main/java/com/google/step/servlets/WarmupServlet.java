@@ -0,0 +1,109 @@
+package com.google.step.servlets;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.step.youtube.DescriptionParser;
+import com.google.step.youtube.OfferSnippet;
+import com.google.step.youtube.PromoCode;
+import com.google.step.youtube.YouTubeInfoScraper;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Handles the warmup request App Engine sends to a new instance before routing users to it.
+ * Builds the shared scraper with its HTTP transport, parses the bundled warmup descriptions
+ * until the JIT has compiled the parser, and serializes the offers found as PromoCodes, so the
+ * first user request doesn't pay for any of it.
+ */
+@WebServlet("/_ah/warmup")
+public class WarmupServlet extends HttpServlet {
+
+    private static final Logger logger = Logger.getLogger(WarmupServlet.class.getName());
+
+    @VisibleForTesting
+    static final String CORPUS_RESOURCE = "/warmup-descriptions.txt";
+    // line between two descriptions in CORPUS_RESOURCE
+    private static final String SEPARATOR = "---";
+    // enough rounds of the corpus for the JIT to compile the matching and snippet code
+    private static final int DEFAULT_PARSE_ROUNDS = 300;
+
+    private final int parseRounds;
+
+    public WarmupServlet(int parseRounds) {
+        this.parseRounds = parseRounds;
+    }
+
+    public WarmupServlet() {
+        this(DEFAULT_PARSE_ROUNDS);
+    }
+
+    /**
+     * Warms up the instance and returns how long warmup took in milliseconds, and the number of
+     * offers found in the warmup descriptions, as JSON.
+     */
+    @Override
+    public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        long start = System.nanoTime();
+        YouTubeInfoScraper.getShared();
+        List<String> descriptions = loadCorpus();
+        DescriptionParser.warmUp(descriptions, parseRounds);
+        int offers = warmUpSerialization(descriptions);
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        logger.info(String.format("Warmed up in %d ms, %d offers in %d descriptions", millis, offers,
+                descriptions.size()));
+        response.setContentType("application/json");
+        JsonResponses.write(response, ImmutableMap.of("warmupMillis", millis, "offers", offers));
+    }
+
+    /*
+     * Parses descriptions the way requests do and serializes the offers as PromoCodes; returns
+     * the number of offers.
+     */
+    private static int warmUpSerialization(List<String> descriptions) {
+        List<PromoCode> promoCodes = new ArrayList<>();
+        for (List<OfferSnippet> offers : DescriptionParser.parseAll(descriptions)) {
+            for (OfferSnippet offer : offers) {
+                promoCodes.add(PromoCode.builder().setPromoCode(offer.getPromoCode()).setSnippet(offer.getSnippet())
+                        .setVideoId("warmup").setVideoTitle("warmup").setVideoUploadDate(new Date(0)).build());
+            }
+        }
+        JsonResponses.GSON.toJson(promoCodes);
+        return promoCodes.size();
+    }
+
+    @VisibleForTesting
+    static List<String> loadCorpus() throws IOException {
+        ImmutableList.Builder<String> descriptions = ImmutableList.builder();
+        try (InputStream input = WarmupServlet.class.getResourceAsStream(CORPUS_RESOURCE)) {
+            if (input == null) {
+                throw new IOException("Missing warmup corpus " + CORPUS_RESOURCE);
+            }
+            BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+            StringBuilder description = new StringBuilder();
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                if (line.equals(SEPARATOR)) {
+                    descriptions.add(description.toString());
+                    description.setLength(0);
+                } else {
+                    description.append(description.length() == 0 ? "" : "\n").append(line);
+                }
+            }
+            descriptions.add(description.toString());
+        }
+        return descriptions.build();
+    }
+}
@@ -0,0 +1,202 @@
+package com.google.step.youtube;
+
+import com.google.api.services.youtube.model.PlaylistItem;
+import com.google.api.services.youtube.model.Video;
+import com.google.common.base.Throwables;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Non-blocking view of a YouTubeInfoScraper, so independent calls can overlap. Each method
+ * runs the scraper's method of the same name on the executor and returns a future of what it
+ * returns, recording into the request stages of the calling thread. A future fails with the
+ * exception the scraper throws, such as the IOException of a failed API call, which await()
+ * rethrows as the scraper would.
+ *
+ * Cancelling a future before its call starts skips the call. The scrapePromoCodesFrom*
+ * methods compose two steps, and cancelling their future cancels the step it waits on, so the
+ * second step isn't started.
+ */
+public final class AsyncYouTubeInfoScraper {
+
+    private final YouTubeInfoScraper scraper;
+    private final Executor executor;
+
+    /** Runs the calls of scraper on the executor it fetches pages on. */
+    public AsyncYouTubeInfoScraper(YouTubeInfoScraper scraper) {
+        this(scraper, YouTubeInfoScraper.FetchExecutor.INSTANCE);
+    }
+
+    /**
+     * @param scraper to make the calls with.
+     * @param executor to run the calls on. Each call holds a thread of it while the API
+     *        answers.
+     */
+    public AsyncYouTubeInfoScraper(YouTubeInfoScraper scraper, Executor executor) {
+        this.scraper = scraper;
+        this.executor = executor;
+    }
+
+    /** @see YouTubeInfoScraper#scrapeChannelUploadPlaylist(String) */
+    public CompletableFuture<Optional<String>> scrapeChannelUploadPlaylist(String channelId) {
+        return supply(() -> scraper.scrapeChannelUploadPlaylist(channelId));
+    }
+
+    /** @see YouTubeInfoScraper#scrapeUserUploadPlaylist(String) */
+    public CompletableFuture<Optional<String>> scrapeUserUploadPlaylist(String userName) {
+        return supply(() -> scraper.scrapeUserUploadPlaylist(userName));
+    }
+
+    /** @see YouTubeInfoScraper#scrapePlaylistItems(String) */
+    public CompletableFuture<Optional<List<PlaylistItem>>> scrapePlaylistItems(String uploadId) {
+        return supply(() -> scraper.scrapePlaylistItems(uploadId));
+    }
+
+    /** @see YouTubeInfoScraper#scrapePromoCodesFromPlaylist(String) */
+    public CompletableFuture<Optional<List<PromoCode>>> scrapePromoCodesFromPlaylist(String uploadId) {
+        return supply(() -> scraper.scrapePromoCodesFromPlaylist(uploadId));
+    }
+
+    /** @see YouTubeInfoScraper#scrapeVideoInformation(List) */
+    public CompletableFuture<Optional<List<Video>>> scrapeVideoInformation(List<String> videoIds) {
+        return supply(() -> scraper.scrapeVideoInformation(videoIds));
+    }
+
+    /** @see YouTubeInfoScraper#scrapeVideoIdsFromSearch(String) */
+    public CompletableFuture<Optional<List<String>>> scrapeVideoIdsFromSearch(String keyword) {
+        return supply(() -> scraper.scrapeVideoIdsFromSearch(keyword));
+    }
+
+    /** @see YouTubeInfoScraper#scrapePromoCodesFromVideos(String, List) */
+    public CompletableFuture<Optional<List<PromoCode>>> scrapePromoCodesFromVideos(String keyword,
+            List<String> videoIds) {
+        return supply(() -> scraper.scrapePromoCodesFromVideos(keyword, videoIds));
+    }
+
+    /**
+     * @param channelId Id of a channel.
+     * @return future of the promo codes in the channel's uploads. The optional will be empty
+     *         if no channel has the id or no items in its upload playlist are found.
+     */
+    public CompletableFuture<Optional<List<PromoCode>>> scrapePromoCodesFromChannel(String channelId) {
+        return compose(scrapeChannelUploadPlaylist(channelId), this::scrapePromoCodesFromPlaylist);
+    }
+
+    /**
+     * @param userName username of a channel.
+     * @return future of the promo codes in the channel's uploads. The optional will be empty
+     *         if no channel has the username or no items in its upload playlist are found.
+     */
+    public CompletableFuture<Optional<List<PromoCode>>> scrapePromoCodesFromUser(String userName) {
+        return compose(scrapeUserUploadPlaylist(userName), this::scrapePromoCodesFromPlaylist);
+    }
+
+    /**
+     * @param keyword Company to search for and parse promo codes with.
+     * @return future of the promo codes for the company in the videos searched for with it.
+     *         The optional will be empty if the search or the videos have no items.
+     */
+    public CompletableFuture<Optional<List<PromoCode>>> scrapePromoCodesFromSearch(String keyword) {
+        return compose(scrapeVideoIdsFromSearch(keyword), videoIds -> scrapePromoCodesFromVideos(keyword, videoIds));
+    }
+
+    /**
+     * Waits for a future of this scraper and returns its value, throwing what the scraper's
+     * blocking method would have thrown.
+     *
+     * @throws InterruptedIOException if interrupted while waiting; the future is left running.
+     * @throws CancellationException if the future was cancelled.
+     */
+    public static <T> T await(CompletableFuture<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            InterruptedIOException interrupted = new InterruptedIOException("Interrupted waiting for YouTube");
+            interrupted.initCause(e);
+            throw interrupted;
+        } catch (ExecutionException e) {
+            Throwables.propagateIfPossible(e.getCause(), IOException.class);
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /* Runs call on the executor unless the future is done, by cancelling it, before it starts. */
+    private <T> CompletableFuture<T> supply(ScraperCall<T> call) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        Supplier<Void> task = RequestStages.inherit(() -> {
+            if (!future.isDone()) {
+                try {
+                    future.complete(call.scrape());
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                }
+            }
+            return null;
+        });
+        try {
+            executor.execute(task::get);
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /*
+     * Applies then to the value of first, if present, and returns a future of its result. The
+     * future fails as either step does, and cancelling it cancels the step it waits on.
+     */
+    private static <T, U> CompletableFuture<Optional<U>> compose(CompletableFuture<Optional<T>> first,
+            Function<T, CompletableFuture<Optional<U>>> then) {
+        CompletableFuture<Optional<U>> result = new CompletableFuture<>();
+        AtomicReference<CompletableFuture<?>> waitingOn = new AtomicReference<>(first);
+        result.whenComplete((value, e) -> {
+            if (result.isCancelled()) {
+                waitingOn.get().cancel(/* mayInterruptIfRunning= */ false);
+            }
+        });
+        first.whenComplete((value, e) -> {
+            if (e != null) {
+                result.completeExceptionally(unwrap(e));
+                return;
+            }
+            if (!value.isPresent()) {
+                result.complete(Optional.empty());
+                return;
+            }
+            CompletableFuture<Optional<U>> second = then.apply(value.get());
+            waitingOn.set(second);
+            if (result.isCancelled()) {
+                second.cancel(/* mayInterruptIfRunning= */ false);
+            }
+            second.whenComplete((secondValue, secondError) -> {
+                if (secondError != null) {
+                    result.completeExceptionally(unwrap(secondError));
+                } else {
+                    result.complete(secondValue);
+                }
+            });
+        });
+        return result;
+    }
+
+    private static Throwable unwrap(Throwable e) {
+        return e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+    }
+
+    // a blocking method of the scraper which supply() runs on the executor
+    private interface ScraperCall<T> {
+        T scrape() throws IOException;
+    }
+}
@@ -0,0 +1,38 @@
+package com.google.step.youtube;
+
+/**
+ * Text which counts every character read from it against a MatchBudget.Meter. Regex matchers
+ * read their input through charAt, so matching a BudgetedCharSequence stops with a
+ * MatchBudgetExceededException once the budget runs out, however much the pattern backtracks.
+ */
+final class BudgetedCharSequence implements CharSequence {
+
+    private final String text;
+    private final MatchBudget.Meter meter;
+
+    BudgetedCharSequence(String text, MatchBudget.Meter meter) {
+        this.text = text;
+        this.meter = meter;
+    }
+
+    @Override
+    public char charAt(int index) {
+        meter.step();
+        return text.charAt(index);
+    }
+
+    @Override
+    public int length() {
+        return text.length();
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return new BudgetedCharSequence(text.substring(start, end), meter);
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+}
@@ -0,0 +1,139 @@
+package com.google.step.youtube;
+
+import com.google.common.collect.Iterables;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+
+/**
+ * Case insensitive matcher for many company names at once. The names are compiled into an
+ * Aho-Corasick automaton, so finding every name mentioned in a text takes a single scan of the
+ * text, however many names there are. Instances are immutable and safe to share between threads.
+ */
+public final class CompanyMatcher {
+
+    // company names as given to compile, duplicates included
+    private final List<String> sourceCompanies;
+    private final List<String> companies;
+    private final Node root;
+    // true if one of the companies is the empty string, which is found in every text
+    private final boolean hasEmptyCompany;
+
+    private CompanyMatcher(List<String> sourceCompanies, List<String> companies) {
+        this.sourceCompanies = sourceCompanies;
+        this.companies = Collections.unmodifiableList(companies);
+        this.root = new Node();
+        boolean emptyCompany = false;
+        for (int i = 0; i < companies.size(); i++) {
+            String company = companies.get(i);
+            if (company.isEmpty()) {
+                emptyCompany = true;
+                continue;
+            }
+            Node node = root;
+            for (int j = 0; j < company.length(); j++) {
+                node = node.children.computeIfAbsent(fold(company.charAt(j)), c -> new Node());
+            }
+            node.companies.add(i);
+        }
+        this.hasEmptyCompany = emptyCompany;
+        linkFailures();
+    }
+
+    /**
+     * Compiles the given company names into a matcher. Duplicate names are ignored.
+     *
+     * @param companies names of the companies to find.
+     * @return A matcher for all of the companies.
+     */
+    public static CompanyMatcher compile(Collection<String> companies) {
+        List<String> sourceCompanies = new ArrayList<>(companies);
+        return new CompanyMatcher(sourceCompanies, new ArrayList<>(new LinkedHashSet<>(sourceCompanies)));
+    }
+
+    /**
+     * @return true if this matcher was compiled from the same company names, in the same order.
+     */
+    boolean isCompiledFrom(Collection<String> companies) {
+        return Iterables.elementsEqual(sourceCompanies, companies);
+    }
+
+    /**
+     * @return The distinct company names of this matcher, in the order they were given.
+     */
+    public List<String> getCompanies() {
+        return companies;
+    }
+
+    /**
+     * Finds the companies mentioned (case insensitive) in text between start (inclusive) and
+     * end (exclusive).
+     *
+     * @return The indexes into getCompanies() of all companies found, in order of first mention.
+     */
+    Set<Integer> findCompanies(String text, int start, int end) {
+        Set<Integer> found = new LinkedHashSet<>();
+        Node node = root;
+        for (int i = start; i < end; i++) {
+            char c = fold(text.charAt(i));
+            while (node != root && !node.children.containsKey(c)) {
+                node = node.failure;
+            }
+            node = node.children.getOrDefault(c, root);
+            for (Node match = node; match != null; match = match.output) {
+                found.addAll(match.companies);
+            }
+        }
+        if (hasEmptyCompany) {
+            found.add(companies.indexOf(""));
+        }
+        return found;
+    }
+
+    /*
+     * Sets the failure link of every node to the node of its longest proper suffix in the trie,
+     * and the output link to the nearest node along the failure links that ends a company name.
+     * Nodes are visited breadth first, so the links of shorter suffixes are always set already.
+     */
+    private void linkFailures() {
+        Queue<Node> queue = new ArrayDeque<>();
+        for (Node child : root.children.values()) {
+            child.failure = root;
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            Node node = queue.remove();
+            node.output = node.failure.companies.isEmpty() ? node.failure.output : node.failure;
+            for (Map.Entry<Character, Node> entry : node.children.entrySet()) {
+                Node failure = node.failure;
+                while (failure != root && !failure.children.containsKey(entry.getKey())) {
+                    failure = failure.failure;
+                }
+                Node child = entry.getValue();
+                Node suffix = failure.children.get(entry.getKey());
+                child.failure = suffix == null ? root : suffix;
+                queue.add(child);
+            }
+        }
+    }
+
+    private static char fold(char c) {
+        return Character.toLowerCase(c);
+    }
+
+    private static final class Node {
+        private final Map<Character, Node> children = new HashMap<>();
+        // indexes of the companies whose name ends at this node
+        private final List<Integer> companies = new ArrayList<>(1);
+        private Node failure;
+        // nearest proper suffix node ending a company name, or null
+        private Node output;
+    }
+}
@@ -0,0 +1,159 @@
+package com.google.step.youtube;
+
+import java.util.Arrays;
+
+/**
+ * Offsets of the lines and words of a single description, found with one scan of it, so that
+ * line walking, company filtering and snippet bounding look them up by binary search instead of
+ * scanning the description again for every line or match. An index is built for one parse and
+ * only used by the thread doing it.
+ */
+final class DescriptionIndex {
+
+    private static final int[] NO_OFFSETS = new int[0];
+
+    private final String description;
+    // offsets of every DescriptionParser.DELIMITER in description, in ascending order
+    private final int[] delimiters;
+    private final int delimiterCount;
+    // offsets of every space in description, in ascending order; found on first use
+    private int[] spaces;
+    private int spaceCount;
+
+    private DescriptionIndex(String description) {
+        this.description = description;
+        int[] offsets = NO_OFFSETS;
+        int count = 0;
+        for (int i = description.indexOf(DescriptionParser.DELIMITER); i >= 0;
+                i = description.indexOf(DescriptionParser.DELIMITER, i + 1)) {
+            offsets = append(offsets, count++, i);
+        }
+        this.delimiters = offsets;
+        this.delimiterCount = count;
+    }
+
+    /** Indexes the lines of description; words are indexed when first used. */
+    static DescriptionIndex of(String description) {
+        return new DescriptionIndex(description);
+    }
+
+    String getDescription() {
+        return description;
+    }
+
+    /** @return The same as description.indexOf(DELIMITER, fromIndex). */
+    int indexOfDelimiter(int fromIndex) {
+        return ceiling(delimiters, delimiterCount, fromIndex);
+    }
+
+    /** @return The same as description.lastIndexOf(DELIMITER, fromIndex). */
+    int lastIndexOfDelimiter(int fromIndex) {
+        return floor(delimiters, delimiterCount, fromIndex);
+    }
+
+    /**
+     * @return The index of the DELIMITER ending the line which contains index, or the length of
+     *         description if it is the last line.
+     */
+    int getLineEnd(int index) {
+        int lineEnd = indexOfDelimiter(index);
+        return lineEnd < 0 ? description.length() : lineEnd;
+    }
+
+    /** @return The same as description.indexOf(' ', fromIndex). */
+    int indexOfSpace(int fromIndex) {
+        indexSpaces();
+        return ceiling(spaces, spaceCount, fromIndex);
+    }
+
+    /** @return The same as description.lastIndexOf(' ', fromIndex). */
+    int lastIndexOfSpace(int fromIndex) {
+        indexSpaces();
+        return floor(spaces, spaceCount, fromIndex);
+    }
+
+    /**
+     * Finds a target in description ignoring case, as String.regionMatches(true, ...) would,
+     * folding the chars of description in place as they are compared.
+     *
+     * @param foldedTarget The target, case-folded by foldCase(), so it can be folded once for
+     *        many searches.
+     * @return The index of the first occurrence of the target at or after fromIndex, or -1.
+     */
+    int indexOfIgnoreCase(String foldedTarget, int fromIndex) {
+        int last = description.length() - foldedTarget.length();
+        search:
+        for (int i = Math.max(0, fromIndex); i <= last; i++) {
+            for (int j = 0; j < foldedTarget.length(); j++) {
+                if (fold(description.charAt(i + j)) != foldedTarget.charAt(j)) {
+                    continue search;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Folds every char of text so that two chars fold to the same char exactly when
+     * String.regionMatches(true, ...) considers them equal. Folding char by char keeps offsets
+     * into the folded text the same as into text.
+     *
+     * @return The folded text; text itself if folding doesn't change it.
+     */
+    static String foldCase(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (fold(text.charAt(i)) != text.charAt(i)) {
+                char[] chars = text.toCharArray();
+                for (int j = i; j < chars.length; j++) {
+                    chars[j] = fold(chars[j]);
+                }
+                return new String(chars);
+            }
+        }
+        return text;
+    }
+
+    private void indexSpaces() {
+        if (spaces != null) {
+            return;
+        }
+        int[] offsets = NO_OFFSETS;
+        int count = 0;
+        for (int i = description.indexOf(' '); i >= 0; i = description.indexOf(' ', i + 1)) {
+            offsets = append(offsets, count++, i);
+        }
+        spaces = offsets;
+        spaceCount = count;
+    }
+
+    private static char fold(char c) {
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+
+    private static int[] append(int[] offsets, int count, int offset) {
+        if (count == offsets.length) {
+            offsets = Arrays.copyOf(offsets, Math.max(8, count * 2));
+        }
+        offsets[count] = offset;
+        return offsets;
+    }
+
+    /* Returns the smallest of the first count offsets which is at least index, or -1. */
+    private static int ceiling(int[] offsets, int count, int index) {
+        int position = Arrays.binarySearch(offsets, 0, count, index);
+        if (position < 0) {
+            position = -position - 1;
+        }
+        return position < count ? offsets[position] : -1;
+    }
+
+    /* Returns the largest of the first count offsets which is at most index, or -1. */
+    private static int floor(int[] offsets, int count, int index) {
+        int position = Arrays.binarySearch(offsets, 0, count, index);
+        if (position < 0) {
+            position = -position - 2;
+        }
+        return position >= 0 ? offsets[position] : -1;
+    }
+}
@@ -0,0 +1,38 @@
+package com.google.step.youtube;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event for DescriptionParser parsing one description. Results taken from the cache have
+ * no event. Only created if JfrSupport.isAvailable().
+ */
+@Name("com.google.step.youtube.DescriptionParse")
+@Label("Description Parse")
+@Category({"PromoTube", "Parse"})
+@Description("DescriptionParser parsing a single description")
+@Enabled(false)
+@StackTrace(false)
+final class DescriptionParseEvent extends jdk.jfr.Event {
+
+    @Label("Method")
+    @Description("DescriptionParser method called")
+    String method;
+
+    @Label("Input Length")
+    @Description("Number of characters of the description")
+    int inputLength;
+
+    @Label("Offers")
+    @Description("Number of offers found")
+    int offers;
+
+    DescriptionParseEvent(String method, int inputLength) {
+        this.method = method;
+        this.inputLength = inputLength;
+    }
+}
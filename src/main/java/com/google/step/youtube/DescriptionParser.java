@@ -1,49 +1,116 @@
 package com.google.step.youtube;
 
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Throwables;
+import com.google.common.cache.CacheStats;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.regex.Pattern;
 import java.util.regex.Matcher;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.logging.Logger;
 
 /**
  * Class for parsing the descriptions of YouTube videos for promotional codes
  * and affiliate links.
  */
 public class DescriptionParser {
+
+    private static final Logger logger = Logger.getLogger(DescriptionParser.class.getName());
+
+    /**
+     * Budget of the regular expressions on each description unless setMatchBudget is called:
+     * many times what the longest real descriptions take, but short enough that a hostile
+     * description can't hold up a request.
+     */
+    public static final MatchBudget DEFAULT_MATCH_BUDGET = MatchBudget.of(5_000_000, 250, TimeUnit.MILLISECONDS);
     
-    private static final char DELIMITER = '\n';
-    private static final String ELLIPSIS = "...";
+    static final char DELIMITER = '\n';
+    // characters before a line that the lookbehinds of Patterns may see across a DELIMITER,
+    // a few more than the longest ("\b(?i)code(?s).{1,2}")
+    static final int LOOKBEHIND_CONTEXT_LENGTH = 16;
     private static final int MAX_SNIPPET_LENGTH = 200;
     
     /**
-     * Patterns used in regular expressions for parsing promocodes and affiliate links
+     * Built-in patterns used in regular expressions for parsing promocodes and affiliate links,
+     * which ExtractionRules refer to by name. Each comes with a lowercase literal which every
+     * one of its matches needs in the description, ignoring case.
      */
     @VisibleForTesting
     enum Patterns {
 
-        CODE_NO_QUOTES(Pattern.compile("(?<=\\b(?i)code(?s).{1,2})([A-Z0-9][A-Za-z0-9\\-]+)")),
-        CODE_WITH_QUOTES(Pattern.compile("(?<=\\b(?i)code(?s).{1,2}(\"|'))(.+?)(?=(\"|'))")),
-        TO_AT_LINKS(Pattern.compile("(?<=\\b(?i)(to|at)(?s).{1,2})(https*:\\/\\/)[^\\s,\\)]+")),
+        CODE_NO_QUOTES(Pattern.compile("(?<=\\b(?i)code(?s).{1,2})([A-Z0-9][A-Za-z0-9\\-]+)"), "code", 2),
+        CODE_WITH_QUOTES(Pattern.compile("(?<=\\b(?i)code(?s).{1,2}(\"|'))(.+?)(?=(\"|'))"), "code", 3),
+        TO_AT_LINKS(Pattern.compile("(?<=\\b(?i)(to|at)(?s).{1,2})(https*:\\/\\/)[^\\s,\\)]+"), "http", 2),
         SYMBOL_NEAR_LINK(Pattern.compile(
                 // check for link with $[0-9] or [0-9]% symbol <=100 chars before it
                 "((?<=(([0-9]%)|(\\$[0-9])).{1,100})(https*:\\/\\/)[^\\s,\\)]+)|"
                 // check for link with $[0-9] or [0-9]% symbol <=100 chars after it
-                + "(((https*:\\/\\/)[^\\s,\\)]+)(?=.{1,100}(([0-9]%)|(\\$[0-9]))))"));
+                + "(((https*:\\/\\/)[^\\s,\\)]+)(?=.{1,100}(([0-9]%)|(\\$[0-9]))))"), "http", 0);
 
         private final Pattern regex;
+        private final String requiredLiteral;
+        // the most characters the lookbehind matches after its keyword; when the keyword is on
+        // the line before, one of them is the line break, so only matches at this many indexes
+        // at the start of a line can see it
+        private final int lookbehindReach;
 
-        Patterns(Pattern regex) {
+        Patterns(Pattern regex, String requiredLiteral, int lookbehindReach) {
             this.regex = regex;
+            this.requiredLiteral = requiredLiteral;
+            this.lookbehindReach = lookbehindReach;
         }
 
         public Pattern getPattern() {
             return this.regex;
         }
+
+        String getRequiredLiteral() {
+            return this.requiredLiteral;
+        }
+
+        int getLookbehindReach() {
+            return this.lookbehindReach;
+        }
     }
 
+    // rules matched by every parse started from now on
+    private static volatile ExtractionRules rules = loadRules();
+
+    // matcher for the companies most recently given to parseByCompanies
+    private static volatile CompanyMatcher lastCompanyMatcher;
+
+    // results of parse and parseByCompany, so repeated descriptions skip all matching
+    private static final ParseResultCache CACHE = new ParseResultCache(ParseResultCache.MAX_CACHED_CHARS);
+    // matches of single lines, so lines repeated across descriptions are only matched once
+    private static final LineMatchMemo LINE_MEMO = new LineMatchMemo(LineMatchMemo.MAX_LINES);
+
+    private static volatile MatchBudget matchBudget = DEFAULT_MATCH_BUDGET;
+    private static final AtomicLong matchBudgetExceededCount = new AtomicLong();
+
+    private static final MatchProfiler PROFILER = new MatchProfiler();
+
+    // descriptions given to the prefilter, and those of them it found no candidates in
+    private static final LongAdder prefilterCheckedCount = new LongAdder();
+    private static final LongAdder prefilterRejectedCount = new LongAdder();
+
     /**
      * Parses the given string for promotional codes and affiliate links in proximity to 
      * the given company name.
@@ -55,16 +122,121 @@ public class DescriptionParser {
      *         duplicates allowed.
      */
     public static List<OfferSnippet> parseByCompany(String company, String description) {
+        ExtractionRules currentRules = rules;
+        if (prefilterRejects(currentRules, description)) {
+            return new ArrayList<>();
+        }
+        MatchBudget.Meter meter = matchBudget.start();
+        List<OfferSnippet> offers = CACHE.get(currentRules.getVersion(), company, description,
+                () -> parseByCompanyUncached(company, description, currentRules, meter));
+        if (meter.isExceeded()) {
+            // a later parse may have more time, so partial results aren't kept
+            CACHE.invalidate(currentRules.getVersion(), company, description);
+        }
+        return offers;
+    }
+
+    @VisibleForTesting
+    static List<OfferSnippet> parseByCompanyUncached(String company, String description) {
+        return parseByCompanyUncached(company, description, rules, matchBudget.start());
+    }
+
+    private static List<OfferSnippet> parseByCompanyUncached(String company, String description,
+            ExtractionRules rules, MatchBudget.Meter meter) {
+        long startNanos = PROFILER.isEnabled() ? System.nanoTime() : 0;
+        ParseEvents events = beginEvents("parseByCompany", description, rules);
         List<OfferSnippet> offers = new ArrayList<>();
+        DescriptionIndex index = DescriptionIndex.of(description);
+        String foldedCompany = DescriptionIndex.foldCase(company);
 
-        for (String snippet : description.split(String.valueOf(DELIMITER))) {
-            if (snippet.toLowerCase().indexOf(company.toLowerCase()) != -1) {
-                offers.addAll(parse(snippet));
+        // lines are handled as index ranges of description, so no line is copied or lowercased,
+        // and only lines containing company are visited
+        int lineStart = 0;
+        while (lineStart <= description.length()) {
+            int found = index.indexOfIgnoreCase(foldedCompany, lineStart);
+            if (found < 0) {
+                break;
+            }
+            int lineEnd = index.getLineEnd(found);
+            // an occurrence running over the end of its line is not in any line
+            if (found + company.length() <= lineEnd) {
+                offers.addAll(parse(index, index.lastIndexOfDelimiter(found - 1) + 1, lineEnd, rules, meter, events));
             }
+            lineStart = lineEnd + 1;
         }
+        reportIfExceeded(meter, description);
+        profileInput(startNanos, description);
+        commitEvents(events, offers.size());
         return offers;
     }
 
+    /**
+     * Parses the given string for promotional codes and affiliate links in proximity to each of
+     * the given company names, scanning the description once for all of them. The matcher for
+     * the companies is compiled once and reused for as long as the same companies are given.
+     *
+     * @param companies The names of the companies to find promocodes for.
+     * @param description of the YouTube video to be parsed.
+     * @return A map from company name to the promotional codes and affiliate links found in
+     *         the same lines as the company name, as parseByCompany would return them. Only
+     *         companies with at least one offer are included, in order of first mention.
+     */
+    public static Map<String, List<OfferSnippet>> parseByCompanies(Collection<String> companies, String description) {
+        CompanyMatcher matcher = lastCompanyMatcher;
+        if (matcher == null || !matcher.isCompiledFrom(companies)) {
+            matcher = CompanyMatcher.compile(companies);
+            lastCompanyMatcher = matcher;
+        }
+        return parseByCompanies(matcher, description);
+    }
+
+    /**
+     * Parses the given string for promotional codes and affiliate links in proximity to each of
+     * the companies of the given matcher, scanning the description once for all of them.
+     *
+     * @param companies A matcher compiled from the names of the companies to find promocodes for.
+     * @param description of the YouTube video to be parsed.
+     * @return A map from company name to the promotional codes and affiliate links found in
+     *         the same lines as the company name, as parseByCompany would return them. Only
+     *         companies with at least one offer are included, in order of first mention.
+     */
+    public static Map<String, List<OfferSnippet>> parseByCompanies(CompanyMatcher companies, String description) {
+        ExtractionRules currentRules = rules;
+        Map<String, List<OfferSnippet>> offersByCompany = new LinkedHashMap<>();
+        if (prefilterRejects(currentRules, description)) {
+            return offersByCompany;
+        }
+        MatchBudget.Meter meter = matchBudget.start();
+        long startNanos = PROFILER.isEnabled() ? System.nanoTime() : 0;
+        ParseEvents events = beginEvents("parseByCompanies", description, currentRules);
+        DescriptionIndex index = DescriptionIndex.of(description);
+        int lineStart = 0;
+        while (lineStart <= description.length()) {
+            int lineEnd = index.getLineEnd(lineStart);
+            Set<Integer> found = companies.findCompanies(description, lineStart, lineEnd);
+            if (!found.isEmpty()) {
+                List<OfferSnippet> offers = parse(index, lineStart, lineEnd, currentRules, meter, events);
+                for (int company : found) {
+                    if (!offers.isEmpty()) {
+                        offersByCompany.computeIfAbsent(companies.getCompanies().get(company), c -> new ArrayList<>())
+                                .addAll(offers);
+                    }
+                }
+            }
+            lineStart = lineEnd + 1;
+        }
+        reportIfExceeded(meter, description);
+        profileInput(startNanos, description);
+        if (events != null) {
+            int offers = 0;
+            for (List<OfferSnippet> companyOffers : offersByCompany.values()) {
+                offers += companyOffers.size();
+            }
+            commitEvents(events, offers);
+        }
+        return offersByCompany;
+    }
+
     /**
      * Parses the given string for promotional codes and affiliate links.
      *
@@ -73,15 +245,486 @@ public class DescriptionParser {
      *         description, duplicates allowed.
      */
     public static List<OfferSnippet> parse(String description) {
+        ExtractionRules currentRules = rules;
+        if (prefilterRejects(currentRules, description)) {
+            return new ArrayList<>();
+        }
+        MatchBudget.Meter meter = matchBudget.start();
+        List<OfferSnippet> offers = CACHE.get(currentRules.getVersion(), description,
+                () -> parseLines(description, currentRules, meter));
+        if (meter.isExceeded()) {
+            // a later parse may have more time, so partial results aren't kept
+            CACHE.invalidate(currentRules.getVersion(), description);
+        }
+        return offers;
+    }
+
+    /**
+     * Parses each of the given strings for promotional codes and affiliate links, spreading
+     * the descriptions over the common ForkJoinPool.
+     *
+     * @param descriptions of the YouTube videos to be parsed.
+     * @return A list with the offers parse() finds in each description, in the same order as
+     *         descriptions.
+     */
+    public static List<List<OfferSnippet>> parseAll(List<String> descriptions) {
+        return parseAll(descriptions, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Parses each of the given strings for promotional codes and affiliate links, spreading
+     * the descriptions over the given executor.
+     *
+     * @param descriptions of the YouTube videos to be parsed.
+     * @param executor to parse the descriptions on, such as a ForkJoinPool.
+     * @return A list with the offers parse() finds in each description, in the same order as
+     *         descriptions.
+     */
+    public static List<List<OfferSnippet>> parseAll(List<String> descriptions, Executor executor) {
+        return parseEach(descriptions, /* inputIds= */ null, DescriptionParser::parse, executor);
+    }
+
+    /**
+     * Parses each of the given strings for promotional codes and affiliate links, spreading
+     * the descriptions over the given executor.
+     *
+     * @param descriptions of the YouTube videos to be parsed.
+     * @param inputIds The id of each description, such as its video id, which the profiler
+     *        reports slow descriptions by.
+     * @param executor to parse the descriptions on, such as a ForkJoinPool.
+     * @return A list with the offers parse() finds in each description, in the same order as
+     *         descriptions.
+     */
+    public static List<List<OfferSnippet>> parseAll(List<String> descriptions, List<String> inputIds,
+            Executor executor) {
+        return parseEach(descriptions, checkSameSize(inputIds, descriptions), DescriptionParser::parse, executor);
+    }
+
+    /**
+     * Parses each of the given strings for promotional codes and affiliate links in proximity
+     * to the given company name, spreading the descriptions over the common ForkJoinPool.
+     *
+     * @param company The name of the company to find promocodes for.
+     * @param descriptions of the YouTube videos to be parsed.
+     * @return A list with the offers parseByCompany() finds in each description, in the same
+     *         order as descriptions.
+     */
+    public static List<List<OfferSnippet>> parseAllByCompany(String company, List<String> descriptions) {
+        return parseAllByCompany(company, descriptions, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Parses each of the given strings for promotional codes and affiliate links in proximity
+     * to the given company name, spreading the descriptions over the given executor.
+     *
+     * @param company The name of the company to find promocodes for.
+     * @param descriptions of the YouTube videos to be parsed.
+     * @param executor to parse the descriptions on, such as a ForkJoinPool.
+     * @return A list with the offers parseByCompany() finds in each description, in the same
+     *         order as descriptions.
+     */
+    public static List<List<OfferSnippet>> parseAllByCompany(String company, List<String> descriptions,
+            Executor executor) {
+        return parseEach(descriptions, /* inputIds= */ null, description -> parseByCompany(company, description),
+                executor);
+    }
+
+    /**
+     * Parses each of the given strings for promotional codes and affiliate links in proximity
+     * to the given company name, spreading the descriptions over the given executor.
+     *
+     * @param company The name of the company to find promocodes for.
+     * @param descriptions of the YouTube videos to be parsed.
+     * @param inputIds The id of each description, such as its video id, which the profiler
+     *        reports slow descriptions by.
+     * @param executor to parse the descriptions on, such as a ForkJoinPool.
+     * @return A list with the offers parseByCompany() finds in each description, in the same
+     *         order as descriptions.
+     */
+    public static List<List<OfferSnippet>> parseAllByCompany(String company, List<String> descriptions,
+            List<String> inputIds, Executor executor) {
+        return parseEach(descriptions, checkSameSize(inputIds, descriptions),
+                description -> parseByCompany(company, description), executor);
+    }
+
+    /**
+     * @return The hit, miss and eviction counts of the cache of parse and parseByCompany results.
+     */
+    public static CacheStats getCacheStats() {
+        return CACHE.stats();
+    }
+
+    /**
+     * @return The hit, miss and eviction counts of the memo of the matches of single lines.
+     */
+    public static CacheStats getLineMemoStats() {
+        return LINE_MEMO.stats();
+    }
+
+    /**
+     * Sets the budget of the regular expressions on each description parsed from now on. Once a
+     * description runs over it, parsing stops matching it with regular expressions and returns
+     * the offers found so far, which aren't cached.
+     *
+     * @param budget The budget per description, or MatchBudget.UNLIMITED for none.
+     */
+    public static void setMatchBudget(MatchBudget budget) {
+        matchBudget = checkNotNull(budget);
+    }
+
+    public static MatchBudget getMatchBudget() {
+        return matchBudget;
+    }
+
+    /**
+     * @return The number of descriptions which ran over the match budget, and of which only
+     *         partial offers were returned.
+     */
+    public static long getMatchBudgetExceededCount() {
+        return matchBudgetExceededCount.get();
+    }
+
+    /**
+     * @return The profiler of the extraction rules, which is disabled until enabled on it.
+     */
+    public static MatchProfiler getProfiler() {
+        return PROFILER;
+    }
+
+    /**
+     * @return The share of the descriptions given to parse, parseByCompany and parseByCompanies
+     *         which the prefilter found no literal of the extraction rules in, so no regular
+     *         expression was run on them; 0 if none were given yet.
+     */
+    public static double getPrefilterRejectRatio() {
+        long checked = prefilterCheckedCount.sum();
+        return checked == 0 ? 0 : (double) prefilterRejectedCount.sum() / checked;
+    }
+
+    /**
+     * Replaces the extraction rules of every parse started from now on. Parses already running
+     * finish with the rules they started with, and results of the old rules are no longer
+     * returned from the caches.
+     *
+     * @param newRules The compiled rules to parse with.
+     */
+    public static void setRules(ExtractionRules newRules) {
+        rules = checkNotNull(newRules);
+        // entries of the old rules can't be hit anymore, so free their memory
+        CACHE.invalidateAll();
+        LINE_MEMO.invalidateAll();
+    }
+
+    /**
+     * Loads the extraction rules again from their file, as ExtractionRules.load() does, and
+     * parses with them from now on. The rules in use are kept if loading fails.
+     *
+     * @return The rules loaded.
+     * @throws IOException if the rules file can't be read.
+     * @throws IllegalArgumentException if the rules are invalid.
+     */
+    public static ExtractionRules reloadRules() throws IOException {
+        ExtractionRules loaded = ExtractionRules.load();
+        setRules(loaded);
+        logger.info("Loaded " + loaded);
+        return loaded;
+    }
+
+    public static ExtractionRules getRules() {
+        return rules;
+    }
+
+    /**
+     * @return The number of matches each extraction rule found since it was loaded, by rule
+     *         name. Results taken from the cache of whole descriptions aren't counted again.
+     */
+    public static Map<String, Long> getRuleMatchCounts() {
+        return rules.getMatchCounts();
+    }
+
+    /**
+     * Parses each of the given descriptions rounds times without the result cache or the line
+     * memo, so the rules and the code matching them are loaded and compiled by the JIT before
+     * the first real description is parsed. Leaves the caches as they were.
+     *
+     * @param descriptions to parse, ideally like real ones.
+     * @param rounds Number of times to parse each description.
+     * @return The number of offers found in the last round.
+     */
+    public static int warmUp(List<String> descriptions, int rounds) {
+        int offers = 0;
+        for (int round = 0; round < rounds; round++) {
+            offers = 0;
+            for (String description : descriptions) {
+                offers += parseFrom(description, 0).size();
+            }
+        }
+        return offers;
+    }
+
+    @VisibleForTesting
+    static void clearCache() {
+        CACHE.invalidateAll();
+        LINE_MEMO.invalidateAll();
+    }
+
+    /**
+     * Parses the given string for promotional codes and affiliate links from a stream, a line
+     * at a time, passing every offer found to onOffer as soon as its line has been read. Input
+     * is read in bounded chunks and only the current line is kept in memory, so any amount of
+     * input can be parsed. Offers and snippets are those parse() gives for each line. Lines
+     * longer than DescriptionStreamParser.MAX_LINE_LENGTH are parsed in pieces split at a
+     * space, each with DescriptionStreamParser.SPLIT_CONTEXT_LENGTH characters of the line on
+     * both sides as context; an offer which reaches further than that past a split, such as a
+     * link that long, is cut short or lost.
+     *
+     * @param input to be parsed, such as a Reader or a CharBuffer.
+     * @param onOffer callback for each promotional code and affiliate link found, duplicates
+     *        allowed between lines.
+     */
+    public static void parse(Readable input, Consumer<OfferSnippet> onOffer) throws IOException {
+        new DescriptionStreamParser().parse(input, onOffer);
+    }
+
+    /*
+     * Applies parser to each of descriptions on executor and waits for all of the results. A
+     * single description is parsed on the calling thread. Exceptions thrown by parser are
+     * rethrown unwrapped. While profiling, each description is parsed with its id from
+     * inputIds, if given.
+     */
+    private static List<List<OfferSnippet>> parseEach(List<String> descriptions, List<String> inputIds,
+            Function<String, List<OfferSnippet>> parser, Executor executor) {
+        if (descriptions.size() <= 1) {
+            List<List<OfferSnippet>> offers = new ArrayList<>();
+            for (int i = 0; i < descriptions.size(); i++) {
+                offers.add(parseWithId(descriptions.get(i), inputIds == null ? null : inputIds.get(i), parser));
+            }
+            return offers;
+        }
+        List<CompletableFuture<List<OfferSnippet>>> futures = new ArrayList<>(descriptions.size());
+        for (int i = 0; i < descriptions.size(); i++) {
+            String description = descriptions.get(i);
+            String inputId = inputIds == null ? null : inputIds.get(i);
+            futures.add(CompletableFuture.supplyAsync(() -> parseWithId(description, inputId, parser), executor));
+        }
+        List<List<OfferSnippet>> offers = new ArrayList<>(futures.size());
+        try {
+            for (CompletableFuture<List<OfferSnippet>> future : futures) {
+                offers.add(future.join());
+            }
+        } catch (CompletionException e) {
+            Throwables.throwIfUnchecked(e.getCause());
+            throw e;
+        }
+        return offers;
+    }
+
+    private static List<OfferSnippet> parseWithId(String description, String inputId,
+            Function<String, List<OfferSnippet>> parser) {
+        if (inputId == null || !PROFILER.isEnabled()) {
+            return parser.apply(description);
+        }
+        return PROFILER.withInputId(inputId, () -> parser.apply(description));
+    }
+
+    private static List<String> checkSameSize(List<String> inputIds, List<String> descriptions) {
+        checkArgument(inputIds.size() == descriptions.size(), "%s input ids for %s descriptions", inputIds.size(),
+                descriptions.size());
+        return inputIds;
+    }
+
+    /*
+     * Parses all of text, keeping only the offers which start at or after index from. The text
+     * before from only serves as context for lookbehinds and snippets.
+     */
+    static List<OfferSnippet> parseFrom(String text, int from) {
+        return parseFrom(text, from, text.length());
+    }
+
+    /*
+     * Parses all of text, keeping only the offers which start at or after index from and before
+     * index to. The text outside of them only serves as context for lookarounds and snippets.
+     */
+    static List<OfferSnippet> parseFrom(String text, int from, int to) {
+        ExtractionRules currentRules = rules;
+        MatchBudget.Meter meter = matchBudget.start();
+        long startNanos = PROFILER.isEnabled() ? System.nanoTime() : 0;
+        ParseEvents events = beginEvents("parseFrom", text, currentRules);
+        List<List<MatchSpan>> spans = currentRules.findAllSpans(text, 0, text.length(), from, meter);
+        if (to < text.length()) {
+            for (List<MatchSpan> ruleSpans : spans) {
+                ruleSpans.removeIf(span -> span.getStart() >= to);
+            }
+        }
+        if (events != null) {
+            events.addMatches(spans);
+        }
+        reportIfExceeded(meter, text);
+        profileInput(startNanos, text);
+        List<OfferSnippet> offers = toOffers(spans, DescriptionIndex.of(text), 0, text.length(), currentRules);
+        commitEvents(events, offers.size());
+        return offers;
+    }
+
+    /*
+     * Parses description a line at a time, taking the matches of lines seen before from
+     * LINE_MEMO. No match spans a DELIMITER, so the matches of a line only depend on the line and
+     * the LOOKBEHIND_CONTEXT_LENGTH characters before it. The result equals parsing description
+     * as a whole; snippets are still bounded over all of description.
+     */
+    private static List<OfferSnippet> parseLines(String description, ExtractionRules rules, MatchBudget.Meter meter) {
+        long startNanos = PROFILER.isEnabled() ? System.nanoTime() : 0;
+        ParseEvents events = beginEvents("parse", description, rules);
+        List<List<MatchSpan>> spans = rules.newListPerRule();
+        DescriptionIndex index = DescriptionIndex.of(description);
+        int lineStart = 0;
+        while (lineStart < description.length()) {
+            int lineEnd = index.getLineEnd(lineStart);
+            // empty lines can't have matches
+            if (lineEnd > lineStart) {
+                List<? extends List<MatchSpan>> lineSpans = LINE_MEMO.findAllSpans(description,
+                        lineStart, lineEnd, Math.max(0, lineStart - LOOKBEHIND_CONTEXT_LENGTH), rules, meter);
+                for (int i = 0; i < spans.size(); i++) {
+                    spans.get(i).addAll(lineSpans.get(i));
+                }
+            }
+            lineStart = lineEnd + 1;
+        }
+        reportIfExceeded(meter, description);
+        profileInput(startNanos, description);
+        if (events != null) {
+            events.addMatches(spans);
+        }
+        List<OfferSnippet> offers = toOffers(spans, index, 0, description.length(), rules);
+        commitEvents(events, offers.size());
+        return offers;
+    }
+
+    /*
+     * Parses the indexed description between start (inclusive) and end (exclusive) as if it
+     * were the substring description.substring(start, end), without copying it. The range is a
+     * single line, so its matches are taken from LINE_MEMO if it was seen before. They are
+     * added to events, unless it is null.
+     */
+    private static List<OfferSnippet> parse(DescriptionIndex index, int start, int end, ExtractionRules rules,
+            MatchBudget.Meter meter, ParseEvents events) {
+        List<? extends List<MatchSpan>> spans = LINE_MEMO.findAllSpans(index.getDescription(), start, end, start,
+                rules, meter);
+        if (events != null) {
+            events.addMatches(spans);
+        }
+        return toOffers(spans, index, start, end, rules);
+    }
+
+    /*
+     * Returns true if description can't have a match of rules, as it lacks all of their required
+     * literals, counting the result for the reject ratio.
+     */
+    private static boolean prefilterRejects(ExtractionRules rules, String description) {
+        prefilterCheckedCount.increment();
+        if (rules.mayMatch(description)) {
+            return false;
+        }
+        prefilterRejectedCount.increment();
+        return true;
+    }
+
+    /*
+     * Records the time since startNanos as that of parsing description if profiling, which
+     * startNanos is only set for.
+     */
+    private static void profileInput(long startNanos, String description) {
+        if (startNanos != 0 && PROFILER.isEnabled()) {
+            PROFILER.recordInput(System.nanoTime() - startNanos, description.length());
+        }
+    }
+
+    /*
+     * Starts the events of parsing description with method and rules, or returns null if JFR
+     * is unavailable. Only descriptions actually parsed get events, not cache hits.
+     */
+    private static ParseEvents beginEvents(String method, String description, ExtractionRules rules) {
+        return JfrSupport.isAvailable() ? ParseEvents.begin(method, description, rules) : null;
+    }
+
+    private static void commitEvents(ParseEvents events, int offers) {
+        if (events != null) {
+            events.commit(offers);
+        }
+    }
+
+    /* Loads the extraction rules, falling back to the built-in ones if they can't be loaded. */
+    private static ExtractionRules loadRules() {
+        try {
+            return ExtractionRules.load();
+        } catch (IOException | IllegalArgumentException e) {
+            logger.warning("Using the built-in extraction rules, as loading them failed: " + e);
+            return ExtractionRules.defaults();
+        }
+    }
+
+    /* Counts and logs description if matching it ran over budget. */
+    private static void reportIfExceeded(MatchBudget.Meter meter, String description) {
+        if (meter.isExceeded()) {
+            matchBudgetExceededCount.incrementAndGet();
+            logger.warning(String.format(
+                    "Stopped matching a description of %d chars after %d steps and %d ms, over %s; "
+                            + "returning partial offers",
+                    description.length(), meter.getSteps(), TimeUnit.NANOSECONDS.toMillis(meter.elapsedNanos()),
+                    matchBudget));
+        }
+    }
+
+    /*
+     * Creates the offers for the matches of each rule, in rule order, counts them for their
+     * rules and removes duplicates.
+     */
+    private static List<OfferSnippet> toOffers(List<? extends List<MatchSpan>> spans, DescriptionIndex index,
+            int start, int end, ExtractionRules rules) {
         List<OfferSnippet> codes = new ArrayList<>();
 
-        for (Patterns regex : Patterns.values()) {
-            codes.addAll(findMatches(regex.getPattern(), description));
+        for (int rule = 0; rule < spans.size(); rule++) {
+            List<MatchSpan> matches = spans.get(rule);
+            rules.countMatches(rule, matches.size());
+            for (MatchSpan span : matches) {
+                codes.add(createOfferSnippet(span.getStart(), span.getEnd(), index, start, end));
+            }
         }
 
         return removeDuplicateOffers(codes);
     }
 
+    /**
+     * Finds the matches of every extraction rule with a single walk of the fused pattern over
+     * the given string, plus a linear ProximityLinkDetector pass for SYMBOL_NEAR_LINK. Each
+     * rule yields exactly the matches findMatches would give its pattern on its own.
+     *
+     * @param description of the YouTube video to be parsed.
+     * @return A list holding the matches of each rule, in rule order.
+     */
+    @VisibleForTesting
+    static List<List<OfferSnippet>> findAllMatches(String description) {
+        List<List<OfferSnippet>> matches = new ArrayList<>();
+        DescriptionIndex index = DescriptionIndex.of(description);
+        for (List<MatchSpan> spans : findAllSpans(description, 0, description.length(), 0)) {
+            List<OfferSnippet> offers = new ArrayList<>();
+            for (MatchSpan span : spans) {
+                offers.add(createOfferSnippet(span.getStart(), span.getEnd(), index, 0, description.length()));
+            }
+            matches.add(offers);
+        }
+        return matches;
+    }
+
+    /*
+     * Finds the spans of the matches of every extraction rule between start (inclusive) and end
+     * (exclusive) of description, as if matching description.substring(start, end). Matches
+     * starting before index from are left out.
+     */
+    static List<List<MatchSpan>> findAllSpans(String description, int start, int end, int from) {
+        return rules.findAllSpans(description, start, end, from, MatchBudget.UNLIMITED.start());
+    }
+
     /**
      * Finds all matches in the given string from the given regex pattern.
      *
@@ -93,9 +736,10 @@ public class DescriptionParser {
     static List<OfferSnippet> findMatches(Pattern pattern, String description) {
         List<OfferSnippet> matches = new ArrayList<>();
         Matcher matcher = pattern.matcher(description);
+        DescriptionIndex index = DescriptionIndex.of(description);
 
         while (matcher.find()) {
-            matches.add(OfferSnippet.create(matcher.group(), getBoundedSnippet(matcher.start(), description)));
+            matches.add(createOfferSnippet(matcher.start(), matcher.end(), index, 0, description.length()));
         }
         return matches;
     }
@@ -111,47 +755,47 @@ public class DescriptionParser {
     }
 
     /*
-     * Finds the snippet of description which conatins the target index. Bounds the snippet at 
-     * MAX_SNIPPET_LENGTH characters and does not truncate words. If paragraphs are truncated 
-     * (using DELIMITER), an ellipsis is added to any side which has been truncated.
+     * Creates the OfferSnippet for the match of description between matchStart and matchEnd.
+     * Its snippet is the part of description which contains matchStart, bounded at
+     * MAX_SNIPPET_LENGTH characters without truncating words. If paragraphs are truncated
+     * (using DELIMITER), an ellipsis is added to any side which has been truncated. Only the
+     * range of description between start (inclusive) and end (exclusive) is considered.
+     * The snippet bounds are computed here from the offsets in index, without scanning the
+     * description, but the text is only built when it is read.
      */
-    private static String getBoundedSnippet(int targetIndex, String description) {
-        int startDelimiter = description.lastIndexOf(DELIMITER, targetIndex);
-        int endDelimiter = description.indexOf(DELIMITER, targetIndex);
+    @VisibleForTesting
+    static OfferSnippet createOfferSnippet(int matchStart, int matchEnd, DescriptionIndex index,
+            int start, int end) {
+        String description = index.getDescription();
+        int startDelimiter = index.lastIndexOfDelimiter(matchStart);
+        int endDelimiter = index.indexOfDelimiter(matchStart);
 
         // add 1 to not include delimiter in snippet
-        int lineStart = startDelimiter < 0 ? 0 : startDelimiter + 1;
-        int lineEnd = endDelimiter < 0 ? description.length() : endDelimiter;
-
-        int startBoundIndex = targetIndex - (MAX_SNIPPET_LENGTH / 2);
-        int endBoundIndex = targetIndex + (MAX_SNIPPET_LENGTH / 2);
-
-        int lastSpaceInBounds = description.lastIndexOf(" ", endBoundIndex);
-        int firstSpaceInBounds = description.indexOf(" ", startBoundIndex);
-
-        if (lineStart >= startBoundIndex && endBoundIndex >= lineEnd) {
-            return description.substring(lineStart, lineEnd);
-        }
-        
-        if (lineStart >= startBoundIndex) {
-            int snippetEnd = lastSpaceInBounds < 0 ? endBoundIndex : lastSpaceInBounds;
-            return String.format("%s %s", description.substring(lineStart, snippetEnd), ELLIPSIS); 
-        }
-        
-        if (endBoundIndex >= lineEnd) {
-            // add 1 to not include starting space in snippet
-            int snippetStart = firstSpaceInBounds < 0 ? startBoundIndex : firstSpaceInBounds + 1;
-            return String.format("%s %s", ELLIPSIS, description.substring(snippetStart, lineEnd)); 
-        } 
-        
-        if (lineStart < startBoundIndex && endBoundIndex < lineEnd) {
-            // add 1 to not include starting space in snippet
-            int snippetStart = firstSpaceInBounds < 0 ? startBoundIndex : firstSpaceInBounds + 1;
-            int snippetEnd = lastSpaceInBounds < 0 ? endBoundIndex : lastSpaceInBounds;
-            return String.format("%s %s %s", ELLIPSIS, description.substring(snippetStart, snippetEnd), ELLIPSIS);
-        }
-
-        throw new IllegalStateException("This line should be impossible");
+        int lineStart = startDelimiter < start ? start : startDelimiter + 1;
+        int lineEnd = endDelimiter < 0 || endDelimiter > end ? end : endDelimiter;
+
+        int startBoundIndex = matchStart - (MAX_SNIPPET_LENGTH / 2);
+        int endBoundIndex = matchStart + (MAX_SNIPPET_LENGTH / 2);
+
+        int lastSpaceInBounds = index.lastIndexOfSpace(Math.min(endBoundIndex, end - 1));
+        if (lastSpaceInBounds < start) {
+            lastSpaceInBounds = -1;
+        }
+        int firstSpaceInBounds = index.indexOfSpace(Math.max(startBoundIndex, start));
+        if (firstSpaceInBounds >= end) {
+            firstSpaceInBounds = -1;
+        }
+
+        boolean truncateStart = lineStart < startBoundIndex;
+        boolean truncateEnd = endBoundIndex < lineEnd;
+        // add 1 to not include starting space in snippet
+        int snippetStart = !truncateStart ? lineStart
+                : firstSpaceInBounds < 0 ? startBoundIndex : firstSpaceInBounds + 1;
+        int snippetEnd = !truncateEnd ? lineEnd
+                : lastSpaceInBounds < 0 ? endBoundIndex : lastSpaceInBounds;
+
+        return new LazyOfferSnippet(description, matchStart, matchEnd, snippetStart, snippetEnd,
+                /* leadingEllipsis= */ truncateStart, /* trailingEllipsis= */ truncateEnd);
     }
 
 }
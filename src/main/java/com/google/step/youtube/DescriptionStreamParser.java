@@ -0,0 +1,126 @@
+package com.google.step.youtube;
+
+import static com.google.step.youtube.DescriptionParser.DELIMITER;
+import static com.google.step.youtube.DescriptionParser.LOOKBEHIND_CONTEXT_LENGTH;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.util.function.Consumer;
+
+/**
+ * Parses a stream of descriptions a line at a time, for input too large to hold as one String.
+ * No promotional code or affiliate link spans a line break, so every offer can be found once
+ * its line has been read, given a few characters before the line for the lookbehinds of
+ * DescriptionParser.Patterns. Memory use is bounded by the chunk size plus the longest line.
+ *
+ * <p>Lines longer than MAX_LINE_LENGTH are parsed in pieces, split at a space where there is
+ * one. Each piece is parsed with SPLIT_CONTEXT_LENGTH characters of the line before and after
+ * it as context, and keeps the offers starting within it, so an offer near a split is found
+ * with the same code and snippet as in the whole line. Only an offer which, together with the
+ * text its rule checks around it, reaches more than SPLIT_CONTEXT_LENGTH characters past a
+ * split is cut short or lost: a link or quoted code that long, or a link whose symbol is that
+ * far past the split.
+ */
+final class DescriptionStreamParser {
+
+    @VisibleForTesting
+    static final int CHUNK_SIZE = 8192;
+    @VisibleForTesting
+    static final int MAX_LINE_LENGTH = 1 << 16;
+    // covers the 100 characters a snippet reaches on each side of a match, and the 100 code
+    // points (up to 200 chars) SYMBOL_NEAR_LINK checks after a link ending 56 chars past a split
+    @VisibleForTesting
+    static final int SPLIT_CONTEXT_LENGTH = 256;
+    private static final String DELIMITER_STRING = String.valueOf(DELIMITER);
+
+    private final int chunkSize;
+    private final int maxLineLength;
+
+    DescriptionStreamParser() {
+        this(CHUNK_SIZE, MAX_LINE_LENGTH);
+    }
+
+    @VisibleForTesting
+    DescriptionStreamParser(int chunkSize, int maxLineLength) {
+        this.chunkSize = chunkSize;
+        this.maxLineLength = maxLineLength;
+    }
+
+    /**
+     * Reads all of input in chunks and passes each offer found to onOffer, line by line.
+     */
+    void parse(Readable input, Consumer<OfferSnippet> onOffer) throws IOException {
+        // holds up to SPLIT_CONTEXT_LENGTH characters of context, then the current partial line
+        StringBuilder buffer = new StringBuilder();
+        CharBuffer chunk = CharBuffer.allocate(chunkSize);
+        int lineStart = 0;
+
+        while (input.read(chunk) != -1) {
+            chunk.flip();
+            int chunkStart = buffer.length();
+            buffer.append(chunk);
+            chunk.clear();
+            lineStart = parseCompleteLines(buffer, lineStart, chunkStart, onOffer);
+            lineStart = discardContext(buffer, lineStart);
+        }
+        parseLine(buffer, lineStart, buffer.length(), buffer.length(), onOffer);
+    }
+
+    /*
+     * Parses every line of buffer from lineStart which is ended by a DELIMITER, and the pieces
+     * of a line that has grown past maxLineLength once SPLIT_CONTEXT_LENGTH characters after
+     * them have been read. The buffer holds no DELIMITER between lineStart and chunkStart, where
+     * the last chunk read begins. Returns the start of the line, or the piece of it, still being
+     * read.
+     */
+    private int parseCompleteLines(StringBuilder buffer, int lineStart, int chunkStart,
+            Consumer<OfferSnippet> onOffer) {
+        int lineEnd = buffer.indexOf(DELIMITER_STRING, Math.max(lineStart, chunkStart));
+        while (lineEnd >= 0) {
+            parseLine(buffer, lineStart, lineEnd, lineEnd, onOffer);
+            lineStart = lineEnd + 1;
+            lineEnd = buffer.indexOf(DELIMITER_STRING, lineStart);
+        }
+        while (buffer.length() - lineStart > maxLineLength + SPLIT_CONTEXT_LENGTH) {
+            // split the line after its last space within bounds, or at the bound if there is none
+            int splitIndex = buffer.lastIndexOf(" ", lineStart + maxLineLength - 1);
+            splitIndex = splitIndex <= lineStart ? lineStart + maxLineLength : splitIndex + 1;
+            parseLine(buffer, lineStart, splitIndex, splitIndex + SPLIT_CONTEXT_LENGTH, onOffer);
+            lineStart = splitIndex;
+        }
+        return lineStart;
+    }
+
+    /*
+     * Parses the offers of buffer starting between lineStart and lineEnd, with the text up to
+     * textEnd and the context before lineStart for lookarounds and snippets.
+     */
+    private static void parseLine(StringBuilder buffer, int lineStart, int lineEnd, int textEnd,
+            Consumer<OfferSnippet> onOffer) {
+        int contextStart = Math.max(0, lineStart - contextLength(buffer, lineStart));
+        String text = buffer.substring(contextStart, textEnd);
+        for (OfferSnippet offer : DescriptionParser.parseFrom(text, lineStart - contextStart, lineEnd - contextStart)) {
+            onOffer.accept(offer);
+        }
+    }
+
+    /*
+     * Returns the length of the context needed before lineStart: LOOKBEHIND_CONTEXT_LENGTH at
+     * the start of a line, or SPLIT_CONTEXT_LENGTH at a split.
+     */
+    private static int contextLength(StringBuilder buffer, int lineStart) {
+        return lineStart > 0 && buffer.charAt(lineStart - 1) != DELIMITER ? SPLIT_CONTEXT_LENGTH
+                : LOOKBEHIND_CONTEXT_LENGTH;
+    }
+
+    /*
+     * Drops everything more than SPLIT_CONTEXT_LENGTH characters before lineStart from buffer.
+     * Returns lineStart in the shortened buffer.
+     */
+    private static int discardContext(StringBuilder buffer, int lineStart) {
+        int contextStart = Math.max(0, lineStart - SPLIT_CONTEXT_LENGTH);
+        buffer.delete(0, contextStart);
+        return lineStart - contextStart;
+    }
+}
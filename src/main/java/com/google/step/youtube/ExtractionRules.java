@@ -0,0 +1,435 @@
+package com.google.step.youtube;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableList;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * The rules DescriptionParser extracts promotional codes and affiliate links with, compiled
+ * into a single matcher. Rules are read from a JSON file such as:
+ *
+ * <pre>
+ * {"rules": [
+ *   {"name": "CODE_NO_QUOTES", "builtin": "CODE_NO_QUOTES"},
+ *   {"name": "USE_COUPON", "regex": "(?&lt;=\\b(?i)use coupon(?s).{1,2})[A-Z0-9]+"}
+ * ]}
+ * </pre>
+ *
+ * A rule either names one of DescriptionParser.Patterns or gives its own regular expression.
+ * The regular expressions are matched by a MatchEngine, chosen by the optional "engine" field:
+ * "jdk" (the default) fuses them into one java.util.regex pattern, so adding a rule doesn't add
+ * a scan of the description, while "linear" matches them with RE2J in time linear in the
+ * description, but only takes custom regular expressions without lookarounds or
+ * backreferences. Either way SYMBOL_NEAR_LINK keeps its linear ProximityLinkDetector. Offers are
+ * returned in rule order. Rules may not match across lines, may not use numbered
+ * backreferences, and their lookbehinds may see at most
+ * DescriptionParser.LOOKBEHIND_CONTEXT_LENGTH characters before a line. Descriptions without
+ * any of the required literals of the built-in rules are skipped without running a regular
+ * expression, unless there are rules of their own. Each rule counts the
+ * matches it finds. Instances are immutable apart from the counts, so they can be swapped
+ * while descriptions are being parsed.
+ */
+public final class ExtractionRules {
+
+    /** The regex engines rules can be matched with. */
+    public enum Engine {
+        /** java.util.regex, which backtracks; its cost is only bounded by the MatchBudget. */
+        JDK,
+        /** RE2J, which takes time linear in the description. */
+        LINEAR
+    }
+
+    /** System property with the path of the rules file to use instead of the bundled one. */
+    public static final String RULES_FILE_PROPERTY = "promotube.extractionRules";
+    @VisibleForTesting
+    static final String BUNDLED_RULES_RESOURCE = "/extraction-rules.json";
+
+    private static final AtomicLong lastVersion = new AtomicLong();
+
+    // tells the results of these rules apart from those of rules loaded before
+    private final long version;
+    private final ImmutableList<String> names;
+    private final Engine engineType;
+    // matches the rules with regular expressions; null if there are none
+    private final MatchEngine engine;
+    // rules with regular expressions, as indexes into names, and an engine matching each of them
+    // alone, for profiling
+    private final int[] regexRules;
+    private final Supplier<MatchEngine[]> regexRuleEngines;
+    // rules matched by ProximityLinkDetector, as indexes into names
+    private final int[] symbolNearLinkRules;
+    // lowercase literals at least one of which every match contains, ignoring case; empty if
+    // there are rules with regular expressions of their own
+    private final String[] requiredLiterals;
+    private final LongAdder[] matchCounts;
+
+    private ExtractionRules(List<Rule> rules, Engine engineType) {
+        this.version = lastVersion.incrementAndGet();
+        this.engineType = engineType;
+        ImmutableList.Builder<String> names = ImmutableList.builder();
+        List<Integer> regexRules = new ArrayList<>();
+        List<Integer> symbolNearLinkRules = new ArrayList<>();
+        Set<String> requiredLiterals = new LinkedHashSet<>();
+        boolean onlyBuiltins = true;
+        for (int i = 0; i < rules.size(); i++) {
+            Rule rule = rules.get(i);
+            names.add(rule.name);
+            if (rule.builtin != null) {
+                requiredLiterals.add(rule.builtin.getRequiredLiteral());
+            }
+            if (rule.builtin == DescriptionParser.Patterns.SYMBOL_NEAR_LINK) {
+                symbolNearLinkRules.add(i);
+            } else {
+                regexRules.add(i);
+                onlyBuiltins &= rule.builtin != null;
+            }
+        }
+        this.names = names.build();
+        this.symbolNearLinkRules = symbolNearLinkRules.stream().mapToInt(Integer::intValue).toArray();
+        this.requiredLiterals = onlyBuiltins ? requiredLiterals.toArray(new String[0]) : new String[0];
+        int lookbehindReach = onlyBuiltins ? builtinLookbehindReach(rules, regexRules)
+                : DescriptionParser.LOOKBEHIND_CONTEXT_LENGTH;
+        this.engine = regexRules.isEmpty() ? null : createEngine(engineType, rules, regexRules, lookbehindReach);
+        this.regexRules = regexRules.stream().mapToInt(Integer::intValue).toArray();
+        this.regexRuleEngines = Suppliers.memoize(() -> {
+            MatchEngine[] engines = new MatchEngine[this.regexRules.length];
+            for (int i = 0; i < engines.length; i++) {
+                engines[i] = createEngine(engineType, rules, ImmutableList.of(this.regexRules[i]), lookbehindReach);
+            }
+            return engines;
+        });
+
+        this.matchCounts = new LongAdder[rules.size()];
+        for (int i = 0; i < matchCounts.length; i++) {
+            matchCounts[i] = new LongAdder();
+        }
+    }
+
+    /** @return The built-in rules: every one of DescriptionParser.Patterns, in order. */
+    public static ExtractionRules defaults() {
+        return defaults(Engine.JDK);
+    }
+
+    /** @return The built-in rules, matched with the given engine. */
+    public static ExtractionRules defaults(Engine engine) {
+        List<Rule> rules = new ArrayList<>();
+        for (DescriptionParser.Patterns pattern : DescriptionParser.Patterns.values()) {
+            rules.add(new Rule(pattern.name(), pattern.getPattern(), pattern));
+        }
+        return new ExtractionRules(rules, engine);
+    }
+
+    /**
+     * Loads the rules from the file named by the RULES_FILE_PROPERTY system property, or from
+     * the rules bundled with the app if it isn't set.
+     *
+     * @throws IOException if the rules file can't be read.
+     * @throws IllegalArgumentException if the rules are invalid.
+     */
+    public static ExtractionRules load() throws IOException {
+        String rulesFile = System.getProperty(RULES_FILE_PROPERTY);
+        if (rulesFile != null) {
+            return load(Paths.get(rulesFile));
+        }
+        try (InputStream input = ExtractionRules.class.getResourceAsStream(BUNDLED_RULES_RESOURCE)) {
+            if (input == null) {
+                throw new IOException("Missing bundled extraction rules " + BUNDLED_RULES_RESOURCE);
+            }
+            return fromJson(new InputStreamReader(input, StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Loads the rules from the given JSON file.
+     *
+     * @throws IOException if the file can't be read.
+     * @throws IllegalArgumentException if the rules are invalid.
+     */
+    public static ExtractionRules load(Path rulesFile) throws IOException {
+        try (Reader reader = Files.newBufferedReader(rulesFile, StandardCharsets.UTF_8)) {
+            return fromJson(reader);
+        }
+    }
+
+    /**
+     * Compiles the rules in the given JSON.
+     *
+     * @throws IllegalArgumentException if the JSON or the rules in it are invalid.
+     */
+    public static ExtractionRules fromJson(Reader json) {
+        RulesConfig config;
+        try {
+            config = new Gson().fromJson(json, RulesConfig.class);
+        } catch (JsonParseException e) {
+            throw new IllegalArgumentException("Invalid extraction rules JSON: " + e.getMessage(), e);
+        }
+        if (config == null || config.rules == null || config.rules.isEmpty()) {
+            throw new IllegalArgumentException("Extraction rules must have at least one rule");
+        }
+        Engine engine = Engine.JDK;
+        if (config.engine != null) {
+            try {
+                engine = Engine.valueOf(config.engine.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown extraction rules engine " + config.engine, e);
+            }
+        }
+        List<Rule> rules = new ArrayList<>();
+        Set<String> names = new HashSet<>();
+        for (RuleConfig ruleConfig : config.rules) {
+            Rule rule = compileRule(ruleConfig);
+            if (!names.add(rule.name)) {
+                throw new IllegalArgumentException("Duplicate extraction rule " + rule.name);
+            }
+            rules.add(rule);
+        }
+        try {
+            return new ExtractionRules(rules, engine);
+        } catch (PatternSyntaxException e) {
+            // rules which compile alone but not together, such as ones with the same named group
+            throw new IllegalArgumentException("Extraction rules can't be combined: " + e.getMessage(), e);
+        }
+    }
+
+    /** @return The names of the rules, in the order their offers are returned. */
+    public List<String> getRuleNames() {
+        return names;
+    }
+
+    /** @return The number of matches each rule found since the rules were loaded, by rule name. */
+    public Map<String, Long> getMatchCounts() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            counts.put(names.get(i), matchCounts[i].sum());
+        }
+        return counts;
+    }
+
+    public Engine getEngine() {
+        return engineType;
+    }
+
+    long getVersion() {
+        return version;
+    }
+
+    int size() {
+        return names.size();
+    }
+
+    void countMatches(int rule, int matches) {
+        matchCounts[rule].add(matches);
+    }
+
+    List<List<MatchSpan>> newListPerRule() {
+        List<List<MatchSpan>> lists = new ArrayList<>();
+        for (int i = 0; i < names.size(); i++) {
+            lists.add(new ArrayList<>());
+        }
+        return lists;
+    }
+
+    /*
+     * Finds the spans of the matches of every rule between start (inclusive) and end
+     * (exclusive) of description, as if matching description.substring(start, end), spending
+     * meter on the regular expressions. Lookarounds can't see past the range. Matches starting
+     * before index from are left out. Once meter runs out, only the matches found before are
+     * returned for the rules with regular expressions. SYMBOL_NEAR_LINK matches take linear
+     * time, so they are always found.
+     */
+    List<List<MatchSpan>> findAllSpans(String description, int start, int end, int from, MatchBudget.Meter meter) {
+        MatchProfiler profiler = DescriptionParser.getProfiler();
+        if (profiler.isEnabled()) {
+            return findAllSpansProfiled(description, start, end, from, meter, profiler);
+        }
+        List<List<MatchSpan>> matches = newListPerRule();
+        if (engine != null) {
+            engine.findSpans(description, start, end, from, meter, matches);
+        }
+        if (symbolNearLinkRules.length > 0) {
+            for (MatchSpan span : ProximityLinkDetector.findMatches(description, start, end)) {
+                if (span.getStart() >= from) {
+                    for (int rule : symbolNearLinkRules) {
+                        matches.get(rule).add(span);
+                    }
+                }
+            }
+        }
+        return matches;
+    }
+
+    /*
+     * Finds the same spans as findAllSpans, but matches each rule on its own to record its time,
+     * matches and input length in profiler.
+     */
+    private List<List<MatchSpan>> findAllSpansProfiled(String description, int start, int end, int from,
+            MatchBudget.Meter meter, MatchProfiler profiler) {
+        List<List<MatchSpan>> matches = newListPerRule();
+        MatchEngine[] engines = regexRuleEngines.get();
+        for (int i = 0; i < engines.length; i++) {
+            long startNanos = System.nanoTime();
+            engines[i].findSpans(description, start, end, from, meter, matches);
+            int rule = regexRules[i];
+            profiler.recordRule(names.get(rule), System.nanoTime() - startNanos, matches.get(rule).size(), end - start);
+        }
+        if (symbolNearLinkRules.length > 0) {
+            long startNanos = System.nanoTime();
+            List<MatchSpan> spans = new ArrayList<>();
+            for (MatchSpan span : ProximityLinkDetector.findMatches(description, start, end)) {
+                if (span.getStart() >= from) {
+                    spans.add(span);
+                }
+            }
+            long nanos = System.nanoTime() - startNanos;
+            for (int rule : symbolNearLinkRules) {
+                matches.get(rule).addAll(spans);
+                profiler.recordRule(names.get(rule), nanos, spans.size(), end - start);
+            }
+        }
+        return matches;
+    }
+
+    /*
+     * Returns true unless description lacks every required literal, in which case no rule can
+     * match it. Takes a single scan of description, much cheaper than matching it.
+     */
+    boolean mayMatch(String description) {
+        if (requiredLiterals.length == 0) {
+            return true;
+        }
+        for (int i = 0; i < description.length(); i++) {
+            char c = Character.toLowerCase(Character.toUpperCase(description.charAt(i)));
+            for (String literal : requiredLiterals) {
+                if (c == literal.charAt(0) && description.regionMatches(
+                        /* ignoreCase= */ true, i, literal, 0, literal.length())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /*
+     * Returns true if the matches of the line of description between lineStart and lineEnd
+     * depend on the text before the line.
+     */
+    boolean dependsOnContext(String description, int lineStart, int lineEnd) {
+        return engine != null && engine.dependsOnContext(description, lineStart, lineEnd);
+    }
+
+    @Override
+    public String toString() {
+        return "ExtractionRules" + names + " on the " + engineType + " engine";
+    }
+
+    private static Rule compileRule(RuleConfig config) {
+        if (config.name == null || config.name.isEmpty()) {
+            throw new IllegalArgumentException("Every extraction rule needs a name");
+        }
+        if ((config.regex == null) == (config.builtin == null)) {
+            throw new IllegalArgumentException(
+                    "Extraction rule " + config.name + " needs either a regex or a builtin");
+        }
+        if (config.builtin != null) {
+            DescriptionParser.Patterns builtin;
+            try {
+                builtin = DescriptionParser.Patterns.valueOf(config.builtin);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException(
+                        "Extraction rule " + config.name + " has unknown builtin " + config.builtin, e);
+            }
+            return new Rule(config.name, builtin.getPattern(), builtin);
+        }
+        try {
+            return new Rule(config.name, Pattern.compile(config.regex), /* builtin= */ null);
+        } catch (PatternSyntaxException e) {
+            throw new IllegalArgumentException(
+                    "Extraction rule " + config.name + " has an invalid regex: " + e.getMessage(), e);
+        }
+    }
+
+    /*
+     * Returns how many indexes at the start of a line may have matches of the built-in rules
+     * which see a keyword before the line, from the longest of their lookbehinds.
+     */
+    private static int builtinLookbehindReach(List<Rule> rules, List<Integer> regexRules) {
+        int reach = 0;
+        for (int i : regexRules) {
+            reach = Math.max(reach, rules.get(i).builtin.getLookbehindReach());
+        }
+        return reach;
+    }
+
+    private static MatchEngine createEngine(Engine engineType, List<Rule> rules, List<Integer> regexRules,
+            int lookbehindReach) {
+        int[] ruleIndexes = regexRules.stream().mapToInt(Integer::intValue).toArray();
+        if (engineType == Engine.JDK) {
+            List<Pattern> patterns = new ArrayList<>();
+            for (int rule : ruleIndexes) {
+                patterns.add(rules.get(rule).regex);
+            }
+            return new JdkMatchEngine(ruleIndexes, patterns, lookbehindReach);
+        }
+        List<LinearMatchEngine.LinearPattern> patterns = new ArrayList<>();
+        for (int rule : ruleIndexes) {
+            Rule linearRule = rules.get(rule);
+            try {
+                patterns.add(linearRule.builtin != null ? LinearMatchEngine.builtin(linearRule.builtin)
+                        : LinearMatchEngine.custom(linearRule.regex.pattern()));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Extraction rule " + linearRule.name
+                        + " can't be matched by the linear engine: " + e.getMessage(), e);
+            }
+        }
+        return new LinearMatchEngine(ruleIndexes, patterns, lookbehindReach);
+    }
+
+    private static final class Rule {
+
+        private final String name;
+        private final Pattern regex;
+        // null unless the rule is one of the built-in patterns
+        private final DescriptionParser.Patterns builtin;
+
+        private Rule(String name, Pattern regex, DescriptionParser.Patterns builtin) {
+            this.name = name;
+            this.regex = regex;
+            this.builtin = builtin;
+        }
+    }
+
+    // JSON form of a rules file, filled in by Gson
+    private static final class RulesConfig {
+        private String engine;
+        private List<RuleConfig> rules;
+    }
+
+    private static final class RuleConfig {
+        private String name;
+        private String regex;
+        private String builtin;
+    }
+}
@@ -0,0 +1,122 @@
+package com.google.step.youtube;
+
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * MatchEngine using java.util.regex. The patterns of all rules are fused into one, so the
+ * description is walked once however many rules there are. Matching backtracks, so its cost
+ * on hostile input is only bounded by the MatchBudget.
+ */
+final class JdkMatchEngine implements MatchEngine {
+
+    // rules matched by the fused pattern, as indexes into the rules of ExtractionRules, and
+    // their groups in it
+    private final int[] rules;
+    private final int[] groups;
+    private final Pattern fusedPattern;
+    // matchers hold several arrays, so each thread reuses its own matcher for the fused pattern
+    private final ThreadLocal<Matcher> fusedMatcher;
+    // indexes at the start of a line where a match may depend on the line before
+    private final int lookbehindReach;
+
+    /**
+     * @param rules The index of the rule of each pattern.
+     * @param patterns of the rules, at least one.
+     * @param lookbehindReach Number of indexes at the start of a line whose matches may see
+     *        the line before.
+     * @throws java.util.regex.PatternSyntaxException if the patterns can't be combined.
+     */
+    JdkMatchEngine(int[] rules, List<Pattern> patterns, int lookbehindReach) {
+        this.rules = rules;
+        this.groups = fusedGroups(patterns);
+        this.fusedPattern = fusePatterns(patterns);
+        this.fusedMatcher = ThreadLocal.withInitial(() -> fusedPattern.matcher(""));
+        this.lookbehindReach = lookbehindReach;
+    }
+
+    /*
+     * The fused matcher uses opaque region bounds, so lookarounds can't see past the range.
+     */
+    @Override
+    public void findSpans(String description, int start, int end, int from, MatchBudget.Meter meter,
+            List<List<MatchSpan>> matches) {
+        // a rule's next match may not start before its previous match ended, like Matcher.find()
+        int[] nextStart = new int[rules.length];
+        CharSequence text = meter.isUnlimited() ? description : new BudgetedCharSequence(description, meter);
+        Matcher matcher = fusedMatcher.get().reset(text).region(start, end);
+
+        try {
+            while (!meter.isExceeded() && matcher.find()) {
+                for (int i = 0; i < rules.length; i++) {
+                    int matchStart = matcher.start(groups[i]);
+                    if (matchStart < 0 || matchStart < nextStart[i]) {
+                        continue;
+                    }
+                    if (matchStart >= from) {
+                        matches.get(rules[i]).add(MatchSpan.create(matchStart, matcher.end(groups[i])));
+                    }
+                    nextStart[i] = matcher.end(groups[i]);
+                }
+            }
+        } catch (MatchBudget.MatchBudgetExceededException e) {
+            // keep the matches found so far
+        } finally {
+            // don't keep the description reachable from the thread
+            matcher.reset("");
+        }
+    }
+
+    /*
+     * No rule matches at the first lookbehindReach indexes of a line unless its lookbehind sees
+     * a keyword before the line, so it is enough to check for matches there with transparent
+     * bounds.
+     */
+    @Override
+    public boolean dependsOnContext(String description, int lineStart, int lineEnd) {
+        Matcher matcher = fusedMatcher.get();
+        try {
+            for (int i = lineStart; i < Math.min(lineStart + lookbehindReach, lineEnd); i++) {
+                matcher.reset(description).region(i, lineEnd).useTransparentBounds(true);
+                if (matcher.lookingAt()) {
+                    for (int group : groups) {
+                        if (matcher.start(group) >= 0) {
+                            return true;
+                        }
+                    }
+                }
+            }
+            return false;
+        } finally {
+            matcher.useTransparentBounds(false).reset("");
+        }
+    }
+
+    /*
+     * Wraps every pattern in an optional, zero-width lookahead group: "(?=(p1))?(?=(p2))?...".
+     * The fused pattern matches the empty string at every index, and the group of each pattern
+     * is set whenever that pattern matches starting at the index.
+     */
+    private static Pattern fusePatterns(List<Pattern> patterns) {
+        StringBuilder fused = new StringBuilder();
+        for (Pattern pattern : patterns) {
+            fused.append("(?=(").append(pattern.pattern()).append("))?");
+        }
+        return Pattern.compile(fused.toString());
+    }
+
+    /*
+     * Group number of each pattern's wrapping group in the fused pattern, accounting for the
+     * capturing groups inside the patterns that precede it.
+     */
+    private static int[] fusedGroups(List<Pattern> patterns) {
+        int[] groups = new int[patterns.size()];
+        int group = 1;
+        for (int i = 0; i < patterns.size(); i++) {
+            groups[i] = group;
+            group += 1 + patterns.get(i).matcher("").groupCount();
+        }
+        return groups;
+    }
+}
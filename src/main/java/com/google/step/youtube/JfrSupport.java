@@ -0,0 +1,26 @@
+package com.google.step.youtube;
+
+/**
+ * Whether the Java Flight Recorder event API is available. It ships with Java 11 and later and
+ * with OpenJDK 8 from update 262, but not with every Java 8 runtime. Code emitting events only
+ * touches the event classes once this returns true, so it runs unchanged without JFR.
+ */
+public final class JfrSupport {
+
+    private static final boolean AVAILABLE = isEventApiPresent();
+
+    private JfrSupport() {}
+
+    public static boolean isAvailable() {
+        return AVAILABLE;
+    }
+
+    private static boolean isEventApiPresent() {
+        try {
+            Class.forName("jdk.jfr.Event", /* initialize= */ false, JfrSupport.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.google.step.youtube;
+
+/**
+ * OfferSnippet which keeps the description it was found in, plus the offsets of its promotional
+ * code and snippet, and only builds their text when it is read. Equality and hash codes are
+ * computed on the description in place, and agree with those of OfferSnippet.create, so
+ * duplicate offers can be dropped before any text is built.
+ *
+ * Only the text of offers dropped that way is never built: YouTubeInfoScraper copies the text
+ * of every offer it keeps into a PromoCode, which the servlets serialize whole.
+ */
+final class LazyOfferSnippet extends OfferSnippet {
+
+    private static final String LEADING_ELLIPSIS = "... ";
+    private static final String TRAILING_ELLIPSIS = " ...";
+    // multiplier of the hashCode generated by AutoValue
+    private static final int HASH_MULTIPLIER = 1000003;
+
+    private final String description;
+    private final int promoCodeStart;
+    private final int promoCodeEnd;
+    private final int snippetStart;
+    private final int snippetEnd;
+    private final boolean leadingEllipsis;
+    private final boolean trailingEllipsis;
+
+    // built on first read; racy but benign, like String.hashCode
+    private String promoCode;
+    private String snippet;
+    private int hashCode;
+
+    LazyOfferSnippet(String description, int promoCodeStart, int promoCodeEnd, int snippetStart, int snippetEnd,
+            boolean leadingEllipsis, boolean trailingEllipsis) {
+        if (promoCodeStart > promoCodeEnd || snippetStart > snippetEnd) {
+            throw new StringIndexOutOfBoundsException(
+                    String.format("Invalid offsets: code [%d, %d), snippet [%d, %d)",
+                            promoCodeStart, promoCodeEnd, snippetStart, snippetEnd));
+        }
+        this.description = description;
+        this.promoCodeStart = promoCodeStart;
+        this.promoCodeEnd = promoCodeEnd;
+        this.snippetStart = snippetStart;
+        this.snippetEnd = snippetEnd;
+        this.leadingEllipsis = leadingEllipsis;
+        this.trailingEllipsis = trailingEllipsis;
+    }
+
+    @Override
+    public String getPromoCode() {
+        if (promoCode == null) {
+            promoCode = description.substring(promoCodeStart, promoCodeEnd);
+        }
+        return promoCode;
+    }
+
+    @Override
+    public String getSnippet() {
+        if (snippet == null) {
+            StringBuilder builder = new StringBuilder(getSnippetLength());
+            if (leadingEllipsis) {
+                builder.append(LEADING_ELLIPSIS);
+            }
+            builder.append(description, snippetStart, snippetEnd);
+            if (trailingEllipsis) {
+                builder.append(TRAILING_ELLIPSIS);
+            }
+            snippet = builder.toString();
+        }
+        return snippet;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == this) {
+            return true;
+        }
+        if (o instanceof LazyOfferSnippet) {
+            LazyOfferSnippet that = (LazyOfferSnippet) o;
+            return promoCodeEquals(that) && snippetEquals(that);
+        }
+        if (o instanceof OfferSnippet) {
+            OfferSnippet that = (OfferSnippet) o;
+            return getPromoCode().equals(that.getPromoCode()) && getSnippet().equals(that.getSnippet());
+        }
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        int h = hashCode;
+        if (h == 0) {
+            h = 1;
+            h *= HASH_MULTIPLIER;
+            h ^= hashRange(0, description, promoCodeStart, promoCodeEnd);
+            h *= HASH_MULTIPLIER;
+            h ^= snippetHashCode();
+            hashCode = h;
+        }
+        return h;
+    }
+
+    @Override
+    public String toString() {
+        return "OfferSnippet{promoCode=" + getPromoCode() + ", snippet=" + getSnippet() + "}";
+    }
+
+    private boolean promoCodeEquals(LazyOfferSnippet that) {
+        int length = promoCodeEnd - promoCodeStart;
+        return length == that.promoCodeEnd - that.promoCodeStart
+                && description.regionMatches(promoCodeStart, that.description, that.promoCodeStart, length);
+    }
+
+    private boolean snippetEquals(LazyOfferSnippet that) {
+        int length = getSnippetLength();
+        if (length != that.getSnippetLength()) {
+            return false;
+        }
+        if (leadingEllipsis == that.leadingEllipsis && trailingEllipsis == that.trailingEllipsis) {
+            return description.regionMatches(snippetStart, that.description, that.snippetStart,
+                    snippetEnd - snippetStart);
+        }
+        for (int i = 0; i < length; i++) {
+            if (snippetCharAt(i) != that.snippetCharAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /* String.hashCode() of the snippet, without building it */
+    private int snippetHashCode() {
+        int h = 0;
+        if (leadingEllipsis) {
+            h = hashRange(h, LEADING_ELLIPSIS, 0, LEADING_ELLIPSIS.length());
+        }
+        h = hashRange(h, description, snippetStart, snippetEnd);
+        if (trailingEllipsis) {
+            h = hashRange(h, TRAILING_ELLIPSIS, 0, TRAILING_ELLIPSIS.length());
+        }
+        return h;
+    }
+
+    private int getSnippetLength() {
+        return (leadingEllipsis ? LEADING_ELLIPSIS.length() : 0) + (snippetEnd - snippetStart)
+                + (trailingEllipsis ? TRAILING_ELLIPSIS.length() : 0);
+    }
+
+    private char snippetCharAt(int index) {
+        if (leadingEllipsis) {
+            if (index < LEADING_ELLIPSIS.length()) {
+                return LEADING_ELLIPSIS.charAt(index);
+            }
+            index -= LEADING_ELLIPSIS.length();
+        }
+        if (index < snippetEnd - snippetStart) {
+            return description.charAt(snippetStart + index);
+        }
+        return TRAILING_ELLIPSIS.charAt(index - (snippetEnd - snippetStart));
+    }
+
+    /* continues the String.hashCode() hash h over text between start and end */
+    private static int hashRange(int h, String text, int start, int end) {
+        for (int i = start; i < end; i++) {
+            h = 31 * h + text.charAt(i);
+        }
+        return h;
+    }
+}
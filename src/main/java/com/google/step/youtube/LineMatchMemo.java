@@ -0,0 +1,92 @@
+package com.google.step.youtube;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Memo of the matches found in single lines of descriptions. Creators paste the same sponsor
+ * lines into every upload, so most lines of a channel's descriptions have been matched before,
+ * even when the descriptions as a whole differ. Lines are keyed by a 128 bit hash of their
+ * text, plus the context before them in the rare case that their matches depend on it, and
+ * their matches are kept relative to the line start, so they can be moved to wherever the line
+ * shows up again. The least recently used lines are evicted first.
+ */
+final class LineMatchMemo {
+
+    @VisibleForTesting
+    static final long MAX_LINES = 100_000;
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+    // spans of the matches of each pattern, relative to the start of the line
+    private final Cache<HashCode, ImmutableList<ImmutableList<MatchSpan>>> memo;
+
+    LineMatchMemo(long maxLines) {
+        this.memo = CacheBuilder.newBuilder().maximumSize(maxLines).recordStats().build();
+    }
+
+    /**
+     * Finds the spans of the matches of every pattern in the line of description from lineStart
+     * (inclusive) to lineEnd (exclusive), as DescriptionParser.findAllSpans(description,
+     * contextStart, lineEnd, lineStart) does. Characters between contextStart and lineStart are
+     * the context of the line.
+     */
+    List<? extends List<MatchSpan>> findAllSpans(String description, int lineStart, int lineEnd, int contextStart) {
+        return findAllSpans(description, lineStart, lineEnd, contextStart, DescriptionParser.getRules(),
+                MatchBudget.UNLIMITED.start());
+    }
+
+    /**
+     * Finds the spans of the matches of every one of rules in the line, as findAllSpans(
+     * description, lineStart, lineEnd, contextStart) does, spending meter on lines not seen
+     * before. Matches of a line which ran over budget are partial, so they aren't memoized.
+     */
+    List<? extends List<MatchSpan>> findAllSpans(String description, int lineStart, int lineEnd, int contextStart,
+            ExtractionRules rules, MatchBudget.Meter meter) {
+        int start = contextStart < lineStart && rules.dependsOnContext(description, lineStart, lineEnd)
+                ? contextStart : lineStart;
+        int end = lineEnd;
+        HashCode key = HASH_FUNCTION.newHasher()
+                .putLong(rules.getVersion())
+                .putInt(lineStart - start)
+                .putUnencodedChars(CharBuffer.wrap(description, start, end))
+                .hash();
+        ImmutableList<ImmutableList<MatchSpan>> relativeSpans = memo.getIfPresent(key);
+        if (relativeSpans == null) {
+            List<List<MatchSpan>> spans = rules.findAllSpans(description, start, end, lineStart, meter);
+            if (!meter.isExceeded()) {
+                memo.put(key, shift(spans, -lineStart));
+            }
+            return spans;
+        }
+        return shift(relativeSpans, lineStart);
+    }
+
+    CacheStats stats() {
+        return memo.stats();
+    }
+
+    void invalidateAll() {
+        memo.invalidateAll();
+    }
+
+    private static ImmutableList<ImmutableList<MatchSpan>> shift(List<? extends List<MatchSpan>> spans, int offset) {
+        ImmutableList.Builder<ImmutableList<MatchSpan>> shifted = ImmutableList.builder();
+        for (List<MatchSpan> patternSpans : spans) {
+            ImmutableList.Builder<MatchSpan> shiftedPatternSpans = ImmutableList.builder();
+            for (MatchSpan span : patternSpans) {
+                shiftedPatternSpans.add(MatchSpan.create(span.getStart() + offset, span.getEnd() + offset));
+            }
+            shifted.add(shiftedPatternSpans.build());
+        }
+        return shifted.build();
+    }
+}
@@ -0,0 +1,324 @@
+package com.google.step.youtube;
+
+import com.google.re2j.Matcher;
+import com.google.re2j.Pattern;
+import com.google.re2j.PatternSyntaxException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * MatchEngine using RE2J, whose automata match in time linear in the input however the
+ * patterns are written, at the cost of supporting no lookarounds or backreferences.
+ *
+ * The built-in patterns are rewritten without lookarounds. Their keyword lookbehinds, such as
+ * "(?<=\b(?i)code(?s).{1,2})", become a check at each index of the text for the keyword one or
+ * two characters before it, which looks at a bounded number of characters; the rest is matched
+ * by RE2J anchored at the index, with lookaheads turned into a suffix outside the match group.
+ * The check follows java.util.regex on Java 8, so word boundaries are Unicode aware and "."
+ * steps over whole code points, and the rewritten patterns find exactly the matches of the
+ * originals. Regular expressions of custom rules are compiled by RE2J as they are.
+ */
+final class LinearMatchEngine implements MatchEngine {
+
+    // the characters "." matches in java.util.regex without DOTALL
+    private static final String NOT_LINE_TERMINATOR = "[^\\n\\r\\x{85}\\x{2028}\\x{2029}]";
+    // "\s" of java.util.regex, which unlike RE2's includes \x0B
+    private static final String JAVA_WHITESPACE = " \\t\\n\\x0B\\f\\r";
+    // the lookbehinds of the built-in patterns allow one or two characters after the keyword
+    private static final int MAX_KEYWORD_GAP = 2;
+
+    // rules matched, as indexes into the rules of ExtractionRules, and their patterns
+    private final int[] rules;
+    private final LinearPattern[] patterns;
+    private final boolean hasCustomPatterns;
+    // indexes at the start of a line where a match may depend on the line before
+    private final int lookbehindReach;
+
+    /**
+     * @param rules The index of the rule of each pattern.
+     * @param patterns of the rules, at least one, from builtin or custom.
+     * @param lookbehindReach Number of indexes at the start of a line whose matches may see
+     *        the line before.
+     */
+    LinearMatchEngine(int[] rules, List<LinearPattern> patterns, int lookbehindReach) {
+        this.rules = rules;
+        this.patterns = patterns.toArray(new LinearPattern[0]);
+        this.lookbehindReach = lookbehindReach;
+        boolean hasCustomPatterns = false;
+        for (LinearPattern pattern : patterns) {
+            hasCustomPatterns |= pattern.keywords == null;
+        }
+        this.hasCustomPatterns = hasCustomPatterns;
+    }
+
+    /**
+     * @return The given built-in pattern rewritten without lookarounds.
+     * @throws IllegalArgumentException for SYMBOL_NEAR_LINK, which is matched by
+     *         ProximityLinkDetector rather than a regex engine.
+     */
+    static LinearPattern builtin(DescriptionParser.Patterns pattern) {
+        switch (pattern) {
+            case CODE_NO_QUOTES:
+                // (?<=\b(?i)code(?s).{1,2})([A-Z0-9][A-Za-z0-9\-]+)
+                return new LinearPattern(new String[] {"code"}, "", "[A-Z0-9][A-Za-z0-9\\-]+", 0);
+            case CODE_WITH_QUOTES:
+                // (?<=\b(?i)code(?s).{1,2}("|'))(.+?)(?=("|'))
+                return new LinearPattern(new String[] {"code"}, "\"'", "(" + NOT_LINE_TERMINATOR + "+?)[\"']", 1);
+            case TO_AT_LINKS:
+                // (?<=\b(?i)(to|at)(?s).{1,2})(https*:\/\/)[^\s,\)]+
+                return new LinearPattern(new String[] {"to", "at"}, "",
+                        "https*://[^" + JAVA_WHITESPACE + ",)]+", 0);
+            default:
+                throw new IllegalArgumentException(pattern + " has no regular expression for the linear engine");
+        }
+    }
+
+    /**
+     * @return The given regular expression compiled by RE2J.
+     * @throws IllegalArgumentException if RE2J doesn't support the regular expression, such as
+     *         one with lookarounds.
+     */
+    static LinearPattern custom(String regex) {
+        try {
+            return new LinearPattern(/* keywords= */ null, "", regex, 0);
+        } catch (PatternSyntaxException e) {
+            throw new IllegalArgumentException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void findSpans(String description, int start, int end, int from, MatchBudget.Meter meter,
+            List<List<MatchSpan>> matches) {
+        CharSequence text = meter.isUnlimited() ? description : new BudgetedCharSequence(description, meter);
+        TextWindow window = new TextWindow(text);
+        try {
+            for (int i = 0; i < patterns.length; i++) {
+                if (patterns[i].keywords == null) {
+                    findCustomSpans(patterns[i], window, start, end, from, meter, matches.get(rules[i]));
+                }
+            }
+            findKeywordSpans(description, window, start, end, from, meter, matches);
+        } catch (MatchBudget.MatchBudgetExceededException e) {
+            // keep the matches found so far
+        }
+    }
+
+    /*
+     * Custom patterns may match anything, so lines are always matched with the text before
+     * them. The built-in patterns only depend on it through their keyword lookbehinds.
+     */
+    @Override
+    public boolean dependsOnContext(String description, int lineStart, int lineEnd) {
+        if (hasCustomPatterns) {
+            return true;
+        }
+        TextWindow window = new TextWindow(description);
+        Matcher[] matchers = new Matcher[patterns.length];
+        for (int p = lineStart; p < Math.min(lineStart + lookbehindReach, lineEnd); p++) {
+            for (int i = 0; i < patterns.length; i++) {
+                if (patterns[i].followsKeyword(description, p, /* lowerBound= */ 0)
+                        && matcher(patterns[i], matchers, i, window.set(p, lineEnd)).lookingAt()) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static void findCustomSpans(LinearPattern pattern, TextWindow window, int start, int end, int from,
+            MatchBudget.Meter meter, List<MatchSpan> matches) {
+        Matcher matcher = pattern.body.matcher(window.set(start, end));
+        while (!meter.isExceeded() && matcher.find()) {
+            if (start + matcher.start() >= from) {
+                matches.add(MatchSpan.create(start + matcher.start(), start + matcher.end()));
+            }
+        }
+    }
+
+    /*
+     * Walks the indexes of the range once for all keyword patterns, matching the rest of a
+     * pattern only where its keyword comes right before the index. A pattern's next match may
+     * not start before its previous match ended, like Matcher.find().
+     *
+     * The rest of a pattern is searched for from the index rather than anchored at it, and the
+     * start of the match found is kept: the pattern can't match anywhere before it, so later
+     * keywords up to there are rejected without reading the text again. Each part of the text
+     * is thus read about once per pattern, even when many keywords are followed by text the
+     * pattern fails on only at its end, such as a quote which is never closed.
+     */
+    private void findKeywordSpans(String description, TextWindow window, int start, int end, int from,
+            MatchBudget.Meter meter, List<List<MatchSpan>> matches) {
+        int[] nextStart = new int[patterns.length];
+        Matcher[] matchers = new Matcher[patterns.length];
+        // start and end of the next match of each pattern at or after the index last searched
+        // from, or end if there is none; -1 before the first search
+        int[] foundStart = new int[patterns.length];
+        int[] foundEnd = new int[patterns.length];
+        Arrays.fill(foundStart, -1);
+        for (int p = start; p < end && !meter.isExceeded(); p++) {
+            for (int i = 0; i < patterns.length; i++) {
+                LinearPattern pattern = patterns[i];
+                if (pattern.keywords == null || p < nextStart[i] || p < foundStart[i]
+                        || !pattern.followsKeyword(description, p, start)) {
+                    continue;
+                }
+                if (p > foundStart[i]) {
+                    Matcher matcher = matcher(pattern, matchers, i, window.set(p, end));
+                    foundStart[i] = matcher.find() ? p + matcher.start(pattern.group) : end;
+                    foundEnd[i] = foundStart[i] < end ? p + matcher.end(pattern.group) : end;
+                }
+                int matchEnd = foundStart[i] == p ? foundEnd[i] : -1;
+                if (matchEnd >= 0) {
+                    if (p >= from) {
+                        matches.get(rules[i]).add(MatchSpan.create(p, matchEnd));
+                    }
+                    nextStart[i] = matchEnd;
+                }
+            }
+        }
+    }
+
+    /* Returns a matcher of the pattern on window, reusing matchers[i] if it was created before. */
+    private static Matcher matcher(LinearPattern pattern, Matcher[] matchers, int i, TextWindow window) {
+        matchers[i] = matchers[i] == null ? pattern.body.matcher(window) : matchers[i].reset(window);
+        return matchers[i];
+    }
+
+    /** A pattern of the linear engine: an optional keyword lookbehind followed by a RE2J pattern. */
+    static final class LinearPattern {
+
+        // lowercase keywords, one of which must come before a match, ignoring ASCII case and
+        // after a word boundary; null for a pattern without lookbehind
+        private final String[] keywords;
+        // characters one of which must end the lookbehind, after the keyword and its gap
+        private final String keywordTerminators;
+        private final Pattern body;
+        // group of body spanning the match
+        private final int group;
+
+        private LinearPattern(String[] keywords, String keywordTerminators, String body, int group) {
+            this.keywords = keywords;
+            this.keywordTerminators = keywordTerminators;
+            this.body = Pattern.compile(body);
+            this.group = group;
+        }
+
+        /*
+         * Returns true if text has a keyword, one or two characters and then one of the
+         * keywordTerminators, if any, right before index p, as the lookbehind of the original
+         * pattern would see it. Nothing before lowerBound is looked at.
+         */
+        boolean followsKeyword(String text, int p, int lowerBound) {
+            int gapEnd = p;
+            if (!keywordTerminators.isEmpty()) {
+                if (p - 1 < lowerBound || keywordTerminators.indexOf(text.charAt(p - 1)) < 0) {
+                    return false;
+                }
+                gapEnd = p - 1;
+            }
+            for (String keyword : keywords) {
+                for (int gap = 1; gap <= MAX_KEYWORD_GAP; gap++) {
+                    int keywordStart = gapEnd - gap - keyword.length();
+                    if (keywordStart >= lowerBound && regionMatchesAsciiIgnoreCase(text, keywordStart, keyword)
+                            && isGap(text, keywordStart + keyword.length(), gapEnd)
+                            && isWordStart(text, keywordStart, lowerBound)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        /* "(?i)" without UNICODE_CASE only folds ASCII letters */
+        private static boolean regionMatchesAsciiIgnoreCase(String text, int start, String keyword) {
+            for (int i = 0; i < keyword.length(); i++) {
+                char c = text.charAt(start + i);
+                boolean asciiUpperCaseMatch = c >= 'A' && c <= 'Z' && (char) (c + ('a' - 'A')) == keyword.charAt(i);
+                if (c != keyword.charAt(i) && !asciiUpperCaseMatch) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /* "(?s).{1,2}": one or two code points spanning text from start to end exactly */
+        private static boolean isGap(String text, int start, int end) {
+            int i = start;
+            for (int codePoints = 0; codePoints < MAX_KEYWORD_GAP && i < end; codePoints++) {
+                i += Character.charCount(Character.codePointAt(text, i));
+            }
+            return i == end;
+        }
+
+        /*
+         * "\b" before a keyword, which starts with a word character: true unless a word
+         * character, or a non-spacing mark on one, comes before index i.
+         */
+        private static boolean isWordStart(String text, int i, int lowerBound) {
+            if (i <= lowerBound) {
+                return true;
+            }
+            int before = Character.codePointBefore(text, i);
+            return !isWord(before) && !(Character.getType(before) == Character.NON_SPACING_MARK
+                    && hasBaseCharacter(text, i - 1, lowerBound));
+        }
+
+        private static boolean isWord(int codePoint) {
+            return codePoint == '_' || Character.isLetterOrDigit(codePoint);
+        }
+
+        private static boolean hasBaseCharacter(String text, int i, int lowerBound) {
+            for (int x = i; x >= lowerBound; x--) {
+                int codePoint = Character.codePointAt(text, x);
+                if (Character.isLetterOrDigit(codePoint)) {
+                    return true;
+                }
+                if (Character.getType(codePoint) != Character.NON_SPACING_MARK) {
+                    return false;
+                }
+            }
+            return false;
+        }
+    }
+
+    /*
+     * The part of a text from offset on, without copying it. RE2J matchers have no regions, so
+     * they are given a window onto the range to match.
+     */
+    private static final class TextWindow implements CharSequence {
+
+        private final CharSequence text;
+        private int offset;
+        private int length;
+
+        TextWindow(CharSequence text) {
+            this.text = text;
+        }
+
+        TextWindow set(int start, int end) {
+            this.offset = start;
+            this.length = end - start;
+            return this;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return text.charAt(offset + index);
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return text.subSequence(offset + start, offset + end);
+        }
+
+        @Override
+        public String toString() {
+            return text.subSequence(offset, offset + length).toString();
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.google.step.youtube;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limit on the work the regular expressions of DescriptionParser may do on one description.
+ * Steps are the characters the regex engine reads, so a step limit bounds backtracking the same
+ * way on every machine, while the time limit also bounds it on a slow or busy one. Once either
+ * limit is hit, matching stops and the matches found so far are returned.
+ */
+public final class MatchBudget {
+
+    /** Budget which never runs out. */
+    public static final MatchBudget UNLIMITED = new MatchBudget(Long.MAX_VALUE, Long.MAX_VALUE);
+
+    private final long maxSteps;
+    private final long maxNanos;
+
+    private MatchBudget(long maxSteps, long maxNanos) {
+        this.maxSteps = maxSteps;
+        this.maxNanos = maxNanos;
+    }
+
+    /**
+     * @param maxSteps Number of characters the regex engine may read.
+     * @param timeout Time matching may take, in the given unit.
+     * @param unit of the timeout.
+     * @return A budget of at most maxSteps steps and the given time per description.
+     */
+    public static MatchBudget of(long maxSteps, long timeout, TimeUnit unit) {
+        checkArgument(maxSteps > 0, "maxSteps must be positive but was %s", maxSteps);
+        checkArgument(timeout > 0, "timeout must be positive but was %s", timeout);
+        return new MatchBudget(maxSteps, unit.toNanos(timeout));
+    }
+
+    public long getMaxSteps() {
+        return maxSteps;
+    }
+
+    public long getMaxNanos() {
+        return maxNanos;
+    }
+
+    /** Starts spending this budget on a description. */
+    Meter start() {
+        return new Meter(maxSteps, maxNanos);
+    }
+
+    @Override
+    public String toString() {
+        return "MatchBudget{maxSteps=" + maxSteps + ", maxNanos=" + maxNanos + "}";
+    }
+
+    /**
+     * Steps and time spent matching a single description. A meter is only used by the thread
+     * parsing the description.
+     */
+    static final class Meter {
+
+        // the clock is only read once every this many steps, as reading it costs far more than a step
+        private static final long CLOCK_CHECK_INTERVAL_MASK = (1 << 12) - 1;
+
+        private final long maxSteps;
+        private final long startNanos;
+        private final long maxNanos;
+        private long steps;
+        private boolean exceeded;
+
+        private Meter(long maxSteps, long maxNanos) {
+            this.maxSteps = maxSteps;
+            this.maxNanos = maxNanos;
+            this.startNanos = System.nanoTime();
+        }
+
+        /**
+         * Counts one step.
+         *
+         * @throws MatchBudgetExceededException if the budget has run out.
+         */
+        void step() {
+            if (exceeded || ++steps > maxSteps
+                    || ((steps & CLOCK_CHECK_INTERVAL_MASK) == 0 && elapsedNanos() > maxNanos)) {
+                exceeded = true;
+                throw new MatchBudgetExceededException();
+            }
+        }
+
+        /** @return true if nothing can run out, so steps don't need to be counted. */
+        boolean isUnlimited() {
+            return maxSteps == Long.MAX_VALUE && maxNanos == Long.MAX_VALUE;
+        }
+
+        /** @return true once matching was stopped for running out of budget. */
+        boolean isExceeded() {
+            return exceeded;
+        }
+
+        long getSteps() {
+            return steps;
+        }
+
+        long elapsedNanos() {
+            return System.nanoTime() - startNanos;
+        }
+    }
+
+    /**
+     * Thrown from within the regex engine to stop matching. It is caught by DescriptionParser,
+     * so it never reaches its callers, and has no stack trace, as it is expected.
+     */
+    static final class MatchBudgetExceededException extends RuntimeException {
+
+        MatchBudgetExceededException() {
+            super("match budget exceeded", /* cause= */ null, /* enableSuppression= */ false,
+                    /* writableStackTrace= */ false);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.google.step.youtube;
+
+import java.util.List;
+
+/**
+ * Regex engine matching the rules of ExtractionRules which have regular expressions. Every
+ * engine gives the same matches for the built-in rules; they differ in how their cost grows
+ * with the input. Engines are immutable and may be used by several threads at once.
+ */
+interface MatchEngine {
+
+    /**
+     * Finds the matches of every rule of the engine between start (inclusive) and end
+     * (exclusive) of description, as if matching description.substring(start, end), and adds
+     * their spans to the list of their rule in matches. Each rule's matches don't overlap, as
+     * with Matcher.find(). Matches starting before index from are left out. Once meter runs out,
+     * only the matches found before are added.
+     */
+    void findSpans(String description, int start, int end, int from, MatchBudget.Meter meter,
+            List<List<MatchSpan>> matches);
+
+    /**
+     * Returns true if the matches of the line of description between lineStart and lineEnd may
+     * depend on the text before the line.
+     */
+    boolean dependsOnContext(String description, int lineStart, int lineEnd);
+}
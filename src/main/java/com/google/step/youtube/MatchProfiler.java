@@ -0,0 +1,230 @@
+package com.google.step.youtube;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.auto.value.AutoValue;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Optional profile of the extraction rules, to tell which rule and which description make
+ * parsing slow. For every rule it keeps histograms of the time taken, the matches found and
+ * the length of the text matched by each call, and it keeps the most recent descriptions
+ * whose parse took at least the slow input threshold in a ring buffer.
+ *
+ * Profiling is off by default, and while it is off parsing only reads a volatile flag. While
+ * it is on, the rules are matched one at a time rather than in a single pass, so each can be
+ * timed; parsing then takes longer, but finds the same offers.
+ */
+public final class MatchProfiler {
+
+    public static final int SLOW_INPUT_CAPACITY = 32;
+    public static final long DEFAULT_SLOW_INPUT_THRESHOLD_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private volatile boolean enabled;
+    private volatile long slowInputThresholdNanos = DEFAULT_SLOW_INPUT_THRESHOLD_NANOS;
+    private final ConcurrentMap<String, RuleProfile> ruleProfiles = new ConcurrentHashMap<>();
+    // ring buffer of slow inputs; nextSlowInput counts every slow input ever recorded
+    private final SlowInput[] slowInputs = new SlowInput[SLOW_INPUT_CAPACITY];
+    private long nextSlowInput;
+    // id of the description being parsed by the thread, if the caller gave one
+    private final ThreadLocal<String> inputId = new ThreadLocal<>();
+
+    MatchProfiler() {}
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Sets how long parsing a description must take for it to be kept as a slow input.
+     */
+    public void setSlowInputThreshold(long threshold, TimeUnit unit) {
+        checkArgument(threshold >= 0, "threshold must not be negative but was %s", threshold);
+        slowInputThresholdNanos = unit.toNanos(threshold);
+    }
+
+    /** @return The profile of every rule which matched a text while profiling, by rule name. */
+    public Map<String, RuleProfile> getRuleProfiles() {
+        return ImmutableMap.copyOf(ruleProfiles);
+    }
+
+    /**
+     * @return The last SLOW_INPUT_CAPACITY descriptions which took at least the slow input
+     *         threshold to parse while profiling, oldest first.
+     */
+    public synchronized List<SlowInput> getSlowInputs() {
+        ImmutableList.Builder<SlowInput> inputs = ImmutableList.builder();
+        for (long i = Math.max(0, nextSlowInput - SLOW_INPUT_CAPACITY); i < nextSlowInput; i++) {
+            inputs.add(slowInputs[(int) (i % SLOW_INPUT_CAPACITY)]);
+        }
+        return inputs.build();
+    }
+
+    /** Forgets all rule profiles and slow inputs. */
+    public synchronized void reset() {
+        ruleProfiles.clear();
+        nextSlowInput = 0;
+        Arrays.fill(slowInputs, null);
+    }
+
+    /*
+     * Runs parser with id as the id of the description it parses, which slow inputs are
+     * reported by.
+     */
+    <T> T withInputId(String id, Supplier<T> parser) {
+        String outerId = inputId.get();
+        inputId.set(id);
+        try {
+            return parser.get();
+        } finally {
+            if (outerId == null) {
+                inputId.remove();
+            } else {
+                inputId.set(outerId);
+            }
+        }
+    }
+
+    /* Records one call matching rule against inputLength characters. */
+    void recordRule(String rule, long nanos, int matches, int inputLength) {
+        RuleProfile profile = ruleProfiles.computeIfAbsent(rule, name -> new RuleProfile());
+        profile.nanos.record(nanos);
+        profile.matches.record(matches);
+        profile.inputLengths.record(inputLength);
+    }
+
+    /* Records that parsing a description of the given length took nanos. */
+    void recordInput(long nanos, int length) {
+        if (nanos < slowInputThresholdNanos) {
+            return;
+        }
+        String id = inputId.get();
+        SlowInput input = SlowInput.create(id == null ? "" : id, length, nanos);
+        synchronized (this) {
+            slowInputs[(int) (nextSlowInput++ % SLOW_INPUT_CAPACITY)] = input;
+        }
+    }
+
+    /** Histograms of the calls of a single rule. */
+    public static final class RuleProfile {
+
+        private final Histogram nanos = new Histogram();
+        private final Histogram matches = new Histogram();
+        private final Histogram inputLengths = new Histogram();
+
+        private RuleProfile() {}
+
+        /** @return The nanoseconds each call took. */
+        public Histogram getNanos() {
+            return nanos;
+        }
+
+        /** @return The number of matches each call found. */
+        public Histogram getMatches() {
+            return matches;
+        }
+
+        /** @return The number of characters each call matched against. */
+        public Histogram getInputLengths() {
+            return inputLengths;
+        }
+    }
+
+    /**
+     * Histogram of non-negative values with a bucket per power of two, so recording a value is
+     * a few atomic additions and percentiles are exact to within a factor of two.
+     */
+    public static final class Histogram {
+
+        private final AtomicLongArray buckets = new AtomicLongArray(Long.SIZE + 1);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final AtomicLong max = new AtomicLong();
+
+        Histogram() {}
+
+        void record(long value) {
+            long nonNegative = Math.max(0, value);
+            // values from 2^(i-1) to 2^i - 1 go in bucket i, 0 in bucket 0
+            buckets.incrementAndGet(Long.SIZE - Long.numberOfLeadingZeros(nonNegative));
+            count.increment();
+            sum.add(nonNegative);
+            max.accumulateAndGet(nonNegative, Math::max);
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getSum() {
+            return sum.sum();
+        }
+
+        public long getMax() {
+            return max.get();
+        }
+
+        public double getMean() {
+            long count = getCount();
+            return count == 0 ? 0 : (double) getSum() / count;
+        }
+
+        /**
+         * @param percentile between 0 and 100.
+         * @return A value at least as large as the given percentile of the values recorded, and
+         *         less than twice as large; 0 if none were recorded.
+         */
+        public long getPercentile(double percentile) {
+            checkArgument(percentile >= 0 && percentile <= 100, "percentile must be in [0, 100] but was %s",
+                    percentile);
+            long count = getCount();
+            long rank = (long) Math.ceil(count * percentile / 100);
+            long seen = 0;
+            for (int i = 0; i < buckets.length(); i++) {
+                seen += buckets.get(i);
+                if (seen >= rank && seen > 0) {
+                    long bucketMax = i == 0 ? 0 : i == Long.SIZE ? Long.MAX_VALUE : (1L << i) - 1;
+                    return Math.min(bucketMax, getMax());
+                }
+            }
+            return 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("count=%d mean=%.1f p50=%d p99=%d max=%d", getCount(), getMean(),
+                    getPercentile(50), getPercentile(99), getMax());
+        }
+    }
+
+    /** Value type for a description which was slow to parse. */
+    @AutoValue
+    public abstract static class SlowInput {
+
+        static SlowInput create(String inputId, int length, long nanos) {
+            return new AutoValue_MatchProfiler_SlowInput(inputId, length, nanos);
+        }
+
+        /** @return The id the description was parsed with, such as a video id, or "" if none. */
+        public abstract String getInputId();
+
+        public abstract int getLength();
+
+        public abstract long getNanos();
+    }
+}
@@ -0,0 +1,18 @@
+package com.google.step.youtube;
+
+import com.google.auto.value.AutoValue;
+
+/**
+ * Value type for the start (inclusive) and end (exclusive) index of a match in a description.
+ */
+@AutoValue
+abstract class MatchSpan {
+
+    static MatchSpan create(int start, int end) {
+        return new AutoValue_MatchSpan(start, end);
+    }
+
+    abstract int getStart();
+
+    abstract int getEnd();
+}
@@ -3,7 +3,9 @@ package com.google.step.youtube;
 import com.google.auto.value.AutoValue;
 
 /**
- * Value type for a promotional code and the text snippet it was extracted from.
+ * Value type for a promotional code and the text snippet it was extracted from. Offers found by
+ * DescriptionParser are LazyOfferSnippets, which are equal to the OfferSnippet created from the
+ * same promotional code and snippet.
  */
 @AutoValue
 public abstract class OfferSnippet {
@@ -0,0 +1,65 @@
+package com.google.step.youtube;
+
+import java.util.List;
+
+/**
+ * The JFR events of one parse of DescriptionParser: a DescriptionParseEvent and, if that event
+ * is enabled, a RuleMatchEvent per extraction rule. Whether rule events are enabled is checked
+ * once, when the parse begins, and their matches are added up over every line the parse
+ * matches, including lines taken from the line memo. Only created if JfrSupport.isAvailable().
+ */
+final class ParseEvents {
+
+    private final DescriptionParseEvent parse;
+    // one per rule, in rule order; null if RuleMatchEvents aren't enabled
+    private final RuleMatchEvent[] ruleMatches;
+
+    private ParseEvents(DescriptionParseEvent parse, RuleMatchEvent[] ruleMatches) {
+        this.parse = parse;
+        this.ruleMatches = ruleMatches;
+    }
+
+    /** Begins the events of parsing description with method and rules. */
+    static ParseEvents begin(String method, String description, ExtractionRules rules) {
+        DescriptionParseEvent parse = new DescriptionParseEvent(method, description.length());
+        parse.begin();
+        RuleMatchEvent first = new RuleMatchEvent();
+        if (!first.isEnabled()) {
+            return new ParseEvents(parse, null);
+        }
+        List<String> names = rules.getRuleNames();
+        RuleMatchEvent[] ruleMatches = new RuleMatchEvent[names.size()];
+        for (int i = 0; i < ruleMatches.length; i++) {
+            ruleMatches[i] = i == 0 ? first : new RuleMatchEvent();
+            ruleMatches[i].rule = names.get(i);
+            ruleMatches[i].inputLength = description.length();
+            ruleMatches[i].begin();
+        }
+        return new ParseEvents(parse, ruleMatches);
+    }
+
+    /** Adds the spans of the matches of each rule in part of the description. */
+    void addMatches(List<? extends List<MatchSpan>> spans) {
+        if (ruleMatches == null) {
+            return;
+        }
+        for (int i = 0; i < ruleMatches.length; i++) {
+            ruleMatches[i].matches += spans.get(i).size();
+        }
+    }
+
+    /** Ends the events of a parse which found offers. */
+    void commit(int offers) {
+        if (parse.shouldCommit()) {
+            parse.offers = offers;
+            parse.commit();
+        }
+        if (ruleMatches != null) {
+            for (RuleMatchEvent ruleMatch : ruleMatches) {
+                if (ruleMatch.shouldCommit()) {
+                    ruleMatch.commit();
+                }
+            }
+        }
+    }
+}
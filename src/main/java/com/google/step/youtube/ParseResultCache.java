@@ -0,0 +1,121 @@
+package com.google.step.youtube;
+
+import com.google.auto.value.AutoValue;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * Size bounded cache of parse results, keyed by a 128 bit hash of the description (plus the
+ * company, for parseByCompany) and the version of the ExtractionRules which found them.
+ * Descriptions aren't kept as keys, but the cached offers hold on to their description, so
+ * entries are weighed by description length. The least recently used entries are evicted
+ * first. Hit, miss and eviction counts are recorded.
+ */
+final class ParseResultCache {
+
+    // max total length of the descriptions of all cached results, about 8 MB of chars
+    @VisibleForTesting
+    static final long MAX_CACHED_CHARS = 4_000_000;
+    // company of the keys of parse() results, which isByCompany() tells apart from parseByCompany("", ...)
+    private static final String NO_COMPANY = "";
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+    private final Cache<Key, ImmutableList<OfferSnippet>> cache;
+
+    ParseResultCache(long maxCachedChars) {
+        this.cache = CacheBuilder.newBuilder()
+                .maximumWeight(maxCachedChars)
+                .<Key, ImmutableList<OfferSnippet>>weigher((key, offers) -> Math.max(1, key.getDescriptionLength()))
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Returns the cached offers of parse(description) with the rules of rulesVersion, or
+     * computes them with parser.
+     */
+    List<OfferSnippet> get(long rulesVersion, String description, Supplier<List<OfferSnippet>> parser) {
+        return get(key(rulesVersion, NO_COMPANY, false, description), parser);
+    }
+
+    /**
+     * Returns the cached offers of parseByCompany(company, description) with the rules of
+     * rulesVersion, or computes them with parser.
+     */
+    List<OfferSnippet> get(long rulesVersion, String company, String description,
+            Supplier<List<OfferSnippet>> parser) {
+        return get(key(rulesVersion, company, true, description), parser);
+    }
+
+    /** Discards the cached offers of parse(description) with the rules of rulesVersion. */
+    void invalidate(long rulesVersion, String description) {
+        cache.invalidate(key(rulesVersion, NO_COMPANY, false, description));
+    }
+
+    /**
+     * Discards the cached offers of parseByCompany(company, description) with the rules of
+     * rulesVersion.
+     */
+    void invalidate(long rulesVersion, String company, String description) {
+        cache.invalidate(key(rulesVersion, company, true, description));
+    }
+
+    CacheStats stats() {
+        return cache.stats();
+    }
+
+    void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    private List<OfferSnippet> get(Key key, Supplier<List<OfferSnippet>> parser) {
+        try {
+            // callers may modify the list they get, so each gets its own copy
+            return new ArrayList<>(cache.get(key, () -> ImmutableList.copyOf(parser.get())));
+        } catch (UncheckedExecutionException exception) {
+            // rethrow what parsing threw, as if there were no cache
+            Throwables.throwIfUnchecked(exception.getCause());
+            throw exception;
+        } catch (ExecutionException exception) {
+            throw new IllegalStateException(exception.getCause());
+        }
+    }
+
+    private static Key key(long rulesVersion, String company, boolean byCompany, String description) {
+        return Key.create(HASH_FUNCTION.hashString(description, StandardCharsets.UTF_8), company, byCompany,
+                description.length(), rulesVersion);
+    }
+
+    @AutoValue
+    abstract static class Key {
+
+        static Key create(HashCode descriptionHash, String company, boolean byCompany, int descriptionLength,
+                long rulesVersion) {
+            return new AutoValue_ParseResultCache_Key(descriptionHash, company, byCompany, descriptionLength,
+                    rulesVersion);
+        }
+
+        abstract HashCode getDescriptionHash();
+
+        abstract String getCompany();
+
+        abstract boolean isByCompany();
+
+        abstract int getDescriptionLength();
+
+        abstract long getRulesVersion();
+    }
+}
@@ -0,0 +1,231 @@
+package com.google.step.youtube;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Finds links in proximity to a "$[0-9]" or "[0-9]%" symbol, giving the same matches as
+ * DescriptionParser.Patterns.SYMBOL_NEAR_LINK. Instead of a 100 character lookbehind and
+ * lookahead around every link candidate, the positions of symbols and line terminators are
+ * indexed once and links are paired with them by distance, so the cost is linear in the
+ * length of the description.
+ *
+ * <p>Like the regex, a link never ends between the two halves of a surrogate pair, and the
+ * distance to a symbol after a link is counted in code points, as "." matches a whole pair.
+ * The distance to a symbol before a link is counted in chars, as Pattern bounds the length of
+ * a lookbehind in chars.
+ */
+final class ProximityLinkDetector {
+
+    // max number of characters allowed between a symbol and a link; code points after the link
+    private static final int MAX_DISTANCE = 100;
+    private static final int SYMBOL_LENGTH = 2;
+    private static final int NONE = -1;
+
+    // index arrays are reused by each thread for ranges up to this length, longer ranges get
+    // their own arrays so a single huge description doesn't stay in memory with the thread
+    private static final int MAX_REUSED_LENGTH = 1 << 16;
+    private static final ThreadLocal<Index> INDEX = ThreadLocal.withInitial(Index::new);
+
+    private ProximityLinkDetector() {}
+
+    /**
+     * Finds all links near a symbol in the given string.
+     *
+     * @param description of the YouTube video to be parsed.
+     * @return A list of the spans of all matched links, in order of appearance.
+     */
+    static List<MatchSpan> findMatches(String description) {
+        return findMatches(description, 0, description.length());
+    }
+
+    /**
+     * Finds all links near a symbol between start (inclusive) and end (exclusive) of the given
+     * string, as if searching description.substring(start, end).
+     *
+     * @param description of the YouTube video to be parsed.
+     * @return A list of the spans of all matched links in description, in order of appearance.
+     */
+    static List<MatchSpan> findMatches(String description, int start, int end) {
+        Index index = end - start > MAX_REUSED_LENGTH ? new Index() : INDEX.get();
+        index.build(description, start, end);
+
+        List<MatchSpan> matches = new ArrayList<>();
+        int linkStart = start;
+        while (linkStart < end) {
+            int bodyStart = linkBodyStart(description, linkStart, end);
+            if (bodyStart == NONE) {
+                linkStart++;
+                continue;
+            }
+            int bodyEnd = index.linkBodyEnd(bodyStart);
+
+            // symbol before the link, with 1 to MAX_DISTANCE characters and no line break between
+            int symbolEnd = linkStart > start ? index.symbolEndBefore(linkStart - 1) : NONE;
+            if (symbolEnd != NONE
+                    && symbolEnd >= Math.max(linkStart - MAX_DISTANCE, index.terminatorBefore(linkStart) + 1)) {
+                matches.add(MatchSpan.create(linkStart, bodyEnd));
+                linkStart = bodyEnd;
+                continue;
+            }
+
+            // symbol after the link; like the regex, shorten the link to the longest one that works
+            int linkEnd = index.lastLinkEndWithSymbolAfter(bodyEnd);
+            if (linkEnd != NONE && linkEnd > bodyStart) {
+                matches.add(MatchSpan.create(linkStart, linkEnd));
+                linkStart = linkEnd;
+                continue;
+            }
+            linkStart++;
+        }
+        return matches;
+    }
+
+    /*
+     * Returns the index after "http", any number of 's' and "://" starting at index, if a
+     * link body character follows it before end. Otherwise returns NONE.
+     */
+    private static int linkBodyStart(String description, int index, int end) {
+        if (!startsWith(description, "http", index, end)) {
+            return NONE;
+        }
+        int schemeEnd = index + "http".length();
+        while (schemeEnd < end && description.charAt(schemeEnd) == 's') {
+            schemeEnd++;
+        }
+        if (!startsWith(description, "://", schemeEnd, end)) {
+            return NONE;
+        }
+        int bodyStart = schemeEnd + "://".length();
+        if (bodyStart >= end || !isLinkBodyChar(description.charAt(bodyStart))) {
+            return NONE;
+        }
+        return bodyStart;
+    }
+
+    private static boolean startsWith(String description, String prefix, int index, int end) {
+        return index + prefix.length() <= end && description.startsWith(prefix, index);
+    }
+
+    /* "[0-9]%" or "\$[0-9]" starting at index */
+    private static boolean isSymbol(String description, int index, int start, int end) {
+        if (index < start || index + SYMBOL_LENGTH > end) {
+            return false;
+        }
+        char first = description.charAt(index);
+        char second = description.charAt(index + 1);
+        return (isDigit(first) && second == '%') || (first == '$' && isDigit(second));
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /* "[^\s,\)]" */
+    private static boolean isLinkBodyChar(char c) {
+        return c != ' ' && c != '\t' && c != '\n' && c != '\u000B' && c != '\f' && c != '\r'
+                && c != ',' && c != ')';
+    }
+
+    /* whether index holds the low surrogate of a pair starting at or after start */
+    private static boolean isInsidePair(String description, int index, int start) {
+        return index > start && Character.isLowSurrogate(description.charAt(index))
+                && Character.isHighSurrogate(description.charAt(index - 1));
+    }
+
+    /* characters not matched by "." without the DOTALL flag */
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
+    /*
+     * Positions of symbols, line terminators and link bodies in a range of a description. All
+     * arrays are indexed relative to the start of the range, and hold absolute indexes.
+     */
+    private static final class Index {
+        private int start;
+        // symbolEndBefore[i]: largest end index <= i of a symbol, or NONE
+        private int[] symbolEndBefore = new int[0];
+        // symbolStartAfter[i]: smallest start index >= i of a symbol, or NONE
+        private int[] symbolStartAfter = new int[0];
+        // terminatorBefore[i]: largest index < i of a line terminator, or NONE
+        private int[] terminatorBefore = new int[0];
+        // terminatorAfter[i]: smallest index >= i of a line terminator, or end
+        private int[] terminatorAfter = new int[0];
+        // linkBodyEnd[i]: smallest index >= i of a character that can't be in a link body, or end
+        private int[] linkBodyEnd = new int[0];
+        // lastLinkEndWithSymbolAfter[i]: largest end index e <= i, not inside a surrogate pair, of
+        // a link which would be followed by a symbol within MAX_DISTANCE code points on the same
+        // line, or NONE
+        private int[] lastLinkEndWithSymbolAfter = new int[0];
+        // codePointsBefore[i]: number of code points from start up to i
+        private int[] codePointsBefore = new int[0];
+
+        void build(String description, int start, int end) {
+            int length = end - start;
+            ensureCapacity(length + 2);
+            this.start = start;
+
+            symbolEndBefore[0] = NONE;
+            terminatorBefore[0] = NONE;
+            codePointsBefore[0] = 0;
+            for (int i = 1; i <= length; i++) {
+                int index = start + i;
+                symbolEndBefore[i] = isSymbol(description, index - SYMBOL_LENGTH, start, end)
+                        ? index : symbolEndBefore[i - 1];
+                terminatorBefore[i] = isLineTerminator(description.charAt(index - 1))
+                        ? index - 1 : terminatorBefore[i - 1];
+                codePointsBefore[i] = isInsidePair(description, index - 1, start)
+                        ? codePointsBefore[i - 1] : codePointsBefore[i - 1] + 1;
+            }
+            symbolStartAfter[length + 1] = NONE;
+            symbolStartAfter[length] = NONE;
+            terminatorAfter[length] = end;
+            linkBodyEnd[length] = end;
+            for (int i = length - 1; i >= 0; i--) {
+                int index = start + i;
+                char c = description.charAt(index);
+                symbolStartAfter[i] = isSymbol(description, index, start, end) ? index : symbolStartAfter[i + 1];
+                terminatorAfter[i] = isLineTerminator(c) ? index : terminatorAfter[i + 1];
+                linkBodyEnd[i] = isLinkBodyChar(c) ? linkBodyEnd[i + 1] : index;
+            }
+            for (int i = 0; i <= length; i++) {
+                int index = start + i;
+                int symbolStart = symbolStartAfter[i + 1];
+                boolean symbolAfter = symbolStart != NONE && symbolStart <= terminatorAfter[i]
+                        && codePointsBefore[symbolStart - start] - codePointsBefore[i] <= MAX_DISTANCE
+                        && (index == end || !isInsidePair(description, index, start));
+                lastLinkEndWithSymbolAfter[i] = symbolAfter ? index : (i == 0 ? NONE : lastLinkEndWithSymbolAfter[i - 1]);
+            }
+        }
+
+        int symbolEndBefore(int index) {
+            return symbolEndBefore[index - start];
+        }
+
+        int terminatorBefore(int index) {
+            return terminatorBefore[index - start];
+        }
+
+        int linkBodyEnd(int index) {
+            return linkBodyEnd[index - start];
+        }
+
+        int lastLinkEndWithSymbolAfter(int index) {
+            return lastLinkEndWithSymbolAfter[index - start];
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (symbolStartAfter.length >= capacity) {
+                return;
+            }
+            symbolEndBefore = new int[capacity];
+            symbolStartAfter = new int[capacity];
+            terminatorBefore = new int[capacity];
+            terminatorAfter = new int[capacity];
+            linkBodyEnd = new int[capacity];
+            lastLinkEndWithSymbolAfter = new int[capacity];
+            codePointsBefore = new int[capacity];
+        }
+    }
+}
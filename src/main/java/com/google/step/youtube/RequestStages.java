@@ -0,0 +1,98 @@
+package com.google.step.youtube;
+
+import com.google.common.collect.ImmutableMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Time spent and items handled in each stage of serving one request, such as a call to an API
+ * endpoint or parsing the descriptions. A servlet begins the stages of a request on the thread
+ * serving it, and YouTubeInfoScraper adds to them as it goes, also from tasks it runs for the
+ * request on other threads. A stage done more than once in a request adds up, and stages
+ * running at the same time each count in full. Without stages begun on the thread, recording
+ * does nothing.
+ */
+public final class RequestStages {
+
+    private static final ThreadLocal<RequestStages> current = new ThreadLocal<>();
+
+    // in order of first record
+    private final Map<String, Long> nanos = new LinkedHashMap<>();
+    private final Map<String, Integer> items = new LinkedHashMap<>();
+
+    private RequestStages() {}
+
+    /** Begins recording the stages of a request on the calling thread. */
+    public static RequestStages begin() {
+        RequestStages stages = new RequestStages();
+        current.set(stages);
+        return stages;
+    }
+
+    /** Stops recording on the calling thread; the stages recorded so far are kept. */
+    public void end() {
+        if (current.get() == this) {
+            current.remove();
+        }
+    }
+
+    /**
+     * @return task made to record into the stages of the calling thread, if any, wherever it
+     *         runs, such as on an executor fetching for the request.
+     */
+    public static <T> Supplier<T> inherit(Supplier<T> task) {
+        RequestStages stages = current.get();
+        if (stages == null) {
+            return task;
+        }
+        return () -> {
+            RequestStages outer = current.get();
+            current.set(stages);
+            try {
+                return task.get();
+            } finally {
+                if (outer == null) {
+                    current.remove();
+                } else {
+                    current.set(outer);
+                }
+            }
+        };
+    }
+
+    /** @return Whether the calling thread is recording stages, so starting a timer is worth it. */
+    public static boolean isRecording() {
+        return current.get() != null;
+    }
+
+    /**
+     * Adds to a stage of the request the calling thread is recording, if any.
+     *
+     * @param stage Name of the stage, such as "playlistItems.list".
+     * @param stageNanos Time the stage took.
+     * @param stageItems Number of items the stage handled.
+     */
+    public static void record(String stage, long stageNanos, int stageItems) {
+        RequestStages stages = current.get();
+        if (stages != null) {
+            stages.add(stage, stageNanos, stageItems);
+        }
+    }
+
+    /** @return The time taken by each stage, in order of first record. */
+    public synchronized Map<String, Long> getNanos() {
+        return ImmutableMap.copyOf(nanos);
+    }
+
+    /** @return The number of items handled by each stage, in order of first record. */
+    public synchronized Map<String, Integer> getItems() {
+        return ImmutableMap.copyOf(items);
+    }
+
+    // stages running on different threads, such as a fetch and a parse, may add at once
+    private synchronized void add(String stage, long stageNanos, int stageItems) {
+        nanos.merge(stage, stageNanos, Long::sum);
+        items.merge(stage, stageItems, Integer::sum);
+    }
+}
@@ -0,0 +1,34 @@
+package com.google.step.youtube;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event for the matches of one extraction rule in one parse of a description, lasting as
+ * long as the parse, so the events of a parse share its duration. Matches of lines taken from
+ * the line memo are counted too. Only created if JfrSupport.isAvailable().
+ */
+@Name("com.google.step.youtube.RuleMatch")
+@Label("Rule Match")
+@Category({"PromoTube", "Parse"})
+@Description("Matches of an extraction rule in a description")
+@Enabled(false)
+@StackTrace(false)
+final class RuleMatchEvent extends jdk.jfr.Event {
+
+    @Label("Rule")
+    @Description("Name of the extraction rule, such as CODE_NO_QUOTES")
+    String rule;
+
+    @Label("Input Length")
+    @Description("Number of characters of the description")
+    int inputLength;
+
+    @Label("Matches")
+    @Description("Number of matches found")
+    int matches;
+}
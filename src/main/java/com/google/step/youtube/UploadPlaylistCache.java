@@ -0,0 +1,106 @@
+package com.google.step.youtube;
+
+import com.google.auto.value.AutoValue;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.io.IOException;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Cache of the upload playlist ids of channels, keyed by channel id or username, since a
+ * channel's upload playlist practically never changes. Found ids are kept for FOUND_TTL_HOURS
+ * and channels found missing for MISSING_TTL_MINUTES, so a new channel shows up soon after.
+ * Failed lookups aren't kept.
+ *
+ * The upload playlist of a channel id of the usual form UC... is UU... with the same suffix,
+ * which deriveFromChannelId() gives without asking the API.
+ */
+final class UploadPlaylistCache {
+
+    @VisibleForTesting
+    static final long FOUND_TTL_HOURS = 24;
+    @VisibleForTesting
+    static final long MISSING_TTL_MINUTES = 10;
+    private static final long MAX_ENTRIES = 10_000;
+    // "UC" and 22 characters of url-safe base64
+    private static final Pattern CHANNEL_ID = Pattern.compile("UC[A-Za-z0-9_-]{22}");
+
+    private final Cache<Key, String> found;
+    // the value is unused, the presence of a key tells the channel is missing
+    private final Cache<Key, Boolean> missing;
+
+    UploadPlaylistCache(Ticker ticker) {
+        this.found = CacheBuilder.newBuilder().maximumSize(MAX_ENTRIES)
+                .expireAfterWrite(FOUND_TTL_HOURS, TimeUnit.HOURS).ticker(ticker).build();
+        this.missing = CacheBuilder.newBuilder().maximumSize(MAX_ENTRIES)
+                .expireAfterWrite(MISSING_TTL_MINUTES, TimeUnit.MINUTES).ticker(ticker).build();
+    }
+
+    /**
+     * @return The upload playlist id of channelId, if it is of the usual form; empty if the
+     *         API must be asked.
+     */
+    static Optional<String> deriveFromChannelId(String channelId) {
+        if (!CHANNEL_ID.matcher(channelId).matches()) {
+            return Optional.empty();
+        }
+        return Optional.of("UU" + channelId.substring(2));
+    }
+
+    /** Returns the cached upload playlist id of channelId, or looks it up with lookup. */
+    Optional<String> getByChannelId(String channelId, Lookup lookup) throws IOException {
+        return get(Key.create(/* byUserName= */ false, channelId), lookup);
+    }
+
+    /** Returns the cached upload playlist id of userName, or looks it up with lookup. */
+    Optional<String> getByUserName(String userName, Lookup lookup) throws IOException {
+        return get(Key.create(/* byUserName= */ true, userName), lookup);
+    }
+
+    void invalidateAll() {
+        found.invalidateAll();
+        missing.invalidateAll();
+    }
+
+    /*
+     * Lookups of a key at the same time may each call the API; they find the same id, and it
+     * saves blocking on the first.
+     */
+    private Optional<String> get(Key key, Lookup lookup) throws IOException {
+        String uploadId = found.getIfPresent(key);
+        if (uploadId != null) {
+            return Optional.of(uploadId);
+        }
+        if (missing.getIfPresent(key) != null) {
+            return Optional.empty();
+        }
+        Optional<String> looked = lookup.find();
+        if (looked.isPresent()) {
+            found.put(key, looked.get());
+        } else {
+            missing.put(key, Boolean.TRUE);
+        }
+        return looked;
+    }
+
+    /** Asks the API for an upload playlist id. */
+    interface Lookup {
+        Optional<String> find() throws IOException;
+    }
+
+    @AutoValue
+    abstract static class Key {
+
+        static Key create(boolean byUserName, String id) {
+            return new AutoValue_UploadPlaylistCache_Key(byUserName, id);
+        }
+
+        abstract boolean isByUserName();
+
+        abstract String getId();
+    }
+}
@@ -0,0 +1,39 @@
+package com.google.step.youtube;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event for a call of YouTubeInfoScraper to the YouTube Data API, lasting from sending the
+ * request to parsing the response. Only created if JfrSupport.isAvailable().
+ */
+@Name("com.google.step.youtube.YouTubeApiCall")
+@Label("YouTube API Call")
+@Category({"PromoTube", "Fetch"})
+@Description("A request to the YouTube Data API")
+@Enabled(false)
+@StackTrace(false)
+final class YouTubeApiCallEvent extends jdk.jfr.Event {
+
+    @Label("Endpoint")
+    @Description("API method called, such as playlistItems.list")
+    String endpoint;
+
+    @Label("Items")
+    @Description("Number of items in the response")
+    int itemCount;
+
+    @Label("Response Size")
+    @Description("Bytes of the response body as received, from its Content-Length; -1 if it had none")
+    @DataAmount
+    long bytes;
+
+    YouTubeApiCallEvent(String endpoint) {
+        this.endpoint = endpoint;
+    }
+}
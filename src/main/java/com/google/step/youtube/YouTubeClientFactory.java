@@ -0,0 +1,259 @@
+package com.google.step.youtube;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.api.client.http.HttpRequest;
+import com.google.api.client.http.HttpTransport;
+import com.google.api.client.http.apache.ApacheHttpTransport;
+import com.google.api.client.json.jackson2.JacksonFactory;
+import com.google.api.services.youtube.YouTube;
+import com.google.api.services.youtube.YouTubeRequestInitializer;
+import com.google.auto.value.AutoValue;
+import java.io.IOException;
+import java.net.ProxySelector;
+import java.util.concurrent.TimeUnit;
+import org.apache.http.HttpHost;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.impl.conn.SystemDefaultRoutePlanner;
+import org.apache.http.protocol.HttpContext;
+
+/**
+ * Builds the HTTP transport and YouTube client the scrapers share. The transport keeps a pool
+ * of connections to reuse, so requests after the first to an endpoint skip the TCP and TLS
+ * handshakes; its size, how long idle connections are kept, the timeouts and gzip are set by a
+ * Config.
+ *
+ * The shared factory reads its Config from the promotube.http.* system properties.
+ */
+public final class YouTubeClientFactory {
+
+    // TODO: Add seperate file to hold API Key
+    private static final String API_KEY = "";
+    private static final String APPLICATION_NAME = "promotube";
+
+    private final Config config;
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final HttpTransport transport;
+    private final YouTube client;
+
+    public YouTubeClientFactory(Config config) {
+        this.config = config;
+        connectionManager = new PoolingHttpClientConnectionManager(config.getKeepAliveMillis(), TimeUnit.MILLISECONDS);
+        connectionManager.setMaxTotal(config.getMaxConnections());
+        connectionManager.setDefaultMaxPerRoute(config.getMaxConnectionsPerRoute());
+        // a pooled connection idle for this long is checked before reuse, in case the server closed it
+        connectionManager.setValidateAfterInactivity(1000);
+        CloseableHttpClient httpClient = HttpClients.custom().setConnectionManager(connectionManager)
+                .setKeepAliveStrategy((response, context) -> {
+                    long serverKeepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE
+                            .getKeepAliveDuration(response, context);
+                    return serverKeepAlive > 0 ? Math.min(serverKeepAlive, config.getKeepAliveMillis())
+                            : config.getKeepAliveMillis();
+                })
+                .setDefaultRequestConfig(RequestConfig.custom().setConnectTimeout(config.getConnectTimeoutMillis())
+                        .setSocketTimeout(config.getReadTimeoutMillis())
+                        .setConnectionRequestTimeout(config.getConnectTimeoutMillis()).build())
+                .setRoutePlanner(new SystemDefaultRoutePlanner(ProxySelector.getDefault()))
+                // HttpRequest of the client library follows redirects, retries and decodes gzip
+                .disableRedirectHandling().disableAutomaticRetries().disableContentCompression()
+                .build();
+        transport = new ApacheHttpTransport(new ParamsHttpClient(httpClient));
+        client = new YouTube.Builder(transport, JacksonFactory.getDefaultInstance(), this::initialize)
+                .setApplicationName(APPLICATION_NAME).setYouTubeRequestInitializer(new YouTubeRequestInitializer(API_KEY))
+                .build();
+    }
+
+    /** @return The factory the servlets share, built on first use. */
+    public static YouTubeClientFactory getShared() {
+        return SharedFactory.INSTANCE;
+    }
+
+    /** @return The pooled transport, which is thread-safe. */
+    public HttpTransport getTransport() {
+        return transport;
+    }
+
+    /** @return The YouTube client on the pooled transport, which is thread-safe. */
+    public YouTube getClient() {
+        return client;
+    }
+
+    public Config getConfig() {
+        return config;
+    }
+
+    /** @return The number of connections of the pool in each state now. */
+    public PoolStats getPoolStats() {
+        org.apache.http.pool.PoolStats stats = connectionManager.getTotalStats();
+        return PoolStats.create(stats.getLeased(), stats.getAvailable(), stats.getPending(), stats.getMax());
+    }
+
+    /** Closes the connections of the pool; requests made after fail. */
+    public void close() {
+        connectionManager.shutdown();
+    }
+
+    /* Sets the timeouts and gzip of every request; HttpRequest overrides the client's defaults. */
+    private void initialize(HttpRequest request) {
+        request.setConnectTimeout(config.getConnectTimeoutMillis());
+        request.setReadTimeout(config.getReadTimeoutMillis());
+        request.getHeaders().setAcceptEncoding(config.getGzip() ? "gzip" : null);
+    }
+
+    /** Configuration of the pooled transport. */
+    @AutoValue
+    public abstract static class Config {
+
+        public static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 20;
+        public static final int DEFAULT_MAX_CONNECTIONS = 50;
+        public static final int DEFAULT_KEEP_ALIVE_MILLIS = 30_000;
+        public static final int DEFAULT_CONNECT_TIMEOUT_MILLIS = 5_000;
+        public static final int DEFAULT_READ_TIMEOUT_MILLIS = 15_000;
+
+        /** Connections to a host at most; all API calls go to www.googleapis.com. */
+        public abstract int getMaxConnectionsPerRoute();
+
+        /** Connections of the pool at most. */
+        public abstract int getMaxConnections();
+
+        /** How long an idle connection is kept, unless the server asks for less. */
+        public abstract int getKeepAliveMillis();
+
+        /** How long to wait for a connection, from the pool or the server. */
+        public abstract int getConnectTimeoutMillis();
+
+        /** How long to wait for data of a response. */
+        public abstract int getReadTimeoutMillis();
+
+        /** Whether responses are asked for gzipped. */
+        public abstract boolean getGzip();
+
+        public abstract Builder toBuilder();
+
+        /** @return A builder set to the defaults. */
+        public static Builder builder() {
+            return new AutoValue_YouTubeClientFactory_Config.Builder()
+                    .setMaxConnectionsPerRoute(DEFAULT_MAX_CONNECTIONS_PER_ROUTE)
+                    .setMaxConnections(DEFAULT_MAX_CONNECTIONS).setKeepAliveMillis(DEFAULT_KEEP_ALIVE_MILLIS)
+                    .setConnectTimeoutMillis(DEFAULT_CONNECT_TIMEOUT_MILLIS)
+                    .setReadTimeoutMillis(DEFAULT_READ_TIMEOUT_MILLIS).setGzip(true);
+        }
+
+        /**
+         * @return The defaults, overridden by the system properties promotube.http.
+         *         maxConnectionsPerRoute, maxConnections, keepAliveMillis, connectTimeoutMillis,
+         *         readTimeoutMillis and gzip.
+         */
+        public static Config fromSystemProperties() {
+            return builder()
+                    .setMaxConnectionsPerRoute(Integer.getInteger("promotube.http.maxConnectionsPerRoute",
+                            DEFAULT_MAX_CONNECTIONS_PER_ROUTE))
+                    .setMaxConnections(Integer.getInteger("promotube.http.maxConnections", DEFAULT_MAX_CONNECTIONS))
+                    .setKeepAliveMillis(Integer.getInteger("promotube.http.keepAliveMillis", DEFAULT_KEEP_ALIVE_MILLIS))
+                    .setConnectTimeoutMillis(Integer.getInteger("promotube.http.connectTimeoutMillis",
+                            DEFAULT_CONNECT_TIMEOUT_MILLIS))
+                    .setReadTimeoutMillis(Integer.getInteger("promotube.http.readTimeoutMillis",
+                            DEFAULT_READ_TIMEOUT_MILLIS))
+                    .setGzip(Boolean.parseBoolean(System.getProperty("promotube.http.gzip", "true")))
+                    .build();
+        }
+
+        @AutoValue.Builder
+        public abstract static class Builder {
+
+            public abstract Builder setMaxConnectionsPerRoute(int maxConnectionsPerRoute);
+
+            public abstract Builder setMaxConnections(int maxConnections);
+
+            public abstract Builder setKeepAliveMillis(int keepAliveMillis);
+
+            public abstract Builder setConnectTimeoutMillis(int connectTimeoutMillis);
+
+            public abstract Builder setReadTimeoutMillis(int readTimeoutMillis);
+
+            public abstract Builder setGzip(boolean gzip);
+
+            abstract Config autoBuild();
+
+            public Config build() {
+                Config config = autoBuild();
+                checkArgument(config.getMaxConnectionsPerRoute() >= 1, "maxConnectionsPerRoute must be at least 1");
+                checkArgument(config.getMaxConnections() >= config.getMaxConnectionsPerRoute(),
+                        "maxConnections must be at least maxConnectionsPerRoute");
+                checkArgument(config.getKeepAliveMillis() >= 0, "keepAliveMillis must not be negative");
+                checkArgument(config.getConnectTimeoutMillis() >= 0, "connectTimeoutMillis must not be negative");
+                checkArgument(config.getReadTimeoutMillis() >= 0, "readTimeoutMillis must not be negative");
+                return config;
+            }
+        }
+    }
+
+    /** Value type for the number of connections of the pool in each state. */
+    @AutoValue
+    public abstract static class PoolStats {
+
+        static PoolStats create(int leased, int idle, int pending, int max) {
+            return new AutoValue_YouTubeClientFactory_PoolStats(leased, idle, pending, max);
+        }
+
+        /** @return The number of connections in use by a request. */
+        public abstract int getLeased();
+
+        /** @return The number of open connections waiting to be reused. */
+        public abstract int getIdle();
+
+        /** @return The number of requests waiting for a connection. */
+        public abstract int getPending();
+
+        /** @return The number of connections of the pool at most. */
+        public abstract int getMax();
+    }
+
+    /*
+     * ApacheHttpTransport sets its options on the client's HttpParams, which clients made by
+     * HttpClients don't support; this one has its own, which the pooled client then ignores.
+     * The deprecated types are named in full, as imports of them aren't covered by the
+     * annotation.
+     */
+    @SuppressWarnings("deprecation")
+    private static final class ParamsHttpClient extends CloseableHttpClient {
+
+        private final CloseableHttpClient delegate;
+        private final org.apache.http.params.HttpParams params = new org.apache.http.params.BasicHttpParams();
+
+        ParamsHttpClient(CloseableHttpClient delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        protected CloseableHttpResponse doExecute(HttpHost target, org.apache.http.HttpRequest request,
+                HttpContext context) throws IOException {
+            return delegate.execute(target, request, context);
+        }
+
+        @Override
+        public org.apache.http.params.HttpParams getParams() {
+            return params;
+        }
+
+        @Override
+        public org.apache.http.conn.ClientConnectionManager getConnectionManager() {
+            return delegate.getConnectionManager();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+    }
+
+    // holds the shared factory, so its pool is made on the first call to getShared()
+    private static final class SharedFactory {
+        static final YouTubeClientFactory INSTANCE = new YouTubeClientFactory(Config.fromSystemProperties());
+    }
+}
@@ -2,6 +2,7 @@
 package com.google.step.youtube;
 
 import static com.google.api.client.repackaged.com.google.common.base.Preconditions.checkState;
+import static com.google.common.base.Preconditions.checkArgument;
 
 import com.google.api.services.youtube.model.ChannelListResponse;
 import com.google.api.services.youtube.model.PlaylistItem;
@@ -13,15 +14,33 @@ import com.google.api.services.youtube.model.SearchListResponse;
 import com.google.api.services.youtube.model.SearchResult;
 import com.google.api.services.youtube.model.PlaylistItemListResponse;
 import com.google.api.services.youtube.YouTube;
-import com.google.api.services.youtube.YouTubeRequestInitializer;
-import com.google.api.client.json.jackson2.JacksonFactory;
-import com.google.api.client.http.javanet.NetHttpTransport;
+import com.google.api.services.youtube.YouTube.PlaylistItems;
+import com.google.api.services.youtube.YouTube.Search;
+import com.google.api.services.youtube.YouTubeRequest;
+import com.google.api.client.http.HttpHeaders;
+import com.google.api.client.http.HttpResponseException;
+import com.google.api.client.http.HttpStatusCodes;
+import com.google.api.client.json.GenericJson;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Throwables;
+import com.google.common.base.Ticker;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.Deque;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
 
 /**
  * Scrapes a channel's upload playlist and scrapes the channel's videos +
@@ -29,64 +48,215 @@ import java.util.Optional;
  */
 public class YouTubeInfoScraper {
 
-    // TODO: Add seperate file to hold API Key
-    private static final String API_KEY = "";
-    private static final String APPLICATION_NAME = "promotube";
     private final YouTube youTubeClient;
+    // descriptions of a request are parsed in parallel on this executor
+    private final Executor parseExecutor;
+    // API calls made alongside others of a request are made on this executor, such as the next
+    // page of a playlist while the current one is parsed
+    private final Executor fetchExecutor;
+    private final int maxPlaylistPages;
+    private final UploadPlaylistCache uploadPlaylists = new UploadPlaylistCache(Ticker.systemTicker());
 
     @VisibleForTesting
     static final long MAX_PLAYLIST_RESULTS = 50;
     @VisibleForTesting
     static final long MAX_SEARCH_RESULTS = 100;
+    // most results search.list returns in a page, and ids videos.list takes in a call
+    @VisibleForTesting
+    static final int MAX_RESULTS_PER_PAGE = 50;
+    @VisibleForTesting
+    static final int MAX_IDS_PER_VIDEOS_CALL = 50;
+    // videos.list calls of a request made at the same time at most
+    @VisibleForTesting
+    static final int MAX_CONCURRENT_VIDEOS_CALLS = 4;
+    /**
+     * Pages of MAX_PLAYLIST_RESULTS items read from a playlist unless given otherwise, set by
+     * the promotube.maxPlaylistPages system property. Each page is a playlistItems.list call
+     * of the request's quota, so only the first page is read unless more are asked for.
+     */
+    public static final int DEFAULT_MAX_PLAYLIST_PAGES = Integer.getInteger("promotube.maxPlaylistPages", 1);
 
     public YouTubeInfoScraper(YouTube youTubeClient) {
+        this(youTubeClient, ForkJoinPool.commonPool());
+    }
+
+    public YouTubeInfoScraper(YouTube youTubeClient, Executor parseExecutor) {
+        this(youTubeClient, parseExecutor, FetchExecutor.INSTANCE, DEFAULT_MAX_PLAYLIST_PAGES);
+    }
+
+    /**
+     * @param youTubeClient to call the YouTube Data API with.
+     * @param parseExecutor to parse the descriptions of a request on in parallel.
+     * @param fetchExecutor to fetch the next page of a playlist on while parsing the current one.
+     * @param maxPlaylistPages Number of pages of MAX_PLAYLIST_RESULTS items to read from a
+     *        playlist at most, at least 1.
+     */
+    public YouTubeInfoScraper(YouTube youTubeClient, Executor parseExecutor, Executor fetchExecutor,
+            int maxPlaylistPages) {
+        checkArgument(maxPlaylistPages >= 1, "maxPlaylistPages must be at least 1 but was %s", maxPlaylistPages);
         this.youTubeClient = youTubeClient;
+        this.parseExecutor = parseExecutor;
+        this.fetchExecutor = fetchExecutor;
+        this.maxPlaylistPages = maxPlaylistPages;
     }
 
+    /** Scrapes with the client of the shared YouTubeClientFactory. */
     public YouTubeInfoScraper() {
-        this(new YouTube.Builder(new NetHttpTransport(), JacksonFactory.getDefaultInstance(),
-                /* httpRequestInitializer= */ null).setApplicationName(APPLICATION_NAME)
-                        .setYouTubeRequestInitializer(new YouTubeRequestInitializer(API_KEY)).build());
+        this(YouTubeClientFactory.getShared().getClient());
     }
 
     /**
+     * @return The scraper shared by the servlets, on the client of the shared
+     *         YouTubeClientFactory, built on first use.
+     */
+    public static YouTubeInfoScraper getShared() {
+        return SharedScraper.INSTANCE;
+    }
+
+    /**
+     * Derives the upload playlist id of a channel id of the usual form UC... without asking
+     * the API, which then only finds it missing when its playlist is scraped. Other ids are
+     * looked up and cached.
+     *
      * @param channelId Id of a channel. Can be found in channel's urls. e.g.
      *                  https://www.youtube.com/channel/<CHANNEL-ID>
      * @return an optional string of the channel's upload playlist id. The optional
      *         will be empty if id is invalid or no items were found.
      */
     public Optional<String> scrapeChannelUploadPlaylist(String channelId) throws IOException {
-        ChannelListResponse response = youTubeClient.channels().list("contentDetails").setId(channelId).execute();
-        return getYoutubeChannelResponse(response);
+        Optional<String> derived = UploadPlaylistCache.deriveFromChannelId(channelId);
+        if (derived.isPresent()) {
+            return derived;
+        }
+        return uploadPlaylists.getByChannelId(channelId, () -> getYoutubeChannelResponse(execute("channels.list",
+                youTubeClient.channels().list("contentDetails").setId(channelId), ChannelListResponse::getItems)));
     }
 
     /**
+     * Looks up the channel's upload playlist id, which is cached.
+     *
      * @param userName username of a channel. Can be found in channel's urls. e.g.
      *                 https://www.youtube.com/user/<USER-NAME>
      * @return an optional string of the channel's upload playlist id. The optional
      *         will be empty if id is invalid or no items were found.
      */
     public Optional<String> scrapeUserUploadPlaylist(String userName) throws IOException {
-        ChannelListResponse response = youTubeClient.channels().list("contentDetails").setForUsername(userName)
-                .execute();
-        return getYoutubeChannelResponse(response);
+        return uploadPlaylists.getByUserName(userName, () -> getYoutubeChannelResponse(execute("channels.list",
+                youTubeClient.channels().list("contentDetails").setForUsername(userName),
+                ChannelListResponse::getItems)));
     }
 
     /**
+     * Reads up to the scraper's maximum number of pages of the playlist, fetching each page
+     * while the descriptions of the one before are parsed.
+     *
      * @param uploadId Id of a channel's upload playlist.
      * @return an optional list of PromoCode objects. The optional will return empty
      *         if id is invalid or no items in the playlist are found.
      */
     public Optional<List<PromoCode>> scrapePromoCodesFromPlaylist(String uploadId) throws IOException {
-        Optional<List<PlaylistItem>> playlistItems = scrapePlaylistItems(uploadId);
-        if (!playlistItems.isPresent()) {
+        return scrapePromoCodesFromPlaylist(uploadId, maxPlaylistPages);
+    }
+
+    /**
+     * Reads the playlist a page of MAX_PLAYLIST_RESULTS items at a time, following page tokens
+     * for up to maxPages pages. The next page is fetched while the descriptions of the current
+     * one are parsed, so reading many pages takes little longer than fetching them.
+     *
+     * @param uploadId Id of a channel's upload playlist.
+     * @param maxPages Number of pages to read at most, at least 1.
+     * @return an optional list of PromoCode objects, in playlist order. The optional will
+     *         return empty if id is invalid or no items in the playlist are found.
+     */
+    public Optional<List<PromoCode>> scrapePromoCodesFromPlaylist(String uploadId, int maxPages) throws IOException {
+        checkArgument(maxPages >= 1, "maxPages must be at least 1 but was %s", maxPages);
+        Optional<PlaylistItemListResponse> firstPage = fetchFirstPlaylistPage(uploadId);
+        if (!firstPage.isPresent()) {
             return Optional.empty();
         }
+        PlaylistItemListResponse page = firstPage.get();
+        List<PromoCode> promoCodes = new ArrayList<>();
+        for (int pageCount = 1; page != null && page.getItems() != null; pageCount++) {
+            String pageToken = page.getNextPageToken();
+            CompletableFuture<PlaylistItemListResponse> nextPage = pageToken == null || pageCount >= maxPages ? null
+                    : fetchAsync(() -> fetchPlaylistPage(uploadId, pageToken));
+            try {
+                promoCodes.addAll(parsePlaylistItems(page.getItems()));
+            } catch (RuntimeException | Error e) {
+                if (nextPage != null) {
+                    nextPage.cancel(/* mayInterruptIfRunning= */ false);
+                }
+                throw e;
+            }
+            page = nextPage == null ? null : join(nextPage);
+        }
+        return Optional.of(promoCodes);
+    }
+
+    /* Returns the first page of the playlist, or empty if it has no items or doesn't exist. */
+    private Optional<PlaylistItemListResponse> fetchFirstPlaylistPage(String uploadId) throws IOException {
+        PlaylistItemListResponse page;
+        try {
+            page = fetchPlaylistPage(uploadId, /* pageToken= */ null);
+        } catch (HttpResponseException e) {
+            // a playlist derived from a channel id which doesn't exist
+            if (e.getStatusCode() == HttpStatusCodes.STATUS_CODE_NOT_FOUND) {
+                return Optional.empty();
+            }
+            throw e;
+        }
+        // getItems() return null when no items match the criteria (uploadId).
+        return page.getItems() == null ? Optional.empty() : Optional.of(page);
+    }
+
+    private PlaylistItemListResponse fetchPlaylistPage(String uploadId, String pageToken) throws IOException {
+        PlaylistItems.List request = youTubeClient.playlistItems().list("snippet")
+                .setMaxResults(MAX_PLAYLIST_RESULTS).setPlaylistId(uploadId);
+        if (pageToken != null) {
+            request = request.setPageToken(pageToken);
+        }
+        return execute("playlistItems.list", request, PlaylistItemListResponse::getItems);
+    }
+
+    /* Makes an API call on fetchExecutor, recording into the stages of the calling thread. */
+    private <T> CompletableFuture<T> fetchAsync(ApiCall<T> call) {
+        return CompletableFuture.supplyAsync(RequestStages.inherit(() -> {
+            try {
+                return call.execute();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }), fetchExecutor);
+    }
+
+    /* Waits for an API call made by fetchAsync, rethrowing what making it threw. */
+    private static <T> T join(CompletableFuture<T> call) throws IOException {
+        try {
+            return call.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            Throwables.throwIfUnchecked(e.getCause());
+            throw e;
+        }
+    }
+
+    /* Parses the descriptions of items on parseExecutor; returns their promo codes in order. */
+    private List<PromoCode> parsePlaylistItems(List<PlaylistItem> items) {
+        List<String> descriptions = new ArrayList<>();
+        List<String> videoIds = new ArrayList<>();
+        for (PlaylistItem item : items) {
+            descriptions.add(item.getSnippet().getDescription());
+            videoIds.add(item.getSnippet().getResourceId().getVideoId());
+        }
+        long parseStart = System.nanoTime();
+        List<List<OfferSnippet>> offerSnippets = DescriptionParser.parseAll(descriptions, videoIds, parseExecutor);
+        RequestStages.record("parse", System.nanoTime() - parseStart, descriptions.size());
         List<PromoCode> promoCodes = new ArrayList<>();
-        for (PlaylistItem item : playlistItems.get()) {
-            PlaylistItemSnippet snippet = item.getSnippet();
-            List<OfferSnippet> itemOfferSnippets = DescriptionParser.parse(snippet.getDescription());
-            for (OfferSnippet offer : itemOfferSnippets) {
+        for (int i = 0; i < items.size(); i++) {
+            PlaylistItemSnippet snippet = items.get(i).getSnippet();
+            for (OfferSnippet offer : offerSnippets.get(i)) {
                 promoCodes.add(
                     PromoCode.builder().setPromoCode(offer.getPromoCode()).setSnippet(offer.getSnippet())
                         .setVideoId(snippet.getResourceId().getVideoId()).setVideoTitle(snippet.getTitle())
@@ -94,7 +264,7 @@ public class YouTubeInfoScraper {
                 );
             }
         }
-        return Optional.of(promoCodes);
+        return promoCodes;
     }
 
     /**
@@ -104,13 +274,7 @@ public class YouTubeInfoScraper {
      *         or no items were found.
      */
     public Optional<List<PlaylistItem>> scrapePlaylistItems(String uploadId) throws IOException {
-        PlaylistItemListResponse response = youTubeClient.playlistItems().list("snippet").setMaxResults(MAX_PLAYLIST_RESULTS)
-                .setPlaylistId(uploadId).execute();
-        // getItems() return null when no items match the criteria (uploadId).
-        if (response.getItems() == null) {
-            return Optional.empty();
-        }
-        return Optional.of(response.getItems());
+        return fetchFirstPlaylistPage(uploadId).map(PlaylistItemListResponse::getItems);
     }
 
     /**
@@ -126,11 +290,21 @@ public class YouTubeInfoScraper {
         if (!videos.isPresent()) {
             return Optional.empty();
         }
-        List<PromoCode> promoCodes = new ArrayList<>();
+        List<String> descriptions = new ArrayList<>();
+        List<String> parsedVideoIds = new ArrayList<>();
         for (Video video : videos.get()) {
+            descriptions.add(video.getSnippet().getDescription());
+            parsedVideoIds.add(video.getId());
+        }
+        long parseStart = System.nanoTime();
+        List<List<OfferSnippet>> offerSnippets =
+                DescriptionParser.parseAllByCompany(keyword, descriptions, parsedVideoIds, parseExecutor);
+        RequestStages.record("parse", System.nanoTime() - parseStart, descriptions.size());
+        List<PromoCode> promoCodes = new ArrayList<>();
+        for (int i = 0; i < videos.get().size(); i++) {
+            Video video = videos.get().get(i);
             VideoSnippet snippet = video.getSnippet();
-            List<OfferSnippet> itemOfferSnippets = DescriptionParser.parseByCompany(keyword, snippet.getDescription());
-            for (OfferSnippet offer : itemOfferSnippets) {
+            for (OfferSnippet offer : offerSnippets.get(i)) {
                 promoCodes.add(
                     PromoCode.builder().setPromoCode(offer.getPromoCode()).setSnippet(offer.getSnippet())
                         .setVideoId(video.getId()).setVideoTitle(snippet.getTitle())
@@ -142,40 +316,142 @@ public class YouTubeInfoScraper {
     }
 
     /**
+     * Asks videos.list for MAX_IDS_PER_VIDEOS_CALL ids a call, up to MAX_CONCURRENT_VIDEOS_CALLS
+     * calls at a time, so many ids take about as long as a few.
+     *
      * @param videoIds List of ids of youtube videos.
      * @return an optional list of Videos which contain a VideoSnippet and the video
-     *         id. The optional will be empty if id is invalid or no items were
-     *         found.
+     *         id, in the order of videoIds. The optional will be empty if no ids are
+     *         given, ids are invalid or no items were found.
      */
     public Optional<List<Video>> scrapeVideoInformation(List<String> videoIds) throws IOException {
-        VideoListResponse response = youTubeClient.videos().list("snippet").setId(String.join(",", videoIds))
-                .setFields("items(id, snippet(publishedAt, title, description))").execute();
-        if (response.getItems() == null) {
+        if (videoIds.isEmpty()) {
             return Optional.empty();
         }
-        checkState(!response.getItems().isEmpty(), "Expected more than 0 Videos to be found.");
-        return Optional.of(response.getItems());
+        List<List<String>> batches = Lists.partition(videoIds, MAX_IDS_PER_VIDEOS_CALL);
+        List<VideoListResponse> responses = new ArrayList<>();
+        if (batches.size() == 1) {
+            responses.add(fetchVideos(batches.get(0)));
+        } else {
+            // calls in the order of their batches; the oldest is waited for before making another
+            Deque<CompletableFuture<VideoListResponse>> calls = new ArrayDeque<>();
+            try {
+                for (List<String> batch : batches) {
+                    if (calls.size() == MAX_CONCURRENT_VIDEOS_CALLS) {
+                        responses.add(join(calls.removeFirst()));
+                    }
+                    calls.addLast(fetchAsync(() -> fetchVideos(batch)));
+                }
+                while (!calls.isEmpty()) {
+                    responses.add(join(calls.removeFirst()));
+                }
+            } catch (IOException | RuntimeException e) {
+                calls.forEach(call -> call.cancel(/* mayInterruptIfRunning= */ false));
+                throw e;
+            }
+        }
+        List<Video> videos = new ArrayList<>();
+        boolean found = false;
+        for (VideoListResponse response : responses) {
+            if (response.getItems() != null) {
+                found = true;
+                videos.addAll(response.getItems());
+            }
+        }
+        if (!found) {
+            return Optional.empty();
+        }
+        checkState(!videos.isEmpty(), "Expected more than 0 Videos to be found.");
+        return Optional.of(videos);
+    }
+
+    /* Fetches the videos of at most MAX_IDS_PER_VIDEOS_CALL ids, in the order of ids. */
+    private VideoListResponse fetchVideos(List<String> ids) throws IOException {
+        VideoListResponse response = execute("videos.list", youTubeClient.videos().list("snippet")
+                .setId(String.join(",", ids)).setFields("items(id, snippet(publishedAt, title, description))"),
+                VideoListResponse::getItems);
+        if (response.getItems() != null) {
+            // the API doesn't promise the order of ids; unknown ids go last
+            response.getItems().sort(Comparator.comparingInt(video -> {
+                int index = ids.indexOf(video.getId());
+                return index < 0 ? ids.size() : index;
+            }));
+        }
+        return response;
     }
 
     /**
+     * Reads search results a page of MAX_RESULTS_PER_PAGE at a time, following page tokens
+     * until MAX_SEARCH_RESULTS are found.
+     *
      * @param keyword Word to search with.
-     * @return an optional list of videoIds. The optional will be empty if id is
-     *         invalid.
+     * @return an optional list of videoIds, in search order. The optional will be empty if
+     *         id is invalid.
      */
     public Optional<List<String>> scrapeVideoIdsFromSearch(String keyword) throws IOException {
-        SearchListResponse response = youTubeClient.search().list("snippet").setMaxResults(MAX_SEARCH_RESULTS).setQ(keyword)
-                .execute();
-        if (response.getItems() == null) {
-            return Optional.empty();
-        }
-        checkState(!response.getItems().isEmpty(), "Expected more than 0 SearchResult items to be found.");
         List<String> videoIds = new ArrayList<>();
-        for (SearchResult result : response.getItems()) {
-            videoIds.add(result.getId().getVideoId());
-        }
+        String pageToken = null;
+        do {
+            Search.List request = youTubeClient.search().list("snippet")
+                    .setMaxResults(Math.min(MAX_RESULTS_PER_PAGE, MAX_SEARCH_RESULTS - videoIds.size()))
+                    .setQ(keyword);
+            if (pageToken != null) {
+                request = request.setPageToken(pageToken);
+            }
+            SearchListResponse response = execute("search.list", request, SearchListResponse::getItems);
+            if (pageToken == null) {
+                if (response.getItems() == null) {
+                    return Optional.empty();
+                }
+                checkState(!response.getItems().isEmpty(), "Expected more than 0 SearchResult items to be found.");
+            } else if (response.getItems() == null) {
+                break;
+            }
+            for (SearchResult result : response.getItems()) {
+                videoIds.add(result.getId().getVideoId());
+            }
+            pageToken = response.getNextPageToken();
+        } while (pageToken != null && videoIds.size() < MAX_SEARCH_RESULTS);
         return Optional.of(videoIds);
     }
 
+    /*
+     * Executes request, recording a YouTubeApiCallEvent for endpoint if JFR is available and
+     * the endpoint as a stage of the current request; items gives the items of the response.
+     */
+    private static <T extends GenericJson> T execute(String endpoint, YouTubeRequest<T> request,
+            Function<T, List<?>> items) throws IOException {
+        long start = RequestStages.isRecording() ? System.nanoTime() : 0;
+        T response = JfrSupport.isAvailable() ? executeRecorded(endpoint, request, items) : request.execute();
+        if (start != 0) {
+            List<?> responseItems = items.apply(response);
+            RequestStages.record(endpoint, System.nanoTime() - start, responseItems == null ? 0 : responseItems.size());
+        }
+        return response;
+    }
+
+    private static <T extends GenericJson> T executeRecorded(String endpoint, YouTubeRequest<T> request,
+            Function<T, List<?>> items) throws IOException {
+        YouTubeApiCallEvent event = new YouTubeApiCallEvent(endpoint);
+        event.begin();
+        T response = request.execute();
+        event.end();
+        if (event.shouldCommit()) {
+            List<?> responseItems = items.apply(response);
+            event.itemCount = responseItems == null ? 0 : responseItems.size();
+            event.bytes = responseLength(request);
+            event.commit();
+        }
+        return response;
+    }
+
+    /* Returns the Content-Length of the last response to request, or -1 if it had none. */
+    private static long responseLength(YouTubeRequest<?> request) {
+        HttpHeaders headers = request.getLastResponseHeaders();
+        Long length = headers == null ? null : headers.getContentLength();
+        return length == null ? -1 : length;
+    }
+
     private Optional<String> getYoutubeChannelResponse(ChannelListResponse response) {
         // getItems() return null when no items match the criteria (channelId).
         if (response.getItems() == null) {
@@ -185,4 +461,20 @@ public class YouTubeInfoScraper {
                 "We should only be requesting a single channelId but got %d in response.", response.getItems().size()));
         return Optional.of(response.getItems().get(0).getContentDetails().getRelatedPlaylists().getUploads());
     }
+
+    // an API call which fetchAsync makes on fetchExecutor
+    private interface ApiCall<T> {
+        T execute() throws IOException;
+    }
+
+    // holds the default fetch executor, so its threads are only made once a request needs them
+    static final class FetchExecutor {
+        static final Executor INSTANCE = Executors.newCachedThreadPool(
+                new ThreadFactoryBuilder().setNameFormat("youtube-fetch-%d").setDaemon(true).build());
+    }
+
+    // holds the shared scraper, so it is built on the first call to getShared()
+    private static final class SharedScraper {
+        static final YouTubeInfoScraper INSTANCE = new YouTubeInfoScraper();
+    }
 }
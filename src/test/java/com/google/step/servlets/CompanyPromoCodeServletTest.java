@@ -13,11 +13,14 @@ import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import com.google.appengine.repackaged.com.google.common.collect.ImmutableList;
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableMap;
 import com.google.step.youtube.PromoCode;
 import com.google.step.youtube.YouTubeInfoScraper;
 
@@ -118,4 +121,24 @@ public final class CompanyPromoCodeServletTest {
 
         assertThat(result, equalTo("[]" + LINE_SEPARATOR));
     }
+
+    @Test
+    public void slowRequestLogged() throws IOException {
+        SlowRequestLog slowRequestLog = new SlowRequestLog(0, TimeUnit.MILLISECONDS, Ticker.systemTicker());
+        servlet = new CompanyPromoCodeServlet(infoScraper, slowRequestLog);
+        when(request.getParameter(servlet.REQUEST_PARAMETER)).thenReturn(IOEXCEPTION_CHANNEL_ID);
+
+        when(response.getWriter()).thenReturn(pw);
+        when(infoScraper.scrapeVideoIdsFromSearch(IOEXCEPTION_CHANNEL_ID)).thenThrow(IOException.class);
+
+        servlet.doGet(request, response);
+        List<SlowRequestLog.SlowRequest> entries = slowRequestLog.getEntries();
+
+        assertThat(entries.size(), equalTo(1));
+        assertThat(entries.get(0).getServlet(), equalTo("company"));
+        assertThat(entries.get(0).getInput(), equalTo(IOEXCEPTION_CHANNEL_ID));
+        assertThat(entries.get(0).getStageItems(), equalTo(ImmutableMap.of("serialize", 0)));
+        assertThat(entries.get(0).getResponseLength(), equalTo("[]".length()));
+        assertThat(entries.get(0).getError(), equalTo(IOException.class.getName()));
+    }
 }
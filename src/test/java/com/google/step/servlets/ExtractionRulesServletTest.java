@@ -0,0 +1,106 @@
+package com.google.step.servlets;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.google.gson.Gson;
+import com.google.step.youtube.DescriptionParser;
+import com.google.step.youtube.ExtractionRules;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public final class ExtractionRulesServletTest {
+
+    private static final String CUSTOM_RULES = "{\"rules\": ["
+            + "{\"name\": \"CODE_NO_QUOTES\", \"builtin\": \"CODE_NO_QUOTES\"},"
+            + "{\"name\": \"USE_COUPON\", \"regex\": \"(?<=\\\\b(?i)use coupon(?s).{1,2})[A-Z0-9]+\"}]}";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File rulesFile;
+    private HttpServletResponse response;
+    private StringWriter sw;
+
+    @Before
+    public void setUp() throws IOException {
+        rulesFile = temporaryFolder.newFile("rules.json");
+        System.setProperty(ExtractionRules.RULES_FILE_PROPERTY, rulesFile.getPath());
+        response = mock(HttpServletResponse.class);
+        sw = new StringWriter();
+        when(response.getWriter()).thenReturn(new PrintWriter(sw));
+    }
+
+    @After
+    public void tearDown() {
+        System.clearProperty(ExtractionRules.RULES_FILE_PROPERTY);
+        DescriptionParser.setRules(ExtractionRules.defaults());
+    }
+
+    @Test
+    public void post_reloadsEditedRulesFile() throws IOException {
+        Files.write(rulesFile.toPath(), CUSTOM_RULES.getBytes(StandardCharsets.UTF_8));
+
+        new ExtractionRulesServlet().doPost(mock(HttpServletRequest.class), response);
+        Map<?, ?> rules = new Gson().fromJson(sw.toString(), Map.class);
+
+        assertThat(rules.get("rules"), equalTo(Arrays.asList("CODE_NO_QUOTES", "USE_COUPON")));
+        assertThat(rules.get("engine"), equalTo("JDK"));
+        assertThat(DescriptionParser.getRules().getRuleNames(), equalTo(Arrays.asList("CODE_NO_QUOTES", "USE_COUPON")));
+        assertThat(DescriptionParser.parse("use coupon ROOSTER").get(0).getPromoCode(), equalTo("ROOSTER"));
+    }
+
+    @Test
+    public void post_keepsRulesIfInvalid() throws IOException {
+        Files.write(rulesFile.toPath(), "{\"rules\": []}".getBytes(StandardCharsets.UTF_8));
+        ExtractionRules before = DescriptionParser.getRules();
+
+        new ExtractionRulesServlet().doPost(mock(HttpServletRequest.class), response);
+
+        verify(response).sendError(eq(HttpServletResponse.SC_BAD_REQUEST), anyString());
+        assertThat(DescriptionParser.getRules(), equalTo(before));
+    }
+
+    @Test
+    public void post_keepsRulesIfFileMissing() throws IOException {
+        rulesFile.delete();
+        ExtractionRules before = DescriptionParser.getRules();
+
+        new ExtractionRulesServlet().doPost(mock(HttpServletRequest.class), response);
+
+        verify(response).sendError(eq(HttpServletResponse.SC_INTERNAL_SERVER_ERROR), anyString());
+        assertThat(DescriptionParser.getRules(), equalTo(before));
+    }
+
+    @Test
+    public void get_returnsRulesInUse() throws IOException {
+        new ExtractionRulesServlet().doGet(mock(HttpServletRequest.class), response);
+        Map<?, ?> rules = new Gson().fromJson(sw.toString(), Map.class);
+
+        assertThat(rules.get("rules"), equalTo(DescriptionParser.getRules().getRuleNames()));
+    }
+}
@@ -0,0 +1,45 @@
+package com.google.step.servlets;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.google.gson.Gson;
+import com.google.step.youtube.YouTubeClientFactory;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public final class HttpPoolStatsServletTest {
+
+    @Test
+    public void statsRequest_returnsPoolStats() throws IOException {
+        HttpServletResponse response = mock(HttpServletResponse.class);
+        StringWriter sw = new StringWriter();
+        when(response.getWriter()).thenReturn(new PrintWriter(sw));
+        YouTubeClientFactory clientFactory = new YouTubeClientFactory(
+                YouTubeClientFactory.Config.builder().setMaxConnections(30).build());
+        try {
+            new HttpPoolStatsServlet(clientFactory).doGet(mock(HttpServletRequest.class), response);
+        } finally {
+            clientFactory.close();
+        }
+        Map<?, ?> stats = new Gson().fromJson(sw.toString(), Map.class);
+
+        assertThat(((Number) stats.get("leased")).intValue(), equalTo(0));
+        assertThat(((Number) stats.get("idle")).intValue(), equalTo(0));
+        assertThat(((Number) stats.get("pending")).intValue(), equalTo(0));
+        assertThat(((Number) stats.get("max")).intValue(), equalTo(30));
+    }
+}
@@ -0,0 +1,72 @@
+package com.google.step.servlets;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assume.assumeTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.servlet.http.HttpServletResponse;
+
+import com.google.common.collect.ImmutableList;
+import com.google.step.youtube.JfrSupport;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public final class JsonResponsesTest {
+
+    private static final String SERIALIZATION = "com.google.step.servlets.JsonSerialization";
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+
+    @Test
+    public void write_printsJsonLine() throws IOException {
+        HttpServletResponse response = mock(HttpServletResponse.class);
+        StringWriter sw = new StringWriter();
+        when(response.getWriter()).thenReturn(new PrintWriter(sw));
+
+        JsonResponses.write(response, ImmutableList.of("a", "b"));
+
+        assertThat(sw.toString(), equalTo("[\"a\",\"b\"]" + LINE_SEPARATOR));
+    }
+
+    @Test
+    public void write_recordsSerializationEvent() throws IOException {
+        assumeTrue(JfrSupport.isAvailable());
+        HttpServletResponse response = mock(HttpServletResponse.class);
+        when(response.getWriter()).thenReturn(new PrintWriter(new StringWriter()));
+        Path file = Files.createTempFile("json-responses-test", ".jfr");
+        List<RecordedEvent> events = new ArrayList<>();
+        try (Recording recording = new Recording()) {
+            recording.enable(SERIALIZATION).withoutThreshold();
+            recording.start();
+            JsonResponses.write(response, ImmutableList.of("a", "b"));
+            recording.stop();
+            recording.dump(file);
+            for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+                if (event.getEventType().getName().equals(SERIALIZATION)) {
+                    events.add(event);
+                }
+            }
+        } finally {
+            Files.delete(file);
+        }
+
+        assertThat(events.size(), equalTo(1));
+        assertThat(events.get(0).getInt("items"), equalTo(2));
+        assertThat(events.get(0).getInt("length"), equalTo("[\"a\",\"b\"]".length()));
+    }
+}
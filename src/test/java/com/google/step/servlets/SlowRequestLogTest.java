@@ -0,0 +1,102 @@
+package com.google.step.servlets;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Strings;
+import com.google.common.base.Ticker;
+import com.google.step.youtube.RequestStages;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public final class SlowRequestLogTest {
+
+    private static final long THRESHOLD_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final FakeTicker ticker = new FakeTicker();
+    private final SlowRequestLog log = new SlowRequestLog(1, TimeUnit.SECONDS, ticker);
+
+    @Test
+    public void record_onlyRequestsOverThreshold() {
+        record("fast", THRESHOLD_NANOS - 1);
+        record("slow", THRESHOLD_NANOS);
+
+        assertThat(log.getEntries().size(), equalTo(1));
+        assertThat(log.getEntries().get(0).getInput(), equalTo("slow"));
+    }
+
+    @Test
+    public void record_keepsStages() {
+        RequestStages stages = RequestStages.begin();
+        RequestStages.record("videos.list", 5, 50);
+        RequestStages.record("parse", 7, 50);
+        RequestStages.record("videos.list", 3, 10);
+        stages.end();
+        log.record("company", "input", THRESHOLD_NANOS, stages, 123, null);
+
+        SlowRequestLog.SlowRequest entry = log.getEntries().get(0);
+        assertThat(entry.getStageNanos().toString(), equalTo("{videos.list=8, parse=7}"));
+        assertThat(entry.getStageItems().toString(), equalTo("{videos.list=60, parse=50}"));
+        assertThat(entry.getResponseLength(), equalTo(123));
+        assertThat(entry.getError(), equalTo(""));
+    }
+
+    @Test
+    public void record_rateLimitedPerMinute() {
+        for (int i = 0; i < SlowRequestLog.MAX_PER_MINUTE + 3; i++) {
+            record("slow", THRESHOLD_NANOS);
+        }
+        assertThat(log.getEntries().size(), equalTo(SlowRequestLog.MAX_PER_MINUTE));
+        assertThat(log.getDroppedCount(), equalTo(3L));
+
+        ticker.advance(TimeUnit.MINUTES.toNanos(1));
+        record("slow", THRESHOLD_NANOS);
+        assertThat(log.getEntries().size(), equalTo(SlowRequestLog.MAX_PER_MINUTE + 1));
+    }
+
+    @Test
+    public void record_keepsLastCapacityEntries() {
+        for (int i = 0; i < SlowRequestLog.CAPACITY + 5; i++) {
+            record(Integer.toString(i), THRESHOLD_NANOS);
+            ticker.advance(TimeUnit.MINUTES.toNanos(1));
+        }
+
+        List<SlowRequestLog.SlowRequest> entries = log.getEntries();
+        assertThat(entries.size(), equalTo(SlowRequestLog.CAPACITY));
+        assertThat(entries.get(0).getInput(), equalTo("5"));
+    }
+
+    @Test
+    public void record_cutsLongInput() {
+        record(Strings.repeat("x", SlowRequestLog.MAX_INPUT_LENGTH + 1), THRESHOLD_NANOS);
+
+        assertThat(log.getEntries().get(0).getInput(),
+                equalTo(Strings.repeat("x", SlowRequestLog.MAX_INPUT_LENGTH) + "..."));
+    }
+
+    private void record(String input, long nanos) {
+        RequestStages stages = RequestStages.begin();
+        stages.end();
+        log.record("channel", input, nanos, stages, 2, null);
+    }
+
+    private static final class FakeTicker extends Ticker {
+
+        private long nanos;
+
+        @Override
+        public long read() {
+            return nanos;
+        }
+
+        void advance(long delta) {
+            nanos += delta;
+        }
+    }
+}
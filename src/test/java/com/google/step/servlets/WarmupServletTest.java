@@ -0,0 +1,52 @@
+package com.google.step.servlets;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.google.gson.Gson;
+import com.google.step.youtube.DescriptionParser;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public final class WarmupServletTest {
+
+    @Test
+    public void loadCorpus_splitsDescriptions() throws IOException {
+        List<String> descriptions = WarmupServlet.loadCorpus();
+
+        assertThat(descriptions.size(), greaterThan(1));
+        for (String description : descriptions) {
+            assertThat(description.isEmpty(), equalTo(false));
+            assertThat(description.contains("---"), equalTo(false));
+        }
+    }
+
+    @Test
+    public void warmupRequest_reportsDurationAndOffers() throws IOException {
+        HttpServletResponse response = mock(HttpServletResponse.class);
+        StringWriter sw = new StringWriter();
+        when(response.getWriter()).thenReturn(new PrintWriter(sw));
+
+        new WarmupServlet(/* parseRounds= */ 2).doGet(mock(HttpServletRequest.class), response);
+        Map<?, ?> result = new Gson().fromJson(sw.toString(), Map.class);
+
+        int offers = DescriptionParser.warmUp(WarmupServlet.loadCorpus(), 1);
+        assertThat(((Number) result.get("offers")).intValue(), equalTo(offers));
+        assertThat(((Number) result.get("warmupMillis")).longValue() >= 0, equalTo(true));
+    }
+}
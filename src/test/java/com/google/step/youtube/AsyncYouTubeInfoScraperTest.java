@@ -0,0 +1,142 @@
+package com.google.step.youtube;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.api.services.youtube.model.ChannelListResponse;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public final class AsyncYouTubeInfoScraperTest {
+
+    private static final String CHANNEL_ID = "CHANNEL_ID";
+    private static final String UPLOAD_ID = "UPLOAD_ID";
+
+    private YouTubeClientMockBuilder ytMock;
+    // tasks given to the executor, run by the test one at a time
+    private Queue<Runnable> tasks;
+    private AsyncYouTubeInfoScraper scraper;
+
+    @Before
+    public void setUp() throws IOException {
+        ytMock = new YouTubeClientMockBuilder();
+        tasks = new ArrayDeque<>();
+        Executor queueExecutor = tasks::add;
+        scraper = new AsyncYouTubeInfoScraper(new YouTubeInfoScraper(ytMock.getYouTubeMock()), queueExecutor);
+    }
+
+    @Test
+    public void scrapeChannelUploadPlaylist_runsOnExecutor() throws IOException {
+        when(ytMock.getMockListChannels().execute()).thenReturn(YouTubeClientMocks.newBasicChannelResponse());
+        CompletableFuture<Optional<String>> actual = scraper.scrapeChannelUploadPlaylist(CHANNEL_ID);
+
+        assertThat(actual.isDone(), equalTo(false));
+        runTasks();
+        assertThat(AsyncYouTubeInfoScraper.await(actual), equalTo(Optional.of(UPLOAD_ID)));
+    }
+
+    @Test
+    public void scrapePromoCodesFromChannel_composesSteps() throws IOException {
+        when(ytMock.getMockListChannels().execute()).thenReturn(YouTubeClientMocks.newBasicChannelResponse());
+        when(ytMock.getMockListPlaylistItems().execute()).thenReturn(YouTubeClientMocks.newBasicPlaylistResponse());
+        CompletableFuture<Optional<List<PromoCode>>> actual = scraper.scrapePromoCodesFromChannel(CHANNEL_ID);
+
+        assertThat(runTasks(), equalTo(2));
+        assertThat(AsyncYouTubeInfoScraper.await(actual).get(),
+                equalTo(Arrays.asList(YouTubeClientMocks.newPromoCode(YouTubeClientMocks.PROMOCODE_DESCRIPTION))));
+    }
+
+    @Test
+    public void scrapePromoCodesFromChannel_noChannel() throws IOException {
+        when(ytMock.getMockListChannels().execute()).thenReturn(new ChannelListResponse());
+        CompletableFuture<Optional<List<PromoCode>>> actual = scraper.scrapePromoCodesFromChannel(CHANNEL_ID);
+
+        assertThat(runTasks(), equalTo(1));
+        assertThat(AsyncYouTubeInfoScraper.await(actual).isPresent(), equalTo(false));
+        verify(ytMock.getMockListPlaylistItems(), never()).execute();
+    }
+
+    /* A failed call fails the future with the exception the blocking method throws. */
+    @Test
+    public void scrapePromoCodesFromChannel_failsWithIOException() throws Exception {
+        IOException failure = new IOException("quota exceeded");
+        when(ytMock.getMockListChannels().execute()).thenReturn(YouTubeClientMocks.newBasicChannelResponse());
+        when(ytMock.getMockListPlaylistItems().execute()).thenThrow(failure);
+        CompletableFuture<Optional<List<PromoCode>>> actual = scraper.scrapePromoCodesFromChannel(CHANNEL_ID);
+        runTasks();
+
+        try {
+            actual.get();
+            throw new AssertionError("Expected an ExecutionException");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), equalTo(failure));
+        }
+        try {
+            AsyncYouTubeInfoScraper.await(actual);
+            throw new AssertionError("Expected an IOException");
+        } catch (IOException e) {
+            assertThat(e, equalTo(failure));
+        }
+    }
+
+    @Test
+    public void cancelBeforeStart_skipsCall() throws IOException {
+        CompletableFuture<Optional<String>> actual = scraper.scrapeChannelUploadPlaylist(CHANNEL_ID);
+        actual.cancel(/* mayInterruptIfRunning= */ false);
+        runTasks();
+
+        assertThat(actual.isCancelled(), equalTo(true));
+        verify(ytMock.getMockListChannels(), never()).execute();
+    }
+
+    @Test(expected = CancellationException.class)
+    public void cancelComposed_skipsSecondStep() throws IOException {
+        when(ytMock.getMockListChannels().execute()).thenReturn(YouTubeClientMocks.newBasicChannelResponse());
+        CompletableFuture<Optional<List<PromoCode>>> actual = scraper.scrapePromoCodesFromChannel(CHANNEL_ID);
+        tasks.remove().run();
+        actual.cancel(/* mayInterruptIfRunning= */ false);
+        runTasks();
+
+        verify(ytMock.getMockListPlaylistItems(), never()).execute();
+        AsyncYouTubeInfoScraper.await(actual);
+    }
+
+    @Test
+    public void independentCalls_overlap() throws IOException {
+        when(ytMock.getMockListChannels().execute()).thenReturn(YouTubeClientMocks.newBasicChannelResponse());
+        when(ytMock.getMockListSearch().execute()).thenReturn(YouTubeClientMocks.newBaSearchListResponse());
+        CompletableFuture<Optional<String>> channel = scraper.scrapeChannelUploadPlaylist(CHANNEL_ID);
+        CompletableFuture<Optional<List<String>>> search = scraper.scrapeVideoIdsFromSearch("KEYWORD");
+
+        assertThat(tasks.size(), equalTo(2));
+        runTasks();
+        assertThat(AsyncYouTubeInfoScraper.await(channel).isPresent(), equalTo(true));
+        assertThat(AsyncYouTubeInfoScraper.await(search).get().size(), equalTo(2));
+    }
+
+    /* Runs the queued tasks, and those they queue, in order; returns how many ran. */
+    private int runTasks() {
+        int count = 0;
+        while (!tasks.isEmpty()) {
+            tasks.remove().run();
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,101 @@
+package com.google.step.youtube;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import com.google.common.collect.ImmutableList;
+import java.util.List;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public final class DescriptionIndexTest {
+
+    private static final List<String> DESCRIPTIONS = ImmutableList.of("",
+            "\n",
+            " ",
+            "Use code NORD20 at https://nordvpn.com/phil",
+            "\n\nGo to NordVPN \n and use code  PEWDIEPIE\n",
+            "Straße İstanbul ΣΊΣΥΦΟΣ nordvpn\nNORDVPN ﬀ Ǆ code ǅ");
+
+    @Test
+    public void delimiterOffsets_sameAsString() {
+        for (String description : DESCRIPTIONS) {
+            DescriptionIndex index = DescriptionIndex.of(description);
+            for (int i = -1; i <= description.length() + 1; i++) {
+                assertThat(index.indexOfDelimiter(i), equalTo(description.indexOf('\n', i)));
+                assertThat(index.lastIndexOfDelimiter(i), equalTo(description.lastIndexOf('\n', i)));
+            }
+        }
+    }
+
+    @Test
+    public void spaceOffsets_sameAsString() {
+        for (String description : DESCRIPTIONS) {
+            DescriptionIndex index = DescriptionIndex.of(description);
+            for (int i = -1; i <= description.length() + 1; i++) {
+                assertThat(index.indexOfSpace(i), equalTo(description.indexOf(' ', i)));
+                assertThat(index.lastIndexOfSpace(i), equalTo(description.lastIndexOf(' ', i)));
+            }
+        }
+    }
+
+    @Test
+    public void getLineEnd() {
+        DescriptionIndex index = DescriptionIndex.of("ab\n\ncd");
+        assertThat(index.getLineEnd(0), equalTo(2));
+        assertThat(index.getLineEnd(2), equalTo(2));
+        assertThat(index.getLineEnd(3), equalTo(3));
+        assertThat(index.getLineEnd(4), equalTo(6));
+        assertThat(index.getLineEnd(6), equalTo(6));
+    }
+
+    @Test
+    public void indexOfIgnoreCase_sameAsRegionMatches() {
+        List<String> targets = ImmutableList.of("", "nordvpn", "NordVPN", "STRASSE", "straße", "istanbul",
+                "σίσυφος", "ΣΊΣΥΦΟΣ", "ǆ", "ǅ CODE", "FF", "\nnord");
+        for (String description : DESCRIPTIONS) {
+            DescriptionIndex index = DescriptionIndex.of(description);
+            for (String target : targets) {
+                for (int i = 0; i <= description.length(); i++) {
+                    assertThat(description + " / " + target + " / " + i, index.indexOfIgnoreCase(DescriptionIndex.foldCase(target), i),
+                            equalTo(indexOfIgnoreCase(description, target, i)));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void foldCase_keepsFoldedText() {
+        String folded = "nordvpn";
+        assertThat(DescriptionIndex.foldCase(folded) == folded, equalTo(true));
+        assertThat(DescriptionIndex.foldCase("NordVPN"), equalTo(folded));
+    }
+
+    @Test
+    public void createOfferSnippet_matchDenseLine() {
+        // every match used to rescan the line for its bounds
+        StringBuilder desc = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            desc.append("code \"").append(i).append("\" ");
+        }
+        List<OfferSnippet> offers = DescriptionParser.parseFrom(desc.toString(), 0);
+
+        assertThat(offers.size() >= 5000, equalTo(true));
+        for (OfferSnippet offer : offers) {
+            assertThat(offer.getSnippet().length() <= 206, equalTo(true));
+        }
+    }
+
+    /* the first index at or after fromIndex where description.regionMatches(true, ...) finds target */
+    private static int indexOfIgnoreCase(String description, String target, int fromIndex) {
+        for (int i = fromIndex; i <= description.length() - target.length(); i++) {
+            if (description.regionMatches(/* ignoreCase= */ true, i, target, 0, target.length())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -6,9 +6,15 @@ import static org.hamcrest.Matchers.equalTo;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
@@ -84,6 +90,181 @@ public final class DescriptionParserTest {
     }
 
 
+    /*
+     * * ================= TESTS FOR PARSE BY COMPANIES ================== *
+     */
+
+    @Test
+    public void parseByCompanies_sameOffersAsParseByCompany() {
+        String desc = "Get 20% OFF + Free International Shipping at http://Manscaped.com/phil\n"
+                + "And if you want to order food through " + COMPANY_NAME + " use my code A1JZN\n"
+                + "Bokksu and nordvpn: code BOKKSU10 and code NORD20\n"
+                + "Go to https://NordVPN.com/pewdiepie and use code PEWDIEPIE";
+        List<String> companies = Arrays.asList(COMPANY_NAME, "NordVPN", "Bokksu", "Manscaped", "Squarespace");
+        Map<String, List<OfferSnippet>> actual = DescriptionParser.parseByCompanies(companies, desc);
+
+        assertThat(actual.keySet(), equalTo(ImmutableSet.of("Manscaped", COMPANY_NAME, "NordVPN", "Bokksu")));
+        for (String company : actual.keySet()) {
+            assertThat(actual.get(company), equalTo(DescriptionParser.parseByCompany(company, desc)));
+        }
+    }
+
+    @Test
+    public void parseByCompanies_overlappingCompanyNames() {
+        String desc = "Use code USHERS at https://ushers.com";
+        List<String> companies = Arrays.asList("he", "she", "his", "hers", "usher");
+        Map<String, List<OfferSnippet>> actual = DescriptionParser.parseByCompanies(companies, desc);
+
+        assertThat(actual.keySet(), equalTo(ImmutableSet.of("she", "he", "usher", "hers")));
+    }
+
+    @Test
+    public void parseByCompanies_companyNameCaseInsensitive() {
+        String desc = "And if you want to order food through " + COMPANY_NAME.toLowerCase() + " use my code A1JZN";
+        Map<String, List<OfferSnippet>> actual = DescriptionParser.parseByCompanies(Arrays.asList(COMPANY_NAME), desc);
+        assertThat(actual, equalTo(ImmutableMap.of(COMPANY_NAME, Arrays.asList(OfferSnippet.create("A1JZN", desc)))));
+    }
+
+    @Test
+    public void parseByCompanies_noCompanyNames() {
+        String desc = "And if you want to order food through " + COMPANY_NAME + " use my code A1JZN";
+        assertThat(DescriptionParser.parseByCompanies(Arrays.asList("Bokksu", "NordVPN"), desc),
+                equalTo(Collections.emptyMap()));
+    }
+
+    /*
+     * * ======================= TESTS FOR PARSE ALL ======================= *
+     */
+
+    @Test
+    public void parseAll_sameOffersAsParseInOrder() {
+        List<String> descriptions = Arrays.asList(
+                "Use code FUNGBROS10.",
+                "nothing to see here",
+                "Go to https://NordVPN.com/pewdiepie and use code PEWDIEPIE",
+                "use https://lmg.gg/glasswire to get 25% off");
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<List<OfferSnippet>> actual = DescriptionParser.parseAll(descriptions, executor);
+            assertThat(actual.size(), equalTo(descriptions.size()));
+            for (int i = 0; i < descriptions.size(); i++) {
+                assertThat(actual.get(i), equalTo(DescriptionParser.parse(descriptions.get(i))));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void parseAllByCompany_sameOffersAsParseByCompanyInOrder() {
+        List<String> descriptions = Arrays.asList(
+                COMPANY_NAME + ": use my code A1JZN\nBokksu: code BOKKSU10",
+                "Bokksu: code BOKKSU10",
+                "",
+                "Get 20% OFF at http://" + COMPANY_NAME + ".com/phil");
+        List<List<OfferSnippet>> actual = DescriptionParser.parseAllByCompany(COMPANY_NAME, descriptions);
+        assertThat(actual.size(), equalTo(descriptions.size()));
+        for (int i = 0; i < descriptions.size(); i++) {
+            assertThat(actual.get(i), equalTo(DescriptionParser.parseByCompany(COMPANY_NAME, descriptions.get(i))));
+        }
+    }
+
+    @Test
+    public void parseAll_noDescriptions() {
+        assertThat(DescriptionParser.parseAll(Collections.emptyList()), equalTo(Collections.emptyList()));
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void parseAll_exceptionRethrownUnwrapped() {
+        DescriptionParser.parseAll(Arrays.asList("Use code FUNGBROS10.", null));
+    }
+
+    /*
+     * * ====================== TESTS FOR MATCH BUDGET ====================== *
+     */
+
+    @Test
+    public void matchBudget_partialOffersWhenExceeded() {
+        String sponsorLine = "Use code FUNGBROS10 at https://fungbros.com";
+        String desc = sponsorLine + "\n" + repeat("filler text ", 1000) + "\n" + "Use code COOLIRPA";
+        long exceededCount = DescriptionParser.getMatchBudgetExceededCount();
+        DescriptionParser.clearCache();
+        DescriptionParser.setMatchBudget(MatchBudget.of(2000, 1, TimeUnit.MINUTES));
+        try {
+            assertThat(extractPromoCodes(DescriptionParser.parse(desc)),
+                    equalTo(Arrays.asList("FUNGBROS10", "https://fungbros.com")));
+            assertThat(DescriptionParser.getMatchBudgetExceededCount(), equalTo(exceededCount + 1));
+        } finally {
+            DescriptionParser.setMatchBudget(DescriptionParser.DEFAULT_MATCH_BUDGET);
+        }
+        // partial offers weren't cached
+        assertThat(extractPromoCodes(DescriptionParser.parse(desc)),
+                equalTo(Arrays.asList("FUNGBROS10", "https://fungbros.com", "COOLIRPA")));
+        assertThat(DescriptionParser.getMatchBudgetExceededCount(), equalTo(exceededCount + 1));
+    }
+
+    @Test
+    public void matchBudget_parseByCompanyPartialOffersWhenExceeded() {
+        String desc = COMPANY_NAME + ": use code A1JZN " + repeat("filler text ", 1000) + " code B2KAO";
+        DescriptionParser.clearCache();
+        DescriptionParser.setMatchBudget(MatchBudget.of(2000, 1, TimeUnit.MINUTES));
+        try {
+            assertThat(extractPromoCodes(DescriptionParser.parseByCompany(COMPANY_NAME, desc)),
+                    equalTo(Arrays.asList("A1JZN")));
+        } finally {
+            DescriptionParser.setMatchBudget(DescriptionParser.DEFAULT_MATCH_BUDGET);
+        }
+        // offers of a line come in no particular order
+        assertThat(ImmutableSet.copyOf(extractPromoCodes(DescriptionParser.parseByCompany(COMPANY_NAME, desc))),
+                equalTo(ImmutableSet.of("A1JZN", "B2KAO")));
+    }
+
+    @Test
+    public void matchBudget_unlimitedSameOffersAsDefault() {
+        String desc = "Use code FUNGBROS10. \nClick here and use my code \"COOLIRPA\".\n"
+                + "Go to https://NordVPN.com/pewdiepie and use code PEWDIEPIE";
+        List<OfferSnippet> expected = DescriptionParser.parseFrom(desc, 0);
+        DescriptionParser.setMatchBudget(MatchBudget.UNLIMITED);
+        try {
+            assertThat(DescriptionParser.parseFrom(desc, 0), equalTo(expected));
+        } finally {
+            DescriptionParser.setMatchBudget(DescriptionParser.DEFAULT_MATCH_BUDGET);
+        }
+    }
+
+    /*
+     * * ======================== TESTS FOR PREFILTER ======================== *
+     */
+
+    @Test
+    public void prefilter_rejectsDescriptionWithoutLiterals() {
+        String desc = "Thanks for watching! Subscribe to the channel and leave a like.\nSee you next week at 5pm";
+        double rejectRatio = DescriptionParser.getPrefilterRejectRatio();
+
+        assertThat(DescriptionParser.parse(desc), equalTo(Collections.emptyList()));
+        assertThat(DescriptionParser.parseByCompany(COMPANY_NAME, COMPANY_NAME + " " + desc),
+                equalTo(Collections.emptyList()));
+        assertThat(DescriptionParser.getPrefilterRejectRatio() > rejectRatio, equalTo(true));
+    }
+
+    @Test
+    public void prefilter_sameOffersAsUnfiltered() {
+        List<String> descs = Arrays.asList("",
+                "Use CODE FUNGBROS10",
+                "Go to HTTPS://NORDVPN.COM/PHIL",
+                "Get 20% off http://stamps.com",
+                "$5 off at HtTp://x.co",
+                "no candidates here, 20% off and $5 at www.example.com",
+                "codE \"a\" and co\nde B2KAO");
+        for (String desc : descs) {
+            DescriptionParser.clearCache();
+            assertThat(desc, ImmutableSet.copyOf(DescriptionParser.parse(desc)),
+                    equalTo(ImmutableSet.copyOf(DescriptionParser.parseFrom(desc, 0))));
+            assertThat(desc, ImmutableSet.copyOf(DescriptionParser.parseByCompanyUncached("", desc)),
+                    equalTo(ImmutableSet.copyOf(DescriptionParser.parseByCompany("", desc))));
+        }
+    }
+
     /*
      * * ======================== TESTS FOR PARSE ======================== *
      */
@@ -193,6 +374,36 @@ public final class DescriptionParserTest {
     }
 
 
+    /*
+     * * ==================== TESTS FOR FUSED MATCHING ==================== *
+     */
+
+    @Test
+    public void findAllMatches_samePerPatternMatchesAsFindMatches() {
+        String desc = "This episode originally recorded June 8, 2020, and is sponsored by Stamps.com "
+                + "(Go to http://stamps.com, click on the microphone at the top of the homepage, "
+                + "and type in code ROOSTERTEETH to claim your special offer), Mercari "
+                + "(Buy or sell almost anything on Mercari on the App store or at http://mercari.com), "
+                + "and Bespoke Post (Get 20% off your first monthly box when you sign up at "
+                + "http://boxofawesome.com and enter the code ROOSTER at checkout!).\n"
+                + "use: https://bit.ly/nativecoolirpa for $5 off or use my code \"CooL1R-PA!\" "
+                + "or code 'bobat15' at https://lmg.gg/glasswire?ref=https://lmg.gg/x 20% off";
+        assertFusedMatchesEqualPerPatternMatches(desc);
+    }
+
+    @Test
+    public void findAllMatches_overlappingMatchesOfOnePattern() {
+        String desc = "code ABC code DEF codecode GHI code: \"a\" code \"b code \"c\"";
+        assertFusedMatchesEqualPerPatternMatches(desc);
+    }
+
+    @Test
+    public void findAllMatches_noMatches() {
+        String desc = "Check out our UPDATED version which has all the NEW ELEMENTS here:  "
+                + "https://youtu.be/rz4Dd1I_fX0";
+        assertFusedMatchesEqualPerPatternMatches(desc);
+    }
+
     /*
      * * ===================== TEST 'CODE' NO QUOTES ===================== * 
      * ex. "code OFF20"
@@ -793,6 +1004,39 @@ public final class DescriptionParserTest {
                                                                     "https://lmg.gg/glasswire")));
     }
 
+    @Test
+    public void symbolAfterLink_emoji() {
+        assertThat(DescriptionParser.parse("http://😀$5"), equalTo(Collections.emptyList()));
+
+        // 90 code points but 135 chars between the link and the symbol
+        StringBuilder desc = new StringBuilder("http://bit.ly/a ");
+        for (int i = 0; i < 45; i++) {
+            desc.append("🔥 ");
+        }
+        desc.append("$5");
+        assertThat(extractPromoCodes(DescriptionParser.parse(desc.toString())),
+                equalTo(Arrays.asList("http://bit.ly/a")));
+    }
+
+
+    /* helper method for findAllMatches() tests, comparing against each pattern matched alone */
+    private void assertFusedMatchesEqualPerPatternMatches(String description) {
+        List<List<OfferSnippet>> actual = DescriptionParser.findAllMatches(description);
+        DescriptionParser.Patterns[] patterns = DescriptionParser.Patterns.values();
+        assertThat(actual.size(), equalTo(patterns.length));
+        for (int i = 0; i < patterns.length; i++) {
+            assertThat(actual.get(i), equalTo(DescriptionParser.findMatches(patterns[i].getPattern(), description)));
+        }
+    }
+
+    /* helper method for match budget tests */
+    private static String repeat(String string, int times) {
+        StringBuilder repeated = new StringBuilder();
+        for (int i = 0; i < times; i++) {
+            repeated.append(string);
+        }
+        return repeated.toString();
+    }
 
     /* helper method for findMatches() tests, only checking for promocode field */
     private List<String> extractPromoCodes(List<OfferSnippet> offerSnippets) {
@@ -0,0 +1,123 @@
+package com.google.step.youtube;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Properties;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Regression gate on the throughput of DescriptionParser over a fixed corpus of
+ * SyntheticDescriptions from 100 characters to 256 kilobytes. The throughput is measured relative
+ * to a reference regex scan of the same corpus, so the baseline stored in
+ * parser-throughput-baseline.properties holds on faster and slower machines alike.
+ */
+@RunWith(JUnit4.class)
+public final class DescriptionParserThroughputTest {
+
+    private static final String BASELINE_RESOURCE = "/parser-throughput-baseline.properties";
+    private static final long SEED = 42;
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int MEASURED_ROUNDS = 5;
+    // a word at a time: a cheap regex scan that reads every character, like the parser
+    private static final Pattern REFERENCE_PATTERN = Pattern.compile("\\S+");
+
+    private static final List<String> CORPUS = new SyntheticDescriptions(SEED).corpus(24,
+            SyntheticDescriptions.MIN_LENGTH, 1 << 18);
+
+    private ExtractionRules originalRules;
+    private MatchBudget originalBudget;
+
+    @Before
+    public void setUp() {
+        originalRules = DescriptionParser.getRules();
+        originalBudget = DescriptionParser.getMatchBudget();
+        // the shipped rules and no budget, so the parser does the same work on every machine
+        DescriptionParser.setRules(ExtractionRules.defaults());
+        DescriptionParser.setMatchBudget(MatchBudget.UNLIMITED);
+    }
+
+    @After
+    public void tearDown() {
+        DescriptionParser.setRules(originalRules);
+        DescriptionParser.setMatchBudget(originalBudget);
+    }
+
+    @Test
+    public void parseFrom_throughputWithinBaseline() throws IOException {
+        Properties baseline = loadBaseline();
+        double baselineThroughput = Double.parseDouble(baseline.getProperty("relativeThroughput"));
+        double maxRegression = Double.parseDouble(baseline.getProperty("maxRegression"));
+
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            parseCorpus();
+            scanCorpus();
+        }
+        // the fastest round of each is the least disturbed by GC and other processes
+        long parseNanos = Long.MAX_VALUE;
+        long scanNanos = Long.MAX_VALUE;
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            parseNanos = Math.min(parseNanos, parseCorpus());
+            scanNanos = Math.min(scanNanos, scanCorpus());
+        }
+        double relativeThroughput = (double) scanNanos / parseNanos;
+
+        System.out.printf("parseFrom: %.1f Mchar/s, reference scan: %.1f Mchar/s, relativeThroughput=%.4f%n",
+                corpusLength() * 1e3 / parseNanos, corpusLength() * 1e3 / scanNanos, relativeThroughput);
+        assertThat("relative throughput", relativeThroughput,
+                greaterThanOrEqualTo(baselineThroughput * (1 - maxRegression)));
+    }
+
+    /* parses the corpus without the result cache and the line memo; returns the nanoseconds taken */
+    private static long parseCorpus() {
+        long offers = 0;
+        long start = System.nanoTime();
+        for (String description : CORPUS) {
+            offers += DescriptionParser.parseFrom(description, 0).size();
+        }
+        long nanos = System.nanoTime() - start;
+        assertThat(offers, greaterThanOrEqualTo(1L));
+        return nanos;
+    }
+
+    /* scans the corpus with REFERENCE_PATTERN; returns the nanoseconds taken */
+    private static long scanCorpus() {
+        long words = 0;
+        long start = System.nanoTime();
+        for (String description : CORPUS) {
+            Matcher matcher = REFERENCE_PATTERN.matcher(description);
+            while (matcher.find()) {
+                words++;
+            }
+        }
+        long nanos = System.nanoTime() - start;
+        assertThat(words, greaterThanOrEqualTo(1L));
+        return nanos;
+    }
+
+    private static long corpusLength() {
+        long length = 0;
+        for (String description : CORPUS) {
+            length += description.length();
+        }
+        return length;
+    }
+
+    private static Properties loadBaseline() throws IOException {
+        Properties baseline = new Properties();
+        try (InputStream in = DescriptionParserThroughputTest.class.getResourceAsStream(BASELINE_RESOURCE)) {
+            baseline.load(in);
+        }
+        return baseline;
+    }
+}
@@ -0,0 +1,99 @@
+package com.google.step.youtube;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public final class DescriptionStreamParserTest {
+
+    private static final String DESCRIPTION = "Use code FUNGBROS10. \n\n"
+            + "Click here and use my code \"COOLIRPA\".\n\n"
+            + "Go to https://NordVPN.com/pewdiepie and use code PEWDIEPIE \n"
+            + "use https://lmg.gg/glasswire to get 25% off\n"
+            + "Get 10% off your own authentic Japanese snack box from Bokksu using my link: https://bit.ly/3fYbkZ5";
+
+    @Test
+    public void sameOffersAsParsingEachLine() throws IOException {
+        for (int chunkSize : Arrays.asList(1, 5, 64, DescriptionStreamParser.CHUNK_SIZE)) {
+            List<OfferSnippet> actual = parseStream(new StringReader(DESCRIPTION), chunkSize);
+            assertThat(actual, equalTo(DescriptionParser.parseByCompany("", DESCRIPTION)));
+        }
+    }
+
+    @Test
+    public void charBufferInput() throws IOException {
+        List<OfferSnippet> actual = parseStream(CharBuffer.wrap(DESCRIPTION), 7);
+        assertThat(actual, equalTo(DescriptionParser.parseByCompany("", DESCRIPTION)));
+    }
+
+    @Test
+    public void keywordOnPreviousLine() throws IOException {
+        String desc = "Get 20% off your first monthly box when you sign up at "
+                + "http://boxofawesome.com and enter the code\nROOSTER at checkout!";
+        List<OfferSnippet> actual = parseStream(new StringReader(desc), 3);
+        assertThat(actual, containsInAnyOrder(DescriptionParser.parse(desc).toArray()));
+    }
+
+    @Test
+    public void lineLongerThanMaxLineLength() throws IOException {
+        StringBuilder desc = new StringBuilder();
+        for (int i = 0; i < 20; i++) {
+            desc.append("filler text with no offers at all. ");
+        }
+        desc.append("Use code ROOSTER today");
+        List<OfferSnippet> actual = new ArrayList<>();
+        new DescriptionStreamParser(16, 256).parse(new StringReader(desc.toString()), actual::add);
+        assertThat(extractPromoCodes(actual), equalTo(Arrays.asList("ROOSTER")));
+    }
+
+    @Test
+    public void offersStraddlingSplit() throws IOException {
+        String[] offers = {"use my code \"SAVE BIG NOW\" at checkout",
+                "https://bit.ly/abc is the link to use for the discount, it gets you $5 off"};
+        for (String offer : offers) {
+            // moves the offer across the first split, after the last space before index 256
+            for (int offset = 150; offset < 300; offset += 2) {
+                String desc = repeat("a ", offset / 2) + offer + " " + repeat("a ", 400);
+                List<OfferSnippet> actual = new ArrayList<>();
+                new DescriptionStreamParser(16, 256).parse(new StringReader(desc), actual::add);
+                assertThat(desc, actual, equalTo(DescriptionParser.parse(desc)));
+            }
+        }
+    }
+
+    @Test
+    public void emptyInput() throws IOException {
+        assertThat(parseStream(new StringReader(""), 4), equalTo(ImmutableList.of()));
+    }
+
+    private static List<OfferSnippet> parseStream(Readable input, int chunkSize) throws IOException {
+        List<OfferSnippet> offers = new ArrayList<>();
+        new DescriptionStreamParser(chunkSize, DescriptionStreamParser.MAX_LINE_LENGTH).parse(input, offers::add);
+        return offers;
+    }
+
+    private static String repeat(String s, int count) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            builder.append(s);
+        }
+        return builder.toString();
+    }
+
+    private static List<String> extractPromoCodes(List<OfferSnippet> offerSnippets) {
+        return offerSnippets.stream().map(OfferSnippet::getPromoCode).collect(ImmutableList.toImmutableList());
+    }
+}
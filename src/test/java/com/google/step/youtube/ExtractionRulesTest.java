@@ -0,0 +1,264 @@
+package com.google.step.youtube;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import com.google.common.collect.ImmutableList;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public final class ExtractionRulesTest {
+
+    private static final String COUPON_REGEX = "(?<=\\\\b(?i)use coupon(?s).{1,2})[A-Z0-9]+";
+    private static final String PROMO_REGEX = "(?<=\\\\b(?i)promo:\\\\s?)[A-Z0-9]+";
+    private static final String CUSTOM_RULES = "{\"rules\": ["
+            + "{\"name\": \"CODE_NO_QUOTES\", \"builtin\": \"CODE_NO_QUOTES\"},"
+            + "{\"name\": \"USE_COUPON\", \"regex\": \"" + COUPON_REGEX + "\"},"
+            + "{\"name\": \"PROMO\", \"regex\": \"" + PROMO_REGEX + "\"},"
+            + "{\"name\": \"SYMBOL_NEAR_LINK\", \"builtin\": \"SYMBOL_NEAR_LINK\"}]}";
+    private static final String DESCRIPTION = "Use code FUNGBROS10 or use coupon BOKKSU15\n"
+            + "promo: NORD20 and 20% off at https://nordvpn.com/phil";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @After
+    public void tearDown() {
+        System.clearProperty(ExtractionRules.RULES_FILE_PROPERTY);
+        DescriptionParser.setRules(ExtractionRules.defaults());
+    }
+
+    @Test
+    public void bundledRules_sameAsDefaults() throws IOException {
+        assertThat(ExtractionRules.load().getRuleNames(), equalTo(ExtractionRules.defaults().getRuleNames()));
+        assertThat(DescriptionParser.getRules().getRuleNames(), equalTo(Arrays.stream(
+                DescriptionParser.Patterns.values()).map(Enum::name).collect(Collectors.toList())));
+    }
+
+    @Test
+    public void customRules_matchedInRuleOrder() {
+        ExtractionRules rules = ExtractionRules.fromJson(new StringReader(CUSTOM_RULES));
+        List<List<MatchSpan>> spans = rules.findAllSpans(DESCRIPTION, 0, DESCRIPTION.length(), 0,
+                MatchBudget.UNLIMITED.start());
+
+        assertThat(rules.getRuleNames(), equalTo(ImmutableList.of("CODE_NO_QUOTES", "USE_COUPON", "PROMO",
+                "SYMBOL_NEAR_LINK")));
+        assertThat(matchedText(spans.get(0)), equalTo(ImmutableList.of("FUNGBROS10")));
+        assertThat(matchedText(spans.get(1)), equalTo(ImmutableList.of("BOKKSU15")));
+        assertThat(matchedText(spans.get(2)), equalTo(ImmutableList.of("NORD20")));
+        assertThat(matchedText(spans.get(3)), equalTo(ImmutableList.of("https://nordvpn.com/phil")));
+    }
+
+    @Test
+    public void customRules_sameMatchesAsEachRegexAlone() {
+        ExtractionRules rules = ExtractionRules.fromJson(new StringReader(CUSTOM_RULES));
+        List<List<MatchSpan>> spans = rules.findAllSpans(DESCRIPTION, 0, DESCRIPTION.length(), 0,
+                MatchBudget.UNLIMITED.start());
+        List<Pattern> patterns = ImmutableList.of(DescriptionParser.Patterns.CODE_NO_QUOTES.getPattern(),
+                Pattern.compile(COUPON_REGEX.replace("\\\\", "\\")), Pattern.compile(PROMO_REGEX.replace("\\\\", "\\")),
+                DescriptionParser.Patterns.SYMBOL_NEAR_LINK.getPattern());
+
+        for (int i = 0; i < patterns.size(); i++) {
+            List<String> expected = DescriptionParser.findMatches(patterns.get(i), DESCRIPTION).stream()
+                    .map(OfferSnippet::getPromoCode).collect(Collectors.toList());
+            assertThat(matchedText(spans.get(i)), equalTo(expected));
+        }
+    }
+
+    @Test
+    public void mayMatch_requiredLiteralsOfBuiltins() {
+        ExtractionRules rules = ExtractionRules.defaults();
+
+        assertThat(rules.mayMatch("Use CoDe X"), equalTo(true));
+        assertThat(rules.mayMatch("go to HTTP://x.com"), equalTo(true));
+        assertThat(rules.mayMatch("20% off, $5 off, go to our site at www.x.com"), equalTo(false));
+        assertThat(rules.mayMatch(""), equalTo(false));
+    }
+
+    @Test
+    public void mayMatch_alwaysWithCustomRules() {
+        ExtractionRules rules = ExtractionRules.fromJson(new StringReader(CUSTOM_RULES));
+
+        assertThat(rules.mayMatch("use coupon BOKKSU15"), equalTo(true));
+        assertThat(rules.mayMatch(""), equalTo(true));
+    }
+
+    @Test
+    public void setRules_parseUsesNewRules() {
+        DescriptionParser.parse(DESCRIPTION);
+        DescriptionParser.setRules(ExtractionRules.fromJson(new StringReader(CUSTOM_RULES)));
+
+        List<String> codes = DescriptionParser.parse(DESCRIPTION).stream()
+                .map(OfferSnippet::getPromoCode).sorted().collect(Collectors.toList());
+        assertThat(codes, equalTo(ImmutableList.of("BOKKSU15", "FUNGBROS10", "NORD20", "https://nordvpn.com/phil")));
+    }
+
+    @Test
+    public void linearEngine_customRulesWithoutLookarounds() {
+        ExtractionRules rules = ExtractionRules.fromJson(new StringReader("{\"engine\": \"linear\", \"rules\": ["
+                + "{\"name\": \"CODE_NO_QUOTES\", \"builtin\": \"CODE_NO_QUOTES\"},"
+                + "{\"name\": \"PROMO\", \"regex\": \"(?i)promo: ?([A-Z0-9]+)\"}]}"));
+        List<List<MatchSpan>> spans = rules.findAllSpans(DESCRIPTION, 0, DESCRIPTION.length(), 0,
+                MatchBudget.UNLIMITED.start());
+
+        assertThat(rules.getEngine(), equalTo(ExtractionRules.Engine.LINEAR));
+        assertThat(matchedText(spans.get(0)), equalTo(ImmutableList.of("FUNGBROS10")));
+        assertThat(matchedText(spans.get(1)), equalTo(ImmutableList.of("promo: NORD20")));
+    }
+
+    @Test
+    public void linearEngine_sameOffersAsJdkEngine() {
+        List<OfferSnippet> expected = DescriptionParser.parse(DESCRIPTION);
+        DescriptionParser.setRules(ExtractionRules.defaults(ExtractionRules.Engine.LINEAR));
+
+        assertThat(DescriptionParser.parse(DESCRIPTION), equalTo(expected));
+    }
+
+    @Test
+    public void lineMemo_sameSpansAsWholeDescription_jdkEngine() {
+        assertLineMemoSameAsWholeDescription(ExtractionRules.defaults(ExtractionRules.Engine.JDK));
+    }
+
+    @Test
+    public void lineMemo_sameSpansAsWholeDescription_linearEngine() {
+        assertLineMemoSameAsWholeDescription(ExtractionRules.defaults(ExtractionRules.Engine.LINEAR));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void fromJson_linearEngineWithLookarounds() {
+        ExtractionRules.fromJson(new StringReader(
+                CUSTOM_RULES.replace("{\"rules\"", "{\"engine\": \"linear\", \"rules\"")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void fromJson_unknownEngine() {
+        ExtractionRules.fromJson(new StringReader(
+                "{\"engine\": \"pcre\", \"rules\": [{\"name\": \"A\", \"builtin\": \"TO_AT_LINKS\"}]}"));
+    }
+
+    @Test
+    public void matchCounts_countedPerRule() {
+        DescriptionParser.setRules(ExtractionRules.fromJson(new StringReader(CUSTOM_RULES)));
+        DescriptionParser.parseFrom(DESCRIPTION, 0);
+        DescriptionParser.parseFrom("use coupon ROOSTER", 0);
+
+        assertThat(DescriptionParser.getRuleMatchCounts().get("CODE_NO_QUOTES"), equalTo(1L));
+        assertThat(DescriptionParser.getRuleMatchCounts().get("USE_COUPON"), equalTo(2L));
+        assertThat(DescriptionParser.getRuleMatchCounts().get("PROMO"), equalTo(1L));
+    }
+
+    @Test
+    public void reloadRules_readsRulesFile() throws IOException {
+        File rulesFile = temporaryFolder.newFile("rules.json");
+        Files.write(rulesFile.toPath(), CUSTOM_RULES.getBytes(StandardCharsets.UTF_8));
+        System.setProperty(ExtractionRules.RULES_FILE_PROPERTY, rulesFile.getPath());
+
+        DescriptionParser.reloadRules();
+        assertThat(DescriptionParser.getRules().getRuleNames().get(1), equalTo("USE_COUPON"));
+    }
+
+    @Test
+    public void reloadRules_keepsRulesIfInvalid() throws IOException {
+        File rulesFile = temporaryFolder.newFile("rules.json");
+        Files.write(rulesFile.toPath(), "{\"rules\": []}".getBytes(StandardCharsets.UTF_8));
+        System.setProperty(ExtractionRules.RULES_FILE_PROPERTY, rulesFile.getPath());
+        ExtractionRules before = DescriptionParser.getRules();
+
+        try {
+            DescriptionParser.reloadRules();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        assertThat(DescriptionParser.getRules(), equalTo(before));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void fromJson_invalidJson() {
+        ExtractionRules.fromJson(new StringReader("{\"rules\": [{\"name\": "));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void fromJson_duplicateNames() {
+        ExtractionRules.fromJson(new StringReader("{\"rules\": [{\"name\": \"A\", \"builtin\": \"TO_AT_LINKS\"},"
+                + "{\"name\": \"A\", \"builtin\": \"CODE_NO_QUOTES\"}]}"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void fromJson_regexAndBuiltin() {
+        ExtractionRules.fromJson(new StringReader(
+                "{\"rules\": [{\"name\": \"A\", \"builtin\": \"TO_AT_LINKS\", \"regex\": \"a\"}]}"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void fromJson_unknownBuiltin() {
+        ExtractionRules.fromJson(new StringReader("{\"rules\": [{\"name\": \"A\", \"builtin\": \"COUPONS\"}]}"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void fromJson_invalidRegex() {
+        ExtractionRules.fromJson(new StringReader("{\"rules\": [{\"name\": \"A\", \"regex\": \"(code\"}]}"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void fromJson_rulesWhichCantBeCombined() {
+        ExtractionRules.fromJson(new StringReader("{\"rules\": [{\"name\": \"A\", \"regex\": \"(?<code>a)\"},"
+                + "{\"name\": \"B\", \"regex\": \"(?<code>b)\"}]}"));
+    }
+
+    /*
+     * helper method matching descriptions with keywords right before a line break a line at a
+     * time through a LineMatchMemo, as DescriptionParser does, against matching them whole. A
+     * line is first seen after a line without the keyword, so the memo has it without context.
+     */
+    private static void assertLineMemoSameAsWholeDescription(ExtractionRules rules) {
+        LineMatchMemo memo = new LineMatchMemo(LineMatchMemo.MAX_LINES);
+        String[] ends = {"Use the form", "Use code", "Use the code", "Go to", "Look at"};
+        String[] gaps = {"", " ", ":", "\uD83D\uDE00"};
+        String[] starts = {"ABC", "\"ABC\"", "'ABC'", " ABC", " \"ABC\"", ": 'ABC'", "\uD83D\uDE00\"ABC\"",
+                "https://nordvpn.com/phil", " https://nordvpn.com/phil"};
+        for (String start : starts) {
+            for (String end : ends) {
+                for (String gap : gaps) {
+                    String description = end + gap + "\n" + start + " to save";
+                    List<List<MatchSpan>> expected = rules.findAllSpans(description, 0, description.length(), 0,
+                            MatchBudget.UNLIMITED.start());
+                    List<List<MatchSpan>> actual = rules.newListPerRule();
+                    int lineStart = 0;
+                    while (lineStart <= description.length()) {
+                        int lineEnd = description.indexOf('\n', lineStart);
+                        lineEnd = lineEnd < 0 ? description.length() : lineEnd;
+                        List<? extends List<MatchSpan>> lineSpans = memo.findAllSpans(description, lineStart, lineEnd,
+                                Math.max(0, lineStart - DescriptionParser.LOOKBEHIND_CONTEXT_LENGTH), rules,
+                                MatchBudget.UNLIMITED.start());
+                        for (int i = 0; i < actual.size(); i++) {
+                            actual.get(i).addAll(lineSpans.get(i));
+                        }
+                        lineStart = lineEnd + 1;
+                    }
+                    assertThat(description, actual, equalTo(expected));
+                }
+            }
+        }
+    }
+
+    /* helper method turning spans into the text they match in DESCRIPTION */
+    private static List<String> matchedText(List<MatchSpan> spans) {
+        return spans.stream().map(span -> DESCRIPTION.substring(span.getStart(), span.getEnd()))
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,153 @@
+package com.google.step.youtube;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assume.assumeTrue;
+import static org.mockito.Mockito.when;
+
+import com.google.api.client.http.javanet.NetHttpTransport;
+import com.google.api.client.json.jackson2.JacksonFactory;
+import com.google.api.services.youtube.YouTube;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public final class JfrEventsTest {
+
+    private static final String API_CALL = "com.google.step.youtube.YouTubeApiCall";
+    private static final String PARSE = "com.google.step.youtube.DescriptionParse";
+    private static final String RULE_MATCH = "com.google.step.youtube.RuleMatch";
+
+    private Recording recording;
+
+    @Before
+    public void setUp() {
+        assumeTrue(JfrSupport.isAvailable());
+        recording = new Recording();
+        recording.enable(API_CALL).withoutThreshold();
+        recording.enable(PARSE).withoutThreshold();
+        recording.enable(RULE_MATCH).withoutThreshold();
+        recording.start();
+    }
+
+    @After
+    public void tearDown() {
+        if (recording != null) {
+            recording.close();
+        }
+    }
+
+    /* The response size is the Content-Length of the response, so it is served over HTTP. */
+    @Test
+    public void scrapePlaylistItems_recordsApiCall() throws IOException {
+        byte[] body = JacksonFactory.getDefaultInstance().toByteArray(YouTubeClientMocks.newBasicPlaylistResponse());
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        try {
+            YouTube youTube = new YouTube.Builder(new NetHttpTransport(), JacksonFactory.getDefaultInstance(), null)
+                    .setRootUrl("http://localhost:" + server.getAddress().getPort() + "/")
+                    .setApplicationName("promotube-test").build();
+            new YouTubeInfoScraper(youTube).scrapePlaylistItems("UPLOAD_ID");
+        } finally {
+            server.stop(0);
+        }
+
+        List<RecordedEvent> events = stopAndRead(API_CALL);
+        assertThat(events.size(), equalTo(1));
+        assertThat(events.get(0).getString("endpoint"), equalTo("playlistItems.list"));
+        assertThat(events.get(0).getInt("itemCount"), equalTo(1));
+        assertThat(events.get(0).getLong("bytes"), equalTo((long) body.length));
+    }
+
+    @Test
+    public void scrapePlaylistItems_unknownResponseSize() throws IOException {
+        YouTubeClientMockBuilder ytMock = new YouTubeClientMockBuilder();
+        when(ytMock.getMockListPlaylistItems().execute()).thenReturn(YouTubeClientMocks.newBasicPlaylistResponse());
+        new YouTubeInfoScraper(ytMock.getYouTubeMock()).scrapePlaylistItems("UPLOAD_ID");
+
+        List<RecordedEvent> events = stopAndRead(API_CALL);
+        assertThat(events.size(), equalTo(1));
+        assertThat(events.get(0).getLong("bytes"), equalTo(-1L));
+    }
+
+    @Test
+    public void parseFrom_recordsParseAndRuleMatches() throws IOException {
+        String desc = "Use code JFREVENTS10 at https://example.com/jfr";
+        int offers = DescriptionParser.parseFrom(desc, 0).size();
+
+        List<RecordedEvent> parses = stopAndRead(PARSE);
+        assertThat(parses.size(), equalTo(1));
+        assertThat(parses.get(0).getString("method"), equalTo("parseFrom"));
+        assertThat(parses.get(0).getInt("inputLength"), equalTo(desc.length()));
+        assertThat(parses.get(0).getInt("offers"), equalTo(offers));
+
+        List<RecordedEvent> ruleMatches = read(RULE_MATCH);
+        assertThat(ruleMatches.size(), equalTo(DescriptionParser.getRules().getMatchCounts().size()));
+        int matches = 0;
+        for (RecordedEvent event : ruleMatches) {
+            assertThat(event.getInt("inputLength"), equalTo(desc.length()));
+            matches += event.getInt("matches");
+        }
+        assertThat(matches > 0, equalTo(true));
+    }
+
+    /* A parse has one event per rule, however many lines it matches. */
+    @Test
+    public void parse_recordsRuleMatchesOncePerParse() throws IOException {
+        DescriptionParser.clearCache();
+        String desc = "Use code JFREVENTS10\nGo to https://example.com/jfr\nUse code JFREVENTS10";
+        DescriptionParser.parse(desc);
+
+        List<RecordedEvent> ruleMatches = stopAndRead(RULE_MATCH);
+        assertThat(ruleMatches.size(), equalTo(DescriptionParser.getRules().getMatchCounts().size()));
+        for (RecordedEvent event : ruleMatches) {
+            assertThat(event.getInt("inputLength"), equalTo(desc.length()));
+            if (event.getString("rule").equals("CODE_NO_QUOTES")) {
+                assertThat(event.getInt("matches"), equalTo(2));
+            }
+        }
+    }
+
+    private List<RecordedEvent> stopAndRead(String eventName) throws IOException {
+        recording.stop();
+        return read(eventName);
+    }
+
+    private List<RecordedEvent> read(String eventName) throws IOException {
+        Path file = Files.createTempFile("jfr-events-test", ".jfr");
+        try {
+            recording.dump(file);
+            List<RecordedEvent> events = new ArrayList<>();
+            for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+                if (event.getEventType().getName().equals(eventName)) {
+                    events.add(event);
+                }
+            }
+            return events;
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.google.step.youtube;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public final class LazyOfferSnippetTest {
+
+    private static final String DESCRIPTION = "Use code ROOSTER today\nUse code ROOSTER today";
+    private static final String SNIPPET = "Use code ROOSTER today";
+
+    @Test
+    public void noEllipsis() {
+        OfferSnippet lazy = new LazyOfferSnippet(DESCRIPTION, 9, 16, 0, 22, false, false);
+        assertEqualToCreated(lazy, "ROOSTER", SNIPPET);
+    }
+
+    @Test
+    public void leadingAndTrailingEllipsis() {
+        OfferSnippet lazy = new LazyOfferSnippet(DESCRIPTION, 9, 16, 4, 16, true, true);
+        assertEqualToCreated(lazy, "ROOSTER", "... code ROOSTER ...");
+    }
+
+    @Test
+    public void sameTextAtDifferentOffsets() {
+        OfferSnippet first = new LazyOfferSnippet(DESCRIPTION, 9, 16, 0, 22, false, false);
+        OfferSnippet second = new LazyOfferSnippet(DESCRIPTION, 32, 39, 23, 45, false, false);
+        assertThat(first, equalTo(second));
+        assertThat(first.hashCode(), equalTo(second.hashCode()));
+    }
+
+    @Test
+    public void sameTextDifferentEllipsis() {
+        String description = "... code ROOSTER";
+        OfferSnippet withEllipsis = new LazyOfferSnippet(description, 9, 16, 4, 16, true, false);
+        OfferSnippet withoutEllipsis = new LazyOfferSnippet(description, 9, 16, 0, 16, false, false);
+        assertThat(withEllipsis, equalTo(withoutEllipsis));
+        assertThat(withEllipsis.hashCode(), equalTo(withoutEllipsis.hashCode()));
+    }
+
+    @Test
+    public void differentPromoCode() {
+        OfferSnippet first = new LazyOfferSnippet(DESCRIPTION, 9, 16, 0, 22, false, false);
+        OfferSnippet second = new LazyOfferSnippet(DESCRIPTION, 9, 15, 0, 22, false, false);
+        assertThat(first, not(equalTo(second)));
+    }
+
+    @Test(expected = StringIndexOutOfBoundsException.class)
+    public void snippetEndBeforeStart() {
+        new LazyOfferSnippet(DESCRIPTION, 9, 16, 22, 0, false, false);
+    }
+
+    /* helper method checking equality and hash codes both ways */
+    private void assertEqualToCreated(OfferSnippet lazy, String promoCode, String snippet) {
+        OfferSnippet created = OfferSnippet.create(promoCode, snippet);
+        assertThat(lazy, equalTo(created));
+        assertThat(created, equalTo(lazy));
+        assertThat(lazy.hashCode(), equalTo(created.hashCode()));
+        assertThat(lazy.getPromoCode(), equalTo(promoCode));
+        assertThat(lazy.getSnippet(), equalTo(snippet));
+    }
+}
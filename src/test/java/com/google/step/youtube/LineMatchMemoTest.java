@@ -0,0 +1,79 @@
+package com.google.step.youtube;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public final class LineMatchMemoTest {
+
+    private static final String SPONSOR_LINE = "Go to https://NordVPN.com/pewdiepie and use code PEWDIEPIE";
+
+    private LineMatchMemo memo;
+
+    @Before
+    public void setUp() {
+        memo = new LineMatchMemo(LineMatchMemo.MAX_LINES);
+        DescriptionParser.clearCache();
+    }
+
+    @Test
+    public void repeatedLineMatchedOnce() {
+        String first = "Video one, uploaded June 8\n" + SPONSOR_LINE;
+        String second = "The second video, uploaded June 15\n" + SPONSOR_LINE + "\nThanks for watching";
+
+        assertSameSpansAsWithoutMemo(first, first.indexOf(SPONSOR_LINE), first.length());
+        assertSameSpansAsWithoutMemo(second, second.indexOf(SPONSOR_LINE), second.indexOf("\nThanks"));
+
+        assertThat(memo.stats().hitCount(), equalTo(1L));
+        assertThat(memo.stats().missCount(), equalTo(1L));
+    }
+
+    @Test
+    public void contextIsPartOfKey() {
+        String withKeyword = "enter the code\nROOSTER at checkout!";
+        String withoutKeyword = "enter the form\nROOSTER at checkout!";
+
+        assertSameSpansAsWithoutMemo(withKeyword, withKeyword.indexOf("ROOSTER"), withKeyword.length());
+        assertSameSpansAsWithoutMemo(withoutKeyword, withoutKeyword.indexOf("ROOSTER"), withoutKeyword.length());
+
+        assertThat(memo.stats().hitCount(), equalTo(0L));
+    }
+
+    /* The quote puts the code a character further into the line than the keyword gap. */
+    @Test
+    public void quotedCodeAfterLineBreak() {
+        String desc = "Use code\n \"ABC\"";
+
+        assertSameSpansAsWithoutMemo(desc, desc.indexOf(' ', desc.indexOf('\n')), desc.length());
+        assertThat(DescriptionParser.parse(desc), equalTo(Arrays.asList(OfferSnippet.create("ABC", " \"ABC\""))));
+        assertThat(DescriptionParser.parse(desc), equalTo(DescriptionParser.parseFrom(desc, 0)));
+    }
+
+    @Test
+    public void parseWithMemoSameAsWithout() {
+        String sponsorBlock = "Use code FUNGBROS10. \nClick here and use my code \"COOLIRPA\".\n" + SPONSOR_LINE + "\n"
+                + "use https://lmg.gg/glasswire to get 25% off\nenter the code\nROOSTER at checkout!";
+        long missCount = DescriptionParser.getLineMemoStats().missCount();
+        for (String title : new String[] {"First video", "Second video", "Third video"}) {
+            String desc = title + "\n" + sponsorBlock + "\n" + title;
+            assertThat(DescriptionParser.parse(desc), equalTo(DescriptionParser.parseFrom(desc, 0)));
+        }
+        // the three titles and the six lines of the sponsor block
+        assertThat(DescriptionParser.getLineMemoStats().missCount() - missCount, equalTo(9L));
+    }
+
+    /* helper method comparing the memo against matching the line directly */
+    private void assertSameSpansAsWithoutMemo(String description, int lineStart, int lineEnd) {
+        int contextStart = Math.max(0, lineStart - DescriptionParser.LOOKBEHIND_CONTEXT_LENGTH);
+        List<List<MatchSpan>> expected = DescriptionParser.findAllSpans(description, contextStart, lineEnd, lineStart);
+        assertThat(memo.findAllSpans(description, lineStart, lineEnd, contextStart), equalTo(expected));
+    }
+}
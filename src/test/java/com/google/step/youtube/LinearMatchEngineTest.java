@@ -0,0 +1,114 @@
+package com.google.step.youtube;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assume.assumeTrue;
+
+import com.google.common.collect.ImmutableList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public final class LinearMatchEngineTest {
+
+    private static final ExtractionRules JDK_RULES = ExtractionRules.defaults(ExtractionRules.Engine.JDK);
+    private static final ExtractionRules LINEAR_RULES = ExtractionRules.defaults(ExtractionRules.Engine.LINEAR);
+
+    // pieces the random descriptions are made of, around the keywords, gaps, quotes, links and
+    // line terminators the built-in patterns look at
+    private static final List<String> ASCII_PIECES = ImmutableList.of("code", "CoDe", "to", "AT", "at", " ",
+            "  ", ":", "\"", "'", "http://", "https://", "HTTP://", "x.co/a", "ABC", "x1-2", "_", "-", "20%",
+            "$5", ",", ")", "\n", "\r", "\t", "\u000B", "\u0085", " ");
+    private static final List<String> UNICODE_PIECES = ImmutableList.of("é", "́", "😀", "\uD83D",
+            "日本", "٣");
+
+    @Test
+    public void sameMatchesAsJdkEngine_descriptions() {
+        List<String> descs = ImmutableList.of("",
+                "Use code FUNGBROS10. \nClick here and use my code \"COOLIRPA\".",
+                "Go to https://NordVPN.com/pewdiepie and use code PEWDIEPIE",
+                "code ABC code DEF codecode GHI code: \"a\" code \"b code \"c\"",
+                "code \"a\nb\" code \"X\" to HTTPS://X.com at https://y to\nhttp://a",
+                "Get 20% off at https://stamps.com, or code 'bobat15' at https://lmg.gg/x?ref=https://lmg.gg/y",
+                "code\n\"X\"\nto\nhttps://z.co\ncode ABC  code\r\nDEF");
+        for (String desc : descs) {
+            assertSameMatches(desc);
+        }
+    }
+
+    @Test
+    public void sameMatchesAsJdkEngine_randomDescriptions() {
+        assertSameMatchesOnRandomDescriptions(ASCII_PIECES, 2000);
+    }
+
+    @Test
+    public void sameMatchesAsJdkEngine_randomUnicodeDescriptions() {
+        // word boundaries only consider non-ASCII letters before Java 19, which the engine follows
+        assumeTrue(!Pattern.compile("\\bcode").matcher("écode").find());
+        List<String> pieces = new ArrayList<>(ASCII_PIECES);
+        pieces.addAll(UNICODE_PIECES);
+        assertSameMatchesOnRandomDescriptions(pieces, 2000);
+    }
+
+    @Test
+    public void linearTime_adversarialDescription() {
+        // each of the many keywords is followed by an unterminated quote
+        StringBuilder desc = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            desc.append("code \"").append(i).append(" to http://");
+        }
+        MatchBudget.Meter meter = MatchBudget.of(50_000_000, 1, java.util.concurrent.TimeUnit.MINUTES).start();
+        LINEAR_RULES.findAllSpans(desc.toString(), 0, desc.length(), 0, meter);
+
+        assertThat(meter.isExceeded(), equalTo(false));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void builtin_symbolNearLinkHasNoRegex() {
+        LinearMatchEngine.builtin(DescriptionParser.Patterns.SYMBOL_NEAR_LINK);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void custom_lookaroundsNotSupported() {
+        LinearMatchEngine.custom("(?<=code )[A-Z]+");
+    }
+
+    private static void assertSameMatchesOnRandomDescriptions(List<String> pieces, int count) {
+        Random random = new Random(42);
+        for (int i = 0; i < count; i++) {
+            StringBuilder desc = new StringBuilder();
+            int length = 1 + random.nextInt(24);
+            for (int j = 0; j < length; j++) {
+                desc.append(pieces.get(random.nextInt(pieces.size())));
+            }
+            assertSameMatches(desc.toString());
+        }
+    }
+
+    /* compares both engines on all of desc, on every line of it and from every index of it */
+    private static void assertSameMatches(String desc) {
+        MatchBudget.Meter unlimited = MatchBudget.UNLIMITED.start();
+        assertThat(desc, LINEAR_RULES.findAllSpans(desc, 0, desc.length(), 0, unlimited),
+                equalTo(JDK_RULES.findAllSpans(desc, 0, desc.length(), 0, unlimited)));
+        for (int from = 0; from < desc.length(); from++) {
+            assertThat(desc + " from " + from, LINEAR_RULES.findAllSpans(desc, 0, desc.length(), from, unlimited),
+                    equalTo(JDK_RULES.findAllSpans(desc, 0, desc.length(), from, unlimited)));
+        }
+        int lineStart = 0;
+        while (lineStart <= desc.length()) {
+            int lineEnd = desc.indexOf('\n', lineStart);
+            lineEnd = lineEnd < 0 ? desc.length() : lineEnd;
+            assertThat(desc + " line " + lineStart, LINEAR_RULES.findAllSpans(desc, lineStart, lineEnd, lineStart,
+                    unlimited), equalTo(JDK_RULES.findAllSpans(desc, lineStart, lineEnd, lineStart, unlimited)));
+            assertThat(desc + " line " + lineStart, LINEAR_RULES.dependsOnContext(desc, lineStart, lineEnd),
+                    equalTo(JDK_RULES.dependsOnContext(desc, lineStart, lineEnd)));
+            lineStart = lineEnd + 1;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.google.step.youtube;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public final class MatchBudgetTest {
+
+    private static final Pattern CATASTROPHIC_PATTERN = Pattern.compile("(a+)+b");
+    // tries every start and reads the rest of the text from each, on every JDK
+    private static final Pattern QUADRATIC_PATTERN = Pattern.compile(".*b");
+
+    @Test
+    public void budgetedCharSequence_countsEveryRead() {
+        MatchBudget.Meter meter = MatchBudget.of(10, 1, TimeUnit.MINUTES).start();
+        CharSequence text = new BudgetedCharSequence("abcdefghij", meter);
+        for (int i = 0; i < text.length(); i++) {
+            text.charAt(i);
+        }
+        assertThat(meter.getSteps(), equalTo(10L));
+        assertThat(meter.isExceeded(), equalTo(false));
+
+        try {
+            text.charAt(0);
+            throw new AssertionError("Expected a MatchBudgetExceededException");
+        } catch (MatchBudget.MatchBudgetExceededException e) {
+            // expected
+        }
+        assertThat(meter.getSteps(), equalTo(11L));
+        assertThat(meter.isExceeded(), equalTo(true));
+    }
+
+    /* The clock is first read after 4096 steps, by when a 1 ns timeout has run out. */
+    @Test
+    public void budgetedCharSequence_stopsWhenTimeRunsOut() {
+        MatchBudget.Meter meter = MatchBudget.of(Long.MAX_VALUE - 1, 1, TimeUnit.NANOSECONDS).start();
+        CharSequence text = new BudgetedCharSequence("aaaa", meter);
+        try {
+            for (int i = 0; i < 1_000_000; i++) {
+                text.charAt(i % text.length());
+            }
+            throw new AssertionError("Expected a MatchBudgetExceededException");
+        } catch (MatchBudget.MatchBudgetExceededException e) {
+            // expected
+        }
+        assertThat(meter.getSteps(), equalTo(4096L));
+        assertThat(meter.isExceeded(), equalTo(true));
+    }
+
+    @Test
+    public void budgetedCharSequence_stopsMatcher() {
+        MatchBudget.Meter meter = MatchBudget.of(100_000, 1, TimeUnit.MINUTES).start();
+        String text = String.join("", Collections.nCopies(1000, "a"));
+        try {
+            QUADRATIC_PATTERN.matcher(new BudgetedCharSequence(text, meter)).find();
+            throw new AssertionError("Expected a MatchBudgetExceededException");
+        } catch (MatchBudget.MatchBudgetExceededException e) {
+            // expected
+        }
+        assertThat(meter.getSteps(), equalTo(100_001L));
+    }
+
+    @Test
+    public void budgetedCharSequence_withinBudgetSameMatch() {
+        MatchBudget.Meter meter = MatchBudget.of(100_000, 1, TimeUnit.MINUTES).start();
+        java.util.regex.Matcher matcher = CATASTROPHIC_PATTERN.matcher(new BudgetedCharSequence("xaaab", meter));
+        assertThat(matcher.find(), equalTo(true));
+        assertThat(matcher.start(), equalTo(1));
+        assertThat(meter.isExceeded(), equalTo(false));
+    }
+
+    @Test
+    public void meter_keepsFailingOnceExceeded() {
+        MatchBudget.Meter meter = MatchBudget.of(1, 1, TimeUnit.MINUTES).start();
+        meter.step();
+        for (int i = 0; i < 2; i++) {
+            try {
+                meter.step();
+            } catch (MatchBudget.MatchBudgetExceededException e) {
+                // expected
+            }
+        }
+        assertThat(meter.isExceeded(), equalTo(true));
+        assertThat(meter.getSteps(), equalTo(2L));
+    }
+
+    @Test
+    public void unlimited_isUnlimited() {
+        assertThat(MatchBudget.UNLIMITED.start().isUnlimited(), equalTo(true));
+        assertThat(MatchBudget.of(1, 1, TimeUnit.SECONDS).start().isUnlimited(), equalTo(false));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void of_nonPositiveSteps() {
+        MatchBudget.of(0, 1, TimeUnit.SECONDS);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void of_nonPositiveTimeout() {
+        MatchBudget.of(1, 0, TimeUnit.SECONDS);
+    }
+}
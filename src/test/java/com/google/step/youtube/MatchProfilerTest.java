@@ -0,0 +1,122 @@
+package com.google.step.youtube;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import com.google.common.collect.ImmutableList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public final class MatchProfilerTest {
+
+    private static final String DESCRIPTION = "Use code PROFILED10 or go to https://example.com/profiled "
+            + "and get 20% off at https://example.com/deal";
+
+    private final MatchProfiler profiler = DescriptionParser.getProfiler();
+
+    @After
+    public void tearDown() {
+        profiler.setEnabled(false);
+        profiler.setSlowInputThreshold(MatchProfiler.DEFAULT_SLOW_INPUT_THRESHOLD_NANOS, TimeUnit.NANOSECONDS);
+        profiler.reset();
+        DescriptionParser.clearCache();
+    }
+
+    @Test
+    public void histogram_percentilesWithinFactorOfTwo() {
+        MatchProfiler.Histogram histogram = histogramOf(1, 2, 3, 4, 5, 6, 7, 8, 9, 100);
+
+        assertThat(histogram.getCount(), equalTo(10L));
+        assertThat(histogram.getSum(), equalTo(145L));
+        assertThat(histogram.getMax(), equalTo(100L));
+        assertThat(histogram.getPercentile(50), equalTo(7L));
+        assertThat(histogram.getPercentile(90), equalTo(15L));
+        assertThat(histogram.getPercentile(100), equalTo(100L));
+    }
+
+    @Test
+    public void histogram_empty() {
+        MatchProfiler.Histogram histogram = histogramOf();
+
+        assertThat(histogram.getPercentile(99), equalTo(0L));
+        assertThat(histogram.getMean(), equalTo(0.0));
+    }
+
+    @Test
+    public void recordInput_keepsLastSlowInputsOldestFirst() {
+        MatchProfiler profiler = new MatchProfiler();
+        profiler.setSlowInputThreshold(10, TimeUnit.NANOSECONDS);
+        profiler.recordInput(9, 1);
+        for (int i = 0; i < MatchProfiler.SLOW_INPUT_CAPACITY + 5; i++) {
+            profiler.recordInput(10 + i, i);
+        }
+
+        List<MatchProfiler.SlowInput> inputs = profiler.getSlowInputs();
+        assertThat(inputs.size(), equalTo(MatchProfiler.SLOW_INPUT_CAPACITY));
+        assertThat(inputs.get(0), equalTo(MatchProfiler.SlowInput.create("", 5, 15)));
+        assertThat(inputs.get(inputs.size() - 1).getLength(), equalTo(MatchProfiler.SLOW_INPUT_CAPACITY + 4));
+    }
+
+    @Test
+    public void parse_profiledFindsSameOffers() {
+        List<OfferSnippet> unprofiled = DescriptionParser.parse(DESCRIPTION);
+        DescriptionParser.clearCache();
+        profiler.setEnabled(true);
+
+        assertThat(DescriptionParser.parse(DESCRIPTION), equalTo(unprofiled));
+    }
+
+    @Test
+    public void parse_recordsEveryRule() {
+        profiler.setEnabled(true);
+        DescriptionParser.parse(DESCRIPTION);
+
+        Map<String, MatchProfiler.RuleProfile> profiles = profiler.getRuleProfiles();
+        assertThat(profiles.keySet().size(), equalTo(DescriptionParser.Patterns.values().length));
+        for (MatchProfiler.RuleProfile profile : profiles.values()) {
+            assertThat(profile.getNanos().getCount() > 0, equalTo(true));
+        }
+        assertThat(profiles.get("CODE_NO_QUOTES").getMatches().getSum() > 0, equalTo(true));
+    }
+
+    @Test
+    public void parse_disabledRecordsNothing() {
+        DescriptionParser.parse(DESCRIPTION);
+
+        assertThat(profiler.getRuleProfiles().isEmpty(), equalTo(true));
+        assertThat(profiler.getSlowInputs().isEmpty(), equalTo(true));
+    }
+
+    @Test
+    public void parseAll_slowInputsHaveInputIds() {
+        profiler.setEnabled(true);
+        profiler.setSlowInputThreshold(0, TimeUnit.NANOSECONDS);
+        DescriptionParser.parseAll(ImmutableList.of(DESCRIPTION), ImmutableList.of("videoId"),
+                ForkJoinPool.commonPool());
+
+        assertThat(profiler.getSlowInputs(),
+                equalTo(ImmutableList.of(MatchProfiler.SlowInput.create("videoId", DESCRIPTION.length(),
+                        profiler.getSlowInputs().get(0).getNanos()))));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void parseAll_inputIdsOfOtherSize() {
+        DescriptionParser.parseAll(ImmutableList.of(DESCRIPTION), ImmutableList.of(), ForkJoinPool.commonPool());
+    }
+
+    private static MatchProfiler.Histogram histogramOf(long... values) {
+        MatchProfiler.Histogram histogram = new MatchProfiler.Histogram();
+        for (long value : values) {
+            histogram.record(value);
+        }
+        return histogram;
+    }
+}
@@ -0,0 +1,104 @@
+package com.google.step.youtube;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public final class ParseResultCacheTest {
+
+    private static final String DESCRIPTION = "Use code ROOSTER today";
+    private static final String OTHER_DESCRIPTION = "Use code FUNGBROS10 today";
+    private static final String COMPANY_NAME = "COMPANY_NAME";
+    private static final long RULES_VERSION = 1;
+
+    private ParseResultCache cache;
+    private AtomicInteger parseCount;
+
+    @Before
+    public void setUp() {
+        cache = new ParseResultCache(ParseResultCache.MAX_CACHED_CHARS);
+        parseCount = new AtomicInteger();
+    }
+
+    @Test
+    public void repeatedDescriptionParsedOnce() {
+        List<OfferSnippet> first = cache.get(RULES_VERSION, DESCRIPTION, countingParser(DESCRIPTION));
+        List<OfferSnippet> second = cache.get(RULES_VERSION, new String(DESCRIPTION), countingParser(DESCRIPTION));
+
+        assertThat(second, equalTo(first));
+        assertThat(parseCount.get(), equalTo(1));
+        assertThat(cache.stats().hitCount(), equalTo(1L));
+        assertThat(cache.stats().missCount(), equalTo(1L));
+    }
+
+    @Test
+    public void differentDescriptionsParsedSeparately() {
+        cache.get(RULES_VERSION, DESCRIPTION, countingParser(DESCRIPTION));
+        List<OfferSnippet> other = cache.get(RULES_VERSION, OTHER_DESCRIPTION, countingParser(OTHER_DESCRIPTION));
+
+        assertThat(other, equalTo(DescriptionParser.parse(OTHER_DESCRIPTION)));
+        assertThat(parseCount.get(), equalTo(2));
+    }
+
+    @Test
+    public void companyIsPartOfKey() {
+        cache.get(RULES_VERSION, DESCRIPTION, countingParser(DESCRIPTION));
+        cache.get(RULES_VERSION, COMPANY_NAME, DESCRIPTION, countingParser(DESCRIPTION));
+        cache.get(RULES_VERSION, "", DESCRIPTION, countingParser(DESCRIPTION));
+        cache.get(RULES_VERSION, COMPANY_NAME, DESCRIPTION, countingParser(DESCRIPTION));
+
+        assertThat(parseCount.get(), equalTo(3));
+        assertThat(cache.stats().hitCount(), equalTo(1L));
+    }
+
+    @Test
+    public void rulesVersionIsPartOfKey() {
+        cache.get(RULES_VERSION, DESCRIPTION, countingParser(DESCRIPTION));
+        cache.get(RULES_VERSION + 1, DESCRIPTION, countingParser(DESCRIPTION));
+        cache.get(RULES_VERSION + 1, COMPANY_NAME, DESCRIPTION, countingParser(DESCRIPTION));
+        cache.get(RULES_VERSION, DESCRIPTION, countingParser(DESCRIPTION));
+
+        assertThat(parseCount.get(), equalTo(3));
+    }
+
+    @Test
+    public void callersGetTheirOwnCopy() {
+        cache.get(RULES_VERSION, DESCRIPTION, countingParser(DESCRIPTION)).clear();
+        assertThat(cache.get(RULES_VERSION, DESCRIPTION, countingParser(DESCRIPTION)), equalTo(DescriptionParser.parse(DESCRIPTION)));
+    }
+
+    @Test
+    public void evictsPastMaxCachedChars() {
+        cache = new ParseResultCache(DESCRIPTION.length());
+        cache.get(RULES_VERSION, DESCRIPTION, countingParser(DESCRIPTION));
+        cache.get(RULES_VERSION, OTHER_DESCRIPTION, countingParser(OTHER_DESCRIPTION));
+        cache.get(RULES_VERSION, DESCRIPTION, countingParser(DESCRIPTION));
+
+        assertThat(parseCount.get(), equalTo(3));
+        assertThat(cache.stats().evictionCount(), greaterThan(0L));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void parserExceptionRethrown() {
+        cache.get(RULES_VERSION, DESCRIPTION, () -> {
+            throw new IllegalArgumentException();
+        });
+    }
+
+    private Supplier<List<OfferSnippet>> countingParser(String description) {
+        return () -> {
+            parseCount.incrementAndGet();
+            return DescriptionParser.parseFrom(description, 0);
+        };
+    }
+}
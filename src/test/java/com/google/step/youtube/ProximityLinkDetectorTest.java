@@ -0,0 +1,126 @@
+package com.google.step.youtube;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public final class ProximityLinkDetectorTest {
+
+    private static final Pattern SYMBOL_NEAR_LINK_PATTERN = DescriptionParser.Patterns.SYMBOL_NEAR_LINK.getPattern();
+
+    // characters the random descriptions are built from, weighted towards the interesting ones
+    private static final String[] RANDOM_TOKENS = {"https://", "http://", "httpss://", "http", "a", "b.c", "/",
+            "$", "5", "%", " ", " ", ",", ")", "\n", "\r", " ", "x", "\ud83d\ude00", "\ud83d",
+            repeat("\ud83d\udd25", 20)};
+
+    @Test
+    public void symbolBeforeLink() {
+        assertSameMatchesAsPattern("Save 33% on your first Native Deodorant Pack. Click here: http://bit.ly/nativecoolirpa");
+    }
+
+    @Test
+    public void symbolAfterLink() {
+        assertSameMatchesAsPattern("use: https://bit.ly/nativecoolirpa for $5 off or go to: https://lmg.gg/glasswire for 20% off");
+    }
+
+    @Test
+    public void symbolExactly100CharsAway() {
+        String filler = repeat('x', 99);
+        assertSameMatchesAsPattern("$5 " + filler + "https://bit.ly/a");
+        assertSameMatchesAsPattern("$5 " + filler + "xhttps://bit.ly/a");
+        assertSameMatchesAsPattern("https://bit.ly/a " + filler + "$5");
+        assertSameMatchesAsPattern("https://bit.ly/a " + filler + "x$5");
+    }
+
+    @Test
+    public void supplementaryCharacters() {
+        // a link doesn't end inside a surrogate pair
+        assertSameMatchesAsPattern("http://\ud83d\ude00$5");
+        assertSameMatchesAsPattern("http://\ud83d\ude005%");
+        assertSameMatchesAsPattern("http://a\ud83d\ude00$5");
+        // after a link the distance is in code points, before a link in chars
+        String filler = repeat("\ud83d\udd25 ", 45);
+        assertSameMatchesAsPattern("http://a " + filler + "$5");
+        assertSameMatchesAsPattern("$5 " + filler + "http://a");
+        assertSameMatchesAsPattern("$5 " + repeat("\ud83d\udd25 ", 33) + "http://a");
+        assertSameMatchesAsPattern("$5 " + repeat("\ud83d\udd25 ", 34) + "http://a");
+    }
+
+    @Test
+    public void symbolInsideLinkShortensLink() {
+        // the regex backtracks into the link until the symbol is 1+ characters after it
+        assertSameMatchesAsPattern("https://ab$5c");
+        assertSameMatchesAsPattern("see https://x.com/50%off now");
+    }
+
+    @Test
+    public void linkInsideLink() {
+        assertSameMatchesAsPattern("https://a.com/?r=https://b.com $5");
+        assertSameMatchesAsPattern("go https://a.com/?r=http://b.com\n50% https://c.com");
+    }
+
+    @Test
+    public void lineTerminatorsBetween() {
+        assertSameMatchesAsPattern("$5 \r https://bit.ly/a");
+        assertSameMatchesAsPattern("https://bit.ly/a   $5");
+        assertSameMatchesAsPattern("https://bit.ly/a\u0085 $5");
+    }
+
+    @Test
+    public void rangeOfDescription() {
+        String line = "use: https://bit.ly/nativecoolirpa for $5 off";
+        String desc = "$5 https://a.com\n" + line + "\nhttps://b.com 20%";
+        int start = desc.indexOf(line);
+
+        List<MatchSpan> expected = new ArrayList<>();
+        for (MatchSpan span : ProximityLinkDetector.findMatches(line)) {
+            expected.add(MatchSpan.create(span.getStart() + start, span.getEnd() + start));
+        }
+        assertThat(ProximityLinkDetector.findMatches(desc, start, start + line.length()), equalTo(expected));
+    }
+
+    @Test
+    public void randomDescriptions() {
+        Random random = new Random(42);
+        for (int i = 0; i < 2000; i++) {
+            StringBuilder description = new StringBuilder();
+            int tokens = random.nextInt(60);
+            for (int j = 0; j < tokens; j++) {
+                description.append(RANDOM_TOKENS[random.nextInt(RANDOM_TOKENS.length)]);
+            }
+            assertSameMatchesAsPattern(description.toString());
+        }
+    }
+
+    /* helper method comparing against the matches of the SYMBOL_NEAR_LINK regex */
+    private void assertSameMatchesAsPattern(String description) {
+        List<MatchSpan> expected = new ArrayList<>();
+        Matcher matcher = SYMBOL_NEAR_LINK_PATTERN.matcher(description);
+        while (matcher.find()) {
+            expected.add(MatchSpan.create(matcher.start(), matcher.end()));
+        }
+        assertThat(description, ProximityLinkDetector.findMatches(description), equalTo(expected));
+    }
+
+    private static String repeat(char c, int count) {
+        return repeat(String.valueOf(c), count);
+    }
+
+    private static String repeat(String s, int count) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            builder.append(s);
+        }
+        return builder.toString();
+    }
+}
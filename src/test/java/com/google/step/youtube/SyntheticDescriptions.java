@@ -0,0 +1,180 @@
+package com.google.step.youtube;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.collect.ImmutableList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates video descriptions that look like real ones, of any length from a hundred
+ * characters to several megabytes: prose in several languages and scripts, emoji, chapter
+ * timestamps, sponsor blocks with codes, prices and percentages, and farms of links without
+ * offers. The same seed always generates the same descriptions, so load and regression tests
+ * see the same input on every run.
+ */
+public final class SyntheticDescriptions {
+
+    public static final int MIN_LENGTH = 100;
+
+    private static final List<String> PROSE = ImmutableList.of(
+            "Today we are building the smallest gaming PC we have ever made.",
+            "We tried every flavor of instant ramen so you don't have to.",
+            "Thanks to everyone who came out to the meetup last weekend!",
+            "Don't forget to like and subscribe, it really helps the channel.",
+            "Hoy probamos la comida callejera más famosa de la Ciudad de México.",
+            "Aujourd'hui on teste le nouveau téléphone pendant une semaine complète.",
+            "Heute bauen wir ein Regal aus alten Paletten, ganz ohne Schrauben.",
+            "今日は東京の一番古いラーメン屋さんに行ってきました。",
+            "오늘은 서울에서 가장 유명한 떡볶이 가게를 소개합니다.",
+            "Сегодня мы собираем компьютер своими руками за один вечер.",
+            "اليوم نجرب أشهر المطاعم في وسط المدينة مع الأصدقاء.",
+            "आज हम घर पर सबसे आसान तरीके से बिरयानी बनाना सीखेंगे।",
+            "Hôm nay chúng tôi đi du lịch Đà Nẵng cùng cả gia đình.");
+
+    private static final List<String> EMOJI = ImmutableList.of("😀", "🔥", "👇", "🎮", "❤️", "✅", "🚀",
+            "👨‍👩‍👧", "🇯🇵", "👍🏽", "✨", "📦");
+
+    private static final List<String> SPONSORS = ImmutableList.of("NordVPN", "Squarespace", "Manscaped",
+            "Bokksu", "Skillshare", "GlassWire", "Raycon", "HelloFresh");
+
+    private static final List<String> LINK_HOSTS = ImmutableList.of("https://amzn.to/", "https://bit.ly/",
+            "http://instagram.com/", "https://twitter.com/", "https://www.patreon.com/", "https://discord.gg/",
+            "https://lmg.gg/", "https://youtu.be/");
+
+    private static final List<String> HEADINGS = ImmutableList.of("TIMESTAMPS", "Chapters:", "GEAR I USE",
+            "THANK YOU TO OUR SPONSORS", "Follow me", "━━━━━━━━━━━━━━━━━━", "#vlog #tech #food");
+
+    private final long seed;
+
+    /** @param seed from which every description is generated. */
+    public SyntheticDescriptions(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * @param length Number of characters of the description, at least MIN_LENGTH.
+     * @param index Which description of this length to generate; different indexes give
+     *        different descriptions.
+     * @return A description of exactly length characters, the same for the same seed, length
+     *         and index.
+     */
+    public String generate(int length, int index) {
+        checkArgument(length >= MIN_LENGTH, "length must be at least %s but was %s", MIN_LENGTH, length);
+        Random random = new Random(seed * 31 + index * 1_000_003L + length);
+        StringBuilder description = new StringBuilder(length + 256);
+        appendProse(random, description, 1 + random.nextInt(3));
+        description.append("\n\n");
+        while (description.length() < length) {
+            switch (random.nextInt(5)) {
+                case 0:
+                    appendTimestamps(random, description);
+                    break;
+                case 1:
+                    appendSponsorBlock(random, description);
+                    break;
+                case 2:
+                    appendLinkFarm(random, description);
+                    break;
+                default:
+                    appendProse(random, description, 2 + random.nextInt(6));
+                    description.append("\n\n");
+            }
+        }
+        return truncate(description, length);
+    }
+
+    /**
+     * @param count Number of descriptions.
+     * @param minLength Length of the shortest description, at least MIN_LENGTH.
+     * @param maxLength Length of the longest description.
+     * @return count descriptions with lengths spread evenly on a log scale from minLength to
+     *         maxLength, so there are as many short descriptions as long ones.
+     */
+    public List<String> corpus(int count, int minLength, int maxLength) {
+        checkArgument(count > 0, "count must be positive but was %s", count);
+        checkArgument(minLength <= maxLength, "minLength %s is more than maxLength %s", minLength, maxLength);
+        ImmutableList.Builder<String> descriptions = ImmutableList.builder();
+        double ratio = count == 1 ? 1 : Math.pow((double) maxLength / minLength, 1.0 / (count - 1));
+        for (int i = 0; i < count; i++) {
+            int length = (int) Math.min(maxLength, Math.round(minLength * Math.pow(ratio, i)));
+            descriptions.add(generate(length, i));
+        }
+        return descriptions.build();
+    }
+
+    private static void appendProse(Random random, StringBuilder description, int sentences) {
+        for (int i = 0; i < sentences; i++) {
+            description.append(pick(random, PROSE));
+            if (random.nextInt(3) == 0) {
+                description.append(' ').append(pick(random, EMOJI));
+            }
+            description.append(' ');
+        }
+    }
+
+    private static void appendTimestamps(Random random, StringBuilder description) {
+        description.append(pick(random, HEADINGS)).append('\n');
+        int seconds = 0;
+        for (int i = 4 + random.nextInt(30); i > 0; i--) {
+            seconds += 10 + random.nextInt(300);
+            String prose = pick(random, PROSE);
+            description.append(String.format("%d:%02d:%02d ", seconds / 3600, seconds / 60 % 60, seconds % 60))
+                    .append(prose, 0, Math.min(prose.length(), 20 + random.nextInt(30))).append('\n');
+        }
+        description.append('\n');
+    }
+
+    private static void appendSponsorBlock(Random random, StringBuilder description) {
+        String sponsor = pick(random, SPONSORS);
+        String link = "https://" + sponsor.toLowerCase() + ".com/" + token(random, 6);
+        String code = sponsor.toUpperCase() + (10 + random.nextInt(90));
+        description.append(pick(random, HEADINGS)).append('\n');
+        switch (random.nextInt(4)) {
+            case 0:
+                description.append("Get ").append(10 + random.nextInt(80)).append("% off ").append(sponsor)
+                        .append(" at ").append(link).append(" with code ").append(code);
+                break;
+            case 1:
+                description.append("Thanks to ").append(sponsor).append(" for sponsoring! Use my code \"")
+                        .append(code).append("\" for $").append(5 + random.nextInt(50)).append(" off");
+                break;
+            case 2:
+                description.append(pick(random, EMOJI)).append(' ').append(sponsor).append(": ").append(link)
+                        .append(" (save ").append(5 + random.nextInt(60)).append("%)");
+                break;
+            default:
+                description.append("Go to ").append(link).append(" to try ").append(sponsor).append(" free.");
+        }
+        description.append("\n\n");
+    }
+
+    private static void appendLinkFarm(Random random, StringBuilder description) {
+        for (int i = 3 + random.nextInt(40); i > 0; i--) {
+            description.append(pick(random, LINK_HOSTS)).append(token(random, 4 + random.nextInt(10)));
+            description.append(random.nextInt(4) == 0 ? " " + pick(random, EMOJI) + "\n" : "\n");
+        }
+        description.append('\n');
+    }
+
+    /* cuts description to length without leaving half of a surrogate pair at the end */
+    private static String truncate(StringBuilder description, int length) {
+        description.setLength(length);
+        if (Character.isHighSurrogate(description.charAt(length - 1))) {
+            description.setCharAt(length - 1, ' ');
+        }
+        return description.toString();
+    }
+
+    private static String token(Random random, int length) {
+        StringBuilder token = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            token.append(Character.forDigit(random.nextInt(36), 36));
+        }
+        return token.toString();
+    }
+
+    private static String pick(Random random, List<String> strings) {
+        return strings.get(random.nextInt(strings.size()));
+    }
+}
@@ -0,0 +1,49 @@
+package com.google.step.youtube;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+
+import java.util.List;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public final class SyntheticDescriptionsTest {
+
+    @Test
+    public void generate_sameForSameSeed() {
+        assertThat(new SyntheticDescriptions(7).generate(5000, 3),
+                equalTo(new SyntheticDescriptions(7).generate(5000, 3)));
+        assertThat(new SyntheticDescriptions(7).generate(5000, 3),
+                not(equalTo(new SyntheticDescriptions(8).generate(5000, 3))));
+    }
+
+    @Test
+    public void generate_exactLength() {
+        SyntheticDescriptions generator = new SyntheticDescriptions(42);
+        for (int length : new int[] {SyntheticDescriptions.MIN_LENGTH, 1234, 3 << 20}) {
+            String desc = generator.generate(length, 0);
+            assertThat(desc.length(), equalTo(length));
+            assertThat(Character.isHighSurrogate(desc.charAt(length - 1)), equalTo(false));
+        }
+    }
+
+    @Test
+    public void generate_hasOffers() {
+        String desc = new SyntheticDescriptions(42).generate(20_000, 0);
+
+        assertThat(DescriptionParser.parseFrom(desc, 0).isEmpty(), equalTo(false));
+    }
+
+    @Test
+    public void corpus_lengthsFromMinToMax() {
+        List<String> corpus = new SyntheticDescriptions(42).corpus(10, 100, 100_000);
+
+        assertThat(corpus.size(), equalTo(10));
+        assertThat(corpus.get(0).length(), equalTo(100));
+        assertThat(corpus.get(9).length(), equalTo(100_000));
+    }
+}
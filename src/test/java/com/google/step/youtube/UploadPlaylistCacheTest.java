@@ -0,0 +1,102 @@
+package com.google.step.youtube;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import com.google.common.base.Ticker;
+import java.io.IOException;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public final class UploadPlaylistCacheTest {
+
+    private static final String CHANNEL_ID = "UCBR8-60-B28hp2BmDPdntcQ";
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final AtomicInteger lookups = new AtomicInteger();
+    private UploadPlaylistCache cache;
+
+    @Before
+    public void setUp() {
+        cache = new UploadPlaylistCache(new Ticker() {
+            @Override
+            public long read() {
+                return nanos.get();
+            }
+        });
+    }
+
+    @Test
+    public void deriveFromChannelId_usualForm() {
+        assertThat(UploadPlaylistCache.deriveFromChannelId(CHANNEL_ID), equalTo(Optional.of("UUBR8-60-B28hp2BmDPdntcQ")));
+    }
+
+    @Test
+    public void deriveFromChannelId_otherForms() {
+        assertThat(UploadPlaylistCache.deriveFromChannelId("CHANNEL_ID").isPresent(), equalTo(false));
+        assertThat(UploadPlaylistCache.deriveFromChannelId("UCshort").isPresent(), equalTo(false));
+        assertThat(UploadPlaylistCache.deriveFromChannelId(CHANNEL_ID + "x").isPresent(), equalTo(false));
+        assertThat(UploadPlaylistCache.deriveFromChannelId("UC$R8-60-B28hp2BmDPdntcQ").isPresent(), equalTo(false));
+    }
+
+    @Test
+    public void found_keptUntilTtl() throws IOException {
+        assertThat(cache.getByUserName("user", () -> lookUp(Optional.of("UPLOADS"))), equalTo(Optional.of("UPLOADS")));
+        advance(UploadPlaylistCache.FOUND_TTL_HOURS, TimeUnit.HOURS, -1);
+        assertThat(cache.getByUserName("user", () -> lookUp(Optional.of("OTHER"))), equalTo(Optional.of("UPLOADS")));
+        assertThat(lookups.get(), equalTo(1));
+
+        advance(1, TimeUnit.NANOSECONDS, 0);
+        assertThat(cache.getByUserName("user", () -> lookUp(Optional.of("OTHER"))), equalTo(Optional.of("OTHER")));
+        assertThat(lookups.get(), equalTo(2));
+    }
+
+    @Test
+    public void missing_keptForShorterTtl() throws IOException {
+        assertThat(cache.getByUserName("user", () -> lookUp(Optional.empty())).isPresent(), equalTo(false));
+        advance(UploadPlaylistCache.MISSING_TTL_MINUTES, TimeUnit.MINUTES, -1);
+        assertThat(cache.getByUserName("user", () -> lookUp(Optional.of("UPLOADS"))).isPresent(), equalTo(false));
+        assertThat(lookups.get(), equalTo(1));
+
+        advance(1, TimeUnit.NANOSECONDS, 0);
+        assertThat(cache.getByUserName("user", () -> lookUp(Optional.of("UPLOADS"))), equalTo(Optional.of("UPLOADS")));
+        assertThat(lookups.get(), equalTo(2));
+    }
+
+    @Test
+    public void failedLookup_notKept() throws IOException {
+        try {
+            cache.getByUserName("user", () -> {
+                throw new IOException("quota exceeded");
+            });
+            throw new AssertionError("Expected an IOException");
+        } catch (IOException expected) {
+            // the next lookup asks again
+        }
+        assertThat(cache.getByUserName("user", () -> lookUp(Optional.of("UPLOADS"))), equalTo(Optional.of("UPLOADS")));
+    }
+
+    @Test
+    public void channelIdAndUserName_keptApart() throws IOException {
+        cache.getByUserName("name", () -> lookUp(Optional.of("USER_UPLOADS")));
+        assertThat(cache.getByChannelId("name", () -> lookUp(Optional.of("CHANNEL_UPLOADS"))),
+                equalTo(Optional.of("CHANNEL_UPLOADS")));
+        assertThat(lookups.get(), equalTo(2));
+    }
+
+    private Optional<String> lookUp(Optional<String> uploadId) {
+        lookups.incrementAndGet();
+        return uploadId;
+    }
+
+    private void advance(long duration, TimeUnit unit, long extraNanos) {
+        nanos.addAndGet(unit.toNanos(duration) + extraNanos);
+    }
+}
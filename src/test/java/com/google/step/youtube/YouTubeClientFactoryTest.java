@@ -0,0 +1,153 @@
+package com.google.step.youtube;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import com.google.api.client.http.GenericUrl;
+import com.google.api.client.http.HttpResponse;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public final class YouTubeClientFactoryTest {
+
+    private static final String BODY = "{\"items\": []}";
+
+    private HttpServer server;
+    // remote ports of the connections the server was asked on, one per connection
+    private Set<Integer> clientPorts;
+    private String lastAcceptEncoding;
+    private YouTubeClientFactory factory;
+
+    @Before
+    public void setUp() throws IOException {
+        clientPorts = Collections.synchronizedSet(new HashSet<>());
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            lastAcceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+            if (exchange.getRequestURI().getPath().equals("/slow")) {
+                sleep(1000);
+            }
+            byte[] body = BODY.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            if ("gzip".equals(lastAcceptEncoding)) {
+                exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+                exchange.sendResponseHeaders(200, 0);
+                try (OutputStream out = new GZIPOutputStream(exchange.getResponseBody())) {
+                    out.write(body);
+                }
+            } else {
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        if (factory != null) {
+            factory.close();
+        }
+        server.stop(0);
+    }
+
+    @Test
+    public void requests_reuseIdleConnection() throws IOException {
+        factory = new YouTubeClientFactory(YouTubeClientFactory.Config.builder().build());
+
+        assertThat(get("/a"), equalTo(BODY));
+        assertThat(get("/b"), equalTo(BODY));
+        assertThat(get("/c"), equalTo(BODY));
+
+        assertThat(clientPorts.size(), equalTo(1));
+        YouTubeClientFactory.PoolStats stats = factory.getPoolStats();
+        assertThat(stats.getLeased(), equalTo(0));
+        assertThat(stats.getIdle(), equalTo(1));
+        assertThat(stats.getPending(), equalTo(0));
+        assertThat(stats.getMax(), equalTo(YouTubeClientFactory.Config.DEFAULT_MAX_CONNECTIONS));
+    }
+
+    @Test
+    public void requests_askForGzip() throws IOException {
+        factory = new YouTubeClientFactory(YouTubeClientFactory.Config.builder().build());
+
+        assertThat(get("/"), equalTo(BODY));
+        assertThat(lastAcceptEncoding, equalTo("gzip"));
+    }
+
+    @Test
+    public void requests_withoutGzip() throws IOException {
+        factory = new YouTubeClientFactory(YouTubeClientFactory.Config.builder().setGzip(false).build());
+
+        assertThat(get("/"), equalTo(BODY));
+        assertThat(lastAcceptEncoding, equalTo(null));
+    }
+
+    @Test(expected = SocketTimeoutException.class)
+    public void requests_timeOut() throws IOException {
+        factory = new YouTubeClientFactory(YouTubeClientFactory.Config.builder().setReadTimeoutMillis(100).build());
+        get("/slow");
+    }
+
+    @Test
+    public void client_usesPooledTransport() {
+        factory = new YouTubeClientFactory(YouTubeClientFactory.Config.builder().build());
+
+        assertThat(factory.getClient().getRequestFactory().getTransport(), equalTo(factory.getTransport()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void config_rejectsPoolSmallerThanRoute() {
+        YouTubeClientFactory.Config.builder().setMaxConnections(2).setMaxConnectionsPerRoute(3).build();
+    }
+
+    @Test
+    public void config_readsSystemProperties() {
+        System.setProperty("promotube.http.maxConnectionsPerRoute", "7");
+        System.setProperty("promotube.http.gzip", "false");
+        try {
+            YouTubeClientFactory.Config config = YouTubeClientFactory.Config.fromSystemProperties();
+            assertThat(config, equalTo(YouTubeClientFactory.Config.builder().setMaxConnectionsPerRoute(7)
+                    .setGzip(false).build()));
+        } finally {
+            System.clearProperty("promotube.http.maxConnectionsPerRoute");
+            System.clearProperty("promotube.http.gzip");
+        }
+    }
+
+    /* Gets path from the server the way the YouTube client does. */
+    private String get(String path) throws IOException {
+        GenericUrl url = new GenericUrl("http://localhost:" + server.getAddress().getPort() + path);
+        HttpResponse response = factory.getClient().getRequestFactory().buildGetRequest(url).execute();
+        try {
+            return response.parseAsString();
+        } finally {
+            response.disconnect();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
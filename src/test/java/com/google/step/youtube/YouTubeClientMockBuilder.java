@@ -1,5 +1,6 @@
 package com.google.step.youtube;
 
+import static org.mockito.Mockito.anyLong;
 import static org.mockito.Mockito.anyString;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -36,6 +37,7 @@ public class YouTubeClientMockBuilder {
         when(mockListPlaylistItems.setMaxResults(YouTubeInfoScraper.MAX_PLAYLIST_RESULTS))
                 .thenReturn(mockListPlaylistItems);
         when(mockListPlaylistItems.setPlaylistId(anyString())).thenReturn(mockListPlaylistItems);
+        when(mockListPlaylistItems.setPageToken(anyString())).thenReturn(mockListPlaylistItems);
 
         Videos mockVideos = mock(YouTube.Videos.class);
         mockListVideos = mock(Videos.List.class);
@@ -49,7 +51,8 @@ public class YouTubeClientMockBuilder {
         mockListSearch = mock(Search.List.class);
         when(mockYouTubeClient.search()).thenReturn(mockSearch);
         when(mockSearch.list("snippet")).thenReturn(mockListSearch);
-        when(mockListSearch.setMaxResults(YouTubeInfoScraper.MAX_SEARCH_RESULTS)).thenReturn(mockListSearch);
+        when(mockListSearch.setMaxResults(anyLong())).thenReturn(mockListSearch);
+        when(mockListSearch.setPageToken(anyString())).thenReturn(mockListSearch);
         when(mockListSearch.setQ(anyString())).thenReturn(mockListSearch);
     }
 
@@ -6,8 +6,14 @@ import static com.google.step.youtube.YouTubeClientMocks.DESCRIPTION;
 import static com.google.step.youtube.YouTubeClientMocks.KEYWORD;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import com.google.api.client.http.HttpHeaders;
+import com.google.api.client.http.HttpResponseException;
 import com.google.api.services.youtube.model.ChannelListResponse;
 import com.google.api.services.youtube.model.PlaylistItem;
 import com.google.api.services.youtube.model.PlaylistItemListResponse;
@@ -19,11 +25,18 @@ import com.google.api.services.youtube.YouTube.Videos;
 import com.google.api.services.youtube.model.SearchListResponse;
 import com.google.api.services.youtube.YouTube.Search;
 import com.google.appengine.repackaged.com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.Before;
 import org.junit.runner.RunWith;
 import org.junit.Test;
@@ -49,7 +62,7 @@ public final class YouTubeInfoScraperTest {
     private static final String VIDEO_ID = "VIDEO_ID";
     private static final String NO_RESULTS_KEYWORD = "NO_RESULTS_KEYWORD";
     private static final List<String> EMPTY_VIDEO_ID_LIST = ImmutableList.of();
-    private static final List<String> VIDEO_ID_LIST = ImmutableList.of();
+    private static final List<String> VIDEO_ID_LIST = ImmutableList.of(VIDEO_ID, VIDEO_ID, VIDEO_ID);
 
     @Before
     public void setUp() throws IOException {
@@ -75,6 +88,32 @@ public final class YouTubeInfoScraperTest {
         assertThat(actual.get(), equalTo(UPLOAD_ID));
     }
 
+    /* A channel id of the usual form is turned into its upload playlist id without a call. */
+    @Test
+    public void scrapeChannelUploadPlaylist_derivesUploadId() throws IOException {
+        Optional<String> actual = scraper.scrapeChannelUploadPlaylist("UCBR8-60-B28hp2BmDPdntcQ");
+        assertThat(actual.get(), equalTo("UUBR8-60-B28hp2BmDPdntcQ"));
+        verify(mockListChannels, never()).execute();
+    }
+
+    @Test
+    public void scrapeChannelUploadPlaylist_cachesLookup() throws IOException {
+        when(mockListChannels.execute()).thenReturn(YouTubeClientMocks.newBasicChannelResponse());
+        scraper.scrapeChannelUploadPlaylist(CHANNEL_ID);
+        Optional<String> actual = scraper.scrapeChannelUploadPlaylist(CHANNEL_ID);
+        assertThat(actual.get(), equalTo(UPLOAD_ID));
+        verify(mockListChannels, times(1)).execute();
+    }
+
+    @Test
+    public void scrapeUserUploadPlaylist_cachesMissing() throws IOException {
+        when(mockListChannels.execute()).thenReturn(new ChannelListResponse());
+        scraper.scrapeUserUploadPlaylist(NONEXISTENT_USERNAME);
+        Optional<String> actual = scraper.scrapeUserUploadPlaylist(NONEXISTENT_USERNAME);
+        assertThat(actual.isPresent(), equalTo(false));
+        verify(mockListChannels, times(1)).execute();
+    }
+
     @Test
     public void scrapeUserUploadPlaylist_nonExistentUserName() throws IOException {
         when(mockListChannels.execute()).thenReturn(new ChannelListResponse());
@@ -111,6 +150,21 @@ public final class YouTubeInfoScraperTest {
         assertThat(actual.isPresent(), equalTo(false));
     }
 
+    @Test
+    public void scrapePromoCodesFromPlaylist_playlistNotFound() throws IOException {
+        when(mockListPlaylistItems.execute()).thenThrow(
+                new HttpResponseException.Builder(404, "Not Found", new HttpHeaders()).build());
+        Optional<List<PromoCode>> actual = scraper.scrapePromoCodesFromPlaylist(NONEXISTENT_UPLOAD_ID);
+        assertThat(actual.isPresent(), equalTo(false));
+    }
+
+    @Test(expected = HttpResponseException.class)
+    public void scrapePromoCodesFromPlaylist_otherHttpError() throws IOException {
+        when(mockListPlaylistItems.execute()).thenThrow(
+                new HttpResponseException.Builder(403, "Forbidden", new HttpHeaders()).build());
+        scraper.scrapePromoCodesFromPlaylist(UPLOAD_ID);
+    }
+
     @Test
     public void scrapePromoCodesFromPlaylist_oneItem() throws IOException {
         when(mockListPlaylistItems.execute()).thenReturn(YouTubeClientMocks.newBasicPlaylistResponse());
@@ -118,6 +172,17 @@ public final class YouTubeInfoScraperTest {
         assertThat(actual.get(), equalTo(Arrays.asList(YouTubeClientMocks.newPromoCode(PROMOCODE_DESCRIPTION))));
     }
 
+    @Test
+    public void scrapePromoCodesFromPlaylist_recordsStages() throws IOException {
+        when(mockListPlaylistItems.execute()).thenReturn(YouTubeClientMocks.newBasicPlaylistResponse());
+        RequestStages stages = RequestStages.begin();
+        scraper.scrapePromoCodesFromPlaylist(UPLOAD_ID);
+        stages.end();
+
+        assertThat(stages.getItems().toString(), equalTo("{playlistItems.list=1, parse=1}"));
+        assertThat(stages.getNanos().keySet(), equalTo(stages.getItems().keySet()));
+    }
+
     @Test
     public void scrapePromoCodesFromPlaylist_noItems() throws IOException {
         when(mockListPlaylistItems.execute()).thenReturn(new PlaylistItemListResponse());
@@ -147,6 +212,66 @@ public final class YouTubeInfoScraperTest {
         assertThat(actual.get().isEmpty(), equalTo(true));
     }
 
+    @Test
+    public void scrapePromoCodesFromPlaylist_followsPageTokens() throws IOException {
+        when(mockListPlaylistItems.execute()).thenReturn(newPlaylistPage("PAGE_2"), newPlaylistPage("PAGE_3"),
+                newPlaylistPage(null));
+        Optional<List<PromoCode>> actual = scraper.scrapePromoCodesFromPlaylist(UPLOAD_ID, 5);
+
+        assertThat(actual.get().size(), equalTo(3));
+        verify(mockListPlaylistItems).setPageToken("PAGE_2");
+        verify(mockListPlaylistItems).setPageToken("PAGE_3");
+        verify(mockListPlaylistItems, times(3)).execute();
+    }
+
+    @Test
+    public void scrapePromoCodesFromPlaylist_readsFirstPageByDefault() throws IOException {
+        when(mockListPlaylistItems.execute()).thenReturn(newPlaylistPage("PAGE_2"), newPlaylistPage(null));
+        Optional<List<PromoCode>> actual = scraper.scrapePromoCodesFromPlaylist(UPLOAD_ID);
+
+        assertThat(actual.get().size(), equalTo(1));
+        verify(mockListPlaylistItems, never()).setPageToken("PAGE_2");
+        verify(mockListPlaylistItems, times(1)).execute();
+    }
+
+    @Test
+    public void scrapePromoCodesFromPlaylist_stopsAtMaxPages() throws IOException {
+        when(mockListPlaylistItems.execute()).thenReturn(newPlaylistPage("PAGE_2"), newPlaylistPage("PAGE_3"),
+                newPlaylistPage(null));
+        Optional<List<PromoCode>> actual = scraper.scrapePromoCodesFromPlaylist(UPLOAD_ID, 2);
+
+        assertThat(actual.get().size(), equalTo(2));
+        verify(mockListPlaylistItems, never()).setPageToken("PAGE_3");
+        verify(mockListPlaylistItems, times(2)).execute();
+    }
+
+    @Test(expected = IOException.class)
+    public void scrapePromoCodesFromPlaylist_nextPageFails() throws IOException {
+        when(mockListPlaylistItems.execute()).thenReturn(newPlaylistPage("PAGE_2"))
+                .thenThrow(new IOException("quota exceeded"));
+        scraper.scrapePromoCodesFromPlaylist(UPLOAD_ID, 2);
+    }
+
+    /* The fetch of the second page is started before the first page is parsed. */
+    @Test
+    public void scrapePromoCodesFromPlaylist_prefetchesNextPage() throws IOException {
+        YouTubeClientMockBuilder ytMock = new YouTubeClientMockBuilder();
+        when(ytMock.getMockListPlaylistItems().execute()).thenReturn(newPlaylistPage("PAGE_2"),
+                newPlaylistPage(null));
+        RequestStages stages = RequestStages.begin();
+        List<Map<String, Integer>> stagesAtFetch = new ArrayList<>();
+        Executor fetchExecutor = task -> {
+            stagesAtFetch.add(stages.getItems());
+            new Thread(task).start();
+        };
+        new YouTubeInfoScraper(ytMock.getYouTubeMock(), Runnable::run, fetchExecutor, 2)
+                .scrapePromoCodesFromPlaylist(UPLOAD_ID);
+        stages.end();
+
+        assertThat(stagesAtFetch.toString(), equalTo("[{playlistItems.list=1}]"));
+        assertThat(stages.getItems().toString(), equalTo("{playlistItems.list=2, parse=2}"));
+    }
+
     @Test
     public void scrapeVideoInformation_returnNull() throws IOException {
         when(mockListVideos.execute()).thenReturn( new VideoListResponse());
@@ -175,6 +300,82 @@ public final class YouTubeInfoScraperTest {
         assertThat(actual.get(), equalTo(Arrays.asList(VIDEO_ID, VIDEO_ID)));
     }
 
+    @Test
+    public void scrapeVideoIdsFromSearch_followsPageTokens() throws IOException {
+        when(mockListSearch.execute()).thenReturn(newSearchPage(YouTubeInfoScraper.MAX_RESULTS_PER_PAGE, "PAGE_2"),
+                newSearchPage(YouTubeInfoScraper.MAX_RESULTS_PER_PAGE, "PAGE_3"), newSearchPage(1, null));
+        Optional<List<String>> actual = scraper.scrapeVideoIdsFromSearch(KEYWORD);
+
+        assertThat((long) actual.get().size(), equalTo(YouTubeInfoScraper.MAX_SEARCH_RESULTS));
+        verify(mockListSearch, times(2)).setMaxResults((long) YouTubeInfoScraper.MAX_RESULTS_PER_PAGE);
+        verify(mockListSearch).setPageToken("PAGE_2");
+        verify(mockListSearch, never()).setPageToken("PAGE_3");
+    }
+
+    @Test
+    public void scrapeVideoIdsFromSearch_lastPageHasNoToken() throws IOException {
+        when(mockListSearch.execute()).thenReturn(newSearchPage(2, "PAGE_2"), newSearchPage(1, null));
+        Optional<List<String>> actual = scraper.scrapeVideoIdsFromSearch(KEYWORD);
+
+        assertThat(actual.get().size(), equalTo(3));
+        verify(mockListSearch, times(2)).execute();
+    }
+
+    @Test
+    public void scrapeVideoInformation_noIds() throws IOException {
+        Optional<List<Video>> actual = scraper.scrapeVideoInformation(EMPTY_VIDEO_ID_LIST);
+        assertThat(actual.isPresent(), equalTo(false));
+        verify(mockListVideos, never()).execute();
+    }
+
+    /* Videos come back in the order of the ids, whichever order each call answers in. */
+    @Test
+    public void scrapeVideoInformation_batchesIdsInOrder() throws IOException {
+        List<String> ids = newVideoIds(120);
+        List<String> calledIds = Collections.synchronizedList(new ArrayList<>());
+        YouTubeClientMockBuilder ytMock = new YouTubeClientMockBuilder();
+        answerVideosInReverse(ytMock.getMockListVideos(), calledIds, new AtomicInteger(), new AtomicInteger());
+        Optional<List<Video>> actual = new YouTubeInfoScraper(ytMock.getYouTubeMock(), Runnable::run, Runnable::run, 1)
+                .scrapeVideoInformation(ids);
+
+        List<String> actualIds = new ArrayList<>();
+        for (Video video : actual.get()) {
+            actualIds.add(video.getId());
+        }
+        assertThat(actualIds, equalTo(ids));
+        assertThat(calledIds.size(), equalTo(3));
+        assertThat(calledIds.get(2).split(",").length, equalTo(20));
+    }
+
+    @Test
+    public void scrapeVideoInformation_boundsConcurrentCalls() throws IOException {
+        int batches = YouTubeInfoScraper.MAX_CONCURRENT_VIDEOS_CALLS + 2;
+        List<String> ids = newVideoIds(batches * YouTubeInfoScraper.MAX_IDS_PER_VIDEOS_CALL);
+        AtomicInteger calls = new AtomicInteger();
+        AtomicInteger maxConcurrentCalls = new AtomicInteger();
+        YouTubeClientMockBuilder ytMock = new YouTubeClientMockBuilder();
+        answerVideosInReverse(ytMock.getMockListVideos(), Collections.synchronizedList(new ArrayList<>()), calls,
+                maxConcurrentCalls);
+        ExecutorService fetchExecutor = Executors.newFixedThreadPool(batches);
+        try {
+            Optional<List<Video>> actual = new YouTubeInfoScraper(ytMock.getYouTubeMock(), Runnable::run,
+                    fetchExecutor, 1).scrapeVideoInformation(ids);
+            assertThat(actual.get().size(), equalTo(ids.size()));
+        } finally {
+            fetchExecutor.shutdown();
+        }
+        assertThat(calls.get(), equalTo(batches));
+        assertThat(maxConcurrentCalls.get() > 1, equalTo(true));
+        assertThat(maxConcurrentCalls.get() <= YouTubeInfoScraper.MAX_CONCURRENT_VIDEOS_CALLS, equalTo(true));
+    }
+
+    @Test(expected = IOException.class)
+    public void scrapeVideoInformation_batchFails() throws IOException {
+        when(mockListVideos.execute()).thenReturn(YouTubeClientMocks.newBasicVideoListResponse())
+                .thenThrow(new IOException("quota exceeded"));
+        scraper.scrapeVideoInformation(newVideoIds(2 * YouTubeInfoScraper.MAX_IDS_PER_VIDEOS_CALL));
+    }
+
     @Test
     public void scrapePromoCodesFromVideos_emptyVideoIdList() throws IOException {
         when(mockListVideos.execute()).thenReturn(new VideoListResponse());
@@ -195,6 +396,23 @@ public final class YouTubeInfoScraperTest {
                 YouTubeClientMocks.newPromoCode(KEYWORD_DESCRIPTION))));
     }
 
+    @Test
+    public void scrapePromoCodesFromVideos_parsedOnGivenExecutor() throws IOException {
+        YouTubeClientMockBuilder ytMock = new YouTubeClientMockBuilder();
+        AtomicInteger tasks = new AtomicInteger();
+        YouTubeInfoScraper parallelScraper = new YouTubeInfoScraper(ytMock.getYouTubeMock(), task -> {
+            tasks.incrementAndGet();
+            task.run();
+        });
+        VideoListResponse testVideoResponse = new VideoListResponse();
+        testVideoResponse.setItems(Arrays.asList(YouTubeClientMocks.newBasicVideoResponse(KEYWORD_DESCRIPTION),
+                YouTubeClientMocks.newBasicVideoResponse(DESCRIPTION)));
+        when(ytMock.getMockListVideos().execute()).thenReturn(testVideoResponse);
+        Optional<List<PromoCode>> actual = parallelScraper.scrapePromoCodesFromVideos(KEYWORD, VIDEO_ID_LIST);
+        assertThat(actual.get(), equalTo(Arrays.asList(YouTubeClientMocks.newPromoCode(KEYWORD_DESCRIPTION))));
+        assertThat(tasks.get(), equalTo(2));
+    }
+
     @Test
     public void scrapePromoCodesFromVideos_oneItemNoCodesFound() throws IOException {
         VideoListResponse testVideoResponse = new VideoListResponse();
@@ -205,4 +423,55 @@ public final class YouTubeInfoScraperTest {
         assertThat(actual.get().isEmpty(), equalTo(true));
     }
 
+    private static PlaylistItemListResponse newPlaylistPage(String nextPageToken) {
+        PlaylistItemListResponse page = YouTubeClientMocks.newBasicPlaylistResponse();
+        page.setNextPageToken(nextPageToken);
+        return page;
+    }
+
+    private static SearchListResponse newSearchPage(int results, String nextPageToken) {
+        SearchListResponse page = new SearchListResponse();
+        page.setItems(new ArrayList<>(Collections.nCopies(results, YouTubeClientMocks.newBasicSearchResult())));
+        page.setNextPageToken(nextPageToken);
+        return page;
+    }
+
+    private static List<String> newVideoIds(int count) {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ids.add(VIDEO_ID + i);
+        }
+        return ids;
+    }
+
+    /*
+     * Makes videos.list answer with a video for each id it's given, in reverse order, adding
+     * the ids of each call to calledIds and counting calls and the most made at once.
+     */
+    private static void answerVideosInReverse(Videos.List mockListVideos, List<String> calledIds, AtomicInteger calls,
+            AtomicInteger maxConcurrentCalls) throws IOException {
+        // setId and execute of a call are made on the same thread
+        ThreadLocal<String> ids = new ThreadLocal<>();
+        AtomicInteger concurrentCalls = new AtomicInteger();
+        when(mockListVideos.setId(anyString())).thenAnswer(invocation -> {
+            ids.set((String) invocation.getArguments()[0]);
+            calledIds.add(ids.get());
+            return mockListVideos;
+        });
+        when(mockListVideos.execute()).thenAnswer(invocation -> {
+            calls.incrementAndGet();
+            maxConcurrentCalls.accumulateAndGet(concurrentCalls.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(20);
+            } finally {
+                concurrentCalls.decrementAndGet();
+            }
+            List<Video> videos = new ArrayList<>();
+            for (String id : Lists.reverse(Arrays.asList(ids.get().split(",")))) {
+                videos.add(YouTubeClientMocks.newBasicVideoResponse(DESCRIPTION).setId(id));
+            }
+            return new VideoListResponse().setItems(videos);
+        });
+    }
+
 }